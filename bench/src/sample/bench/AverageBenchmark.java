@@ -0,0 +1,65 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import sample.analytics.MarksEngine;
+import sample.database.dao.AverageMarkDao;
+import sample.database.dao.MarkFactDao;
+import sample.entity.AverageMark;
+import sample.service.AverageMarkService;
+import sample.service.impl.AverageMarkServiceImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// averages of every entity of a scope, size students with 10 marks each:
+// through the calcPerf*All procedures and from the in-memory MarksEngine
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AverageBenchmark {
+    public static class Marks extends EmbeddedState {
+        // every scope when not given with -p scope=...
+        @Param
+        public AverageMark.Scope scope;
+
+        AverageMarkService averages;
+
+        @Override
+        protected void fill() throws Exception {
+            db.fill(size, 10, SEED);
+            averages = new AverageMarkServiceImpl(new AverageMarkDao());
+        }
+    }
+
+    public static class Engine extends Marks {
+        MarksEngine engine;
+
+        @Override
+        protected void fill() throws Exception {
+            super.fill();
+            engine = new MarksEngine(new MarkFactDao());
+            if (!engine.load())
+                throw new IllegalStateException("MarksEngine failed to load");
+        }
+    }
+
+    @Benchmark
+    public void service(Marks state, Blackhole bh) {
+        state.averages.forEachAverage(state.scope, EmbeddedState.START_YEAR, EmbeddedState.END_YEAR, bh::consume);
+    }
+
+    @Benchmark
+    public List<AverageMark> engine(Engine state) {
+        return state.engine.averages(state.scope, EmbeddedState.START_YEAR, EmbeddedState.END_YEAR, null);
+    }
+}
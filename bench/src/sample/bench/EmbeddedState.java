@@ -0,0 +1,50 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import sample.database.DBConnection;
+import sample.database.embedded.EmbeddedBackend;
+import sample.database.embedded.EmbeddedDatabase;
+import sample.entity.Student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Generated embedded database the DAOs and services of a benchmark run against, no Oracle needed.
+// The engine has no network and no SQL, so the numbers show the Java side
+// (pool, statement cache, mapping, collections); compare them with each other.
+@State(Scope.Benchmark)
+public abstract class EmbeddedState {
+    static final long SEED = 42;
+    static final int START_YEAR = 2016;
+    static final int END_YEAR = 2019;
+
+    // number of students, or of one student's marks where the benchmark says so
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    protected final EmbeddedDatabase db = new EmbeddedDatabase();
+
+    @Setup
+    public void open() throws Exception {
+        DBConnection.useBackend(new EmbeddedBackend(db));
+        fill();
+    }
+
+    @TearDown
+    public void close() {
+        DBConnection.close();
+    }
+
+    protected abstract void fill() throws Exception;
+
+    static List<Student> students(int size) {
+        List<Student> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            rows.add(new Student(i, "Имя" + i, "Студент" + i, "Отчество" + i, "ГР-000-2016"));
+        return rows;
+    }
+}
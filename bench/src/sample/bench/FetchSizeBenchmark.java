@@ -0,0 +1,57 @@
+package sample.bench;
+
+import sample.database.DBConnection;
+import sample.database.dao.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reads a whole table through DAO.forEach with different fetch sizes and prints rows/s.
+//   java sample.bench.FetchSizeBenchmark [students|teachers|groups|subjects] [10,100,500,...] [runs]
+public class FetchSizeBenchmark {
+    private static final String DEFAULT_SIZES = "10,50,100,500,1000,5000";
+
+    public static void main(String[] args) throws SQLException {
+        String table = args.length > 0 ? args[0] : "students";
+        String[] sizes = (args.length > 1 ? args[1] : DEFAULT_SIZES).split(",");
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        DAO<?> dao;
+        String procedure;
+        switch (table) {
+            case "students": dao = new StudentDao(); procedure = "get_students"; break;
+            case "teachers": dao = new TeacherDao(); procedure = "get_teachers"; break;
+            case "groups": dao = new GroupsDao(); procedure = "get_groups"; break;
+            case "subjects": dao = new SubjectDao(); procedure = "get_subjects"; break;
+            default:
+                System.out.println("Unknown table: " + table);
+                return;
+        }
+
+        // the first pass warms up the pool, the statement cache and the JIT
+        read(dao);
+
+        for (String size : sizes) {
+            System.setProperty("db.fetchSize." + procedure, size.trim());
+            long best = Long.MAX_VALUE;
+            long rows = 0;
+            for (int i = 0; i < runs; i++) {
+                long start = System.nanoTime();
+                rows = read(dao);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            if (rows < 0) {
+                System.out.println("Query failed, see above");
+                break;
+            }
+            System.out.printf("fetchSize=%6s  rows=%8d  best %8.1f ms  %12.0f rows/s%n",
+                    size.trim(), rows, best / 1e6, rows / (best / 1e9));
+        }
+        DBConnection.close();
+    }
+
+    private static long read(DAO<?> dao) {
+        AtomicLong rows = new AtomicLong();
+        return dao.forEach(row -> rows.incrementAndGet()) ? rows.get() : -1;
+    }
+}
@@ -0,0 +1,58 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.database.dao.MarkDao;
+import sample.database.dao.StudentDao;
+import sample.entity.Mark;
+import sample.entity.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ResultSet -> entity mapping through the whole read path: pool, call, cursor, mapper
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+    // size students
+    public static class Students extends EmbeddedState {
+        StudentDao dao;
+
+        @Override
+        protected void fill() throws Exception {
+            db.fill(size, 0, SEED);
+            dao = new StudentDao();
+        }
+    }
+
+    // one student with size marks
+    public static class Marks extends EmbeddedState {
+        MarkDao dao;
+        Student student;
+
+        @Override
+        protected void fill() throws Exception {
+            db.fill(1, size, SEED);
+            dao = new MarkDao();
+            student = new StudentDao().findPage(null, 1).get(0);
+        }
+    }
+
+    @Benchmark
+    public List<Student> studentsFindAll(Students state) {
+        return state.dao.findAll();
+    }
+
+    @Benchmark
+    public List<Mark> marksFindAllByStudent(Marks state) {
+        return state.dao.findAllByStudent(state.student);
+    }
+}
@@ -0,0 +1,59 @@
+package sample.bench;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.entity.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ways of filling a table's items with size rows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservableListBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<Student> rows;
+    private ObservableList<Student> list;
+
+    @Setup
+    public void setUp() {
+        rows = EmbeddedState.students(size);
+        list = FXCollections.observableArrayList();
+    }
+
+    @Benchmark
+    public ObservableList<Student> copyOf() {
+        return FXCollections.observableArrayList(rows);
+    }
+
+    @Benchmark
+    public ObservableList<Student> addEach() {
+        ObservableList<Student> list = FXCollections.observableArrayList();
+        for (Student s : rows)
+            list.add(s);
+        return list;
+    }
+
+    @Benchmark
+    public ObservableList<Student> setAll() {
+        list.setAll(rows);
+        return list;
+    }
+}
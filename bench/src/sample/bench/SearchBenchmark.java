@@ -0,0 +1,49 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.entity.Student;
+import sample.search.NameIndex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// name search over size students: a prefix, and a misspelled word that goes through the trigrams
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private NameIndex<Student> index;
+
+    @Setup
+    public void setUp() {
+        index = new NameIndex<>(Student::getId,
+                s -> new String[]{s.getLastName(), s.getFirstName(), s.getFatherName()});
+        index.putAll(EmbeddedState.students(size));
+    }
+
+    @Benchmark
+    public List<Student> prefix() {
+        return index.search("студент1", 50);
+    }
+
+    @Benchmark
+    public List<Student> fuzzy() {
+        return index.search("стдуент17", 50);
+    }
+}
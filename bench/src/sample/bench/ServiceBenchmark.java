@@ -0,0 +1,67 @@
+package sample.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import sample.database.dao.MarkDao;
+import sample.database.dao.StudentDao;
+import sample.database.dao.TeacherDao;
+import sample.entity.Mark;
+import sample.entity.Student;
+import sample.entity.Teacher;
+import sample.service.MarkService;
+import sample.service.StudentService;
+import sample.service.impl.MarkServiceImpl;
+import sample.service.impl.StudentServiceImpl;
+
+import java.util.concurrent.TimeUnit;
+
+// add -> update -> delete through the services, the table holds size students, 10 marks each
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+    public static class Services extends EmbeddedState {
+        StudentService students;
+        MarkService marks;
+        Student student;
+        Teacher teacher;
+        Mark first;
+
+        @Override
+        protected void fill() throws Exception {
+            db.fill(size, 10, SEED);
+            students = new StudentServiceImpl(new StudentDao());
+            marks = new MarkServiceImpl(new MarkDao());
+            student = students.findPage(null, 1).get(0);
+            teacher = new TeacherDao().findAll().get(0);
+            first = marks.findAllByStudent(student).get(0);
+        }
+    }
+
+    @Benchmark
+    public Student studentRoundTrip(Services state) {
+        String group = state.student.getGroupName();
+        state.students.add(new Student("Имя", "Фамилия", "Отчество", group));
+        Student added = new Student(state.db.lastId(), "Имя", "Фамилия", "Отчество", group);
+        state.students.update(added, new Student("Имя", "Фамилия2", "Отчество", group));
+        state.students.delete(added);
+        return added;
+    }
+
+    @Benchmark
+    public Mark markRoundTrip(Services state) {
+        Mark mark = new Mark(state.student.getId(), state.first.getSubjectName(), state.teacher.getId(), 4);
+        state.marks.add(mark);
+        mark.setId(state.db.lastId());
+        state.marks.update(mark, new Mark(5));
+        state.marks.delete(mark);
+        return mark;
+    }
+}
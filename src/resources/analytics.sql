@@ -0,0 +1,28 @@
+-- оценки для аналитики в памяти (sample.analytics.MarksEngine): только ключи и значение,
+-- по возрастанию id, начиная после after_id - так же догружаются новые оценки
+CREATE OR REPLACE PROCEDURE get_mark_facts (after_id NUMBER, facts_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open facts_cursor for
+        SELECT M.ID, M.STUDENT_ID, M.SUBJECT_ID, M.TEACHER_ID, P.GROUP_ID,
+               NVL(G.ADMISSION_YEAR, 0), M.VALUE
+        FROM MARKS M
+            JOIN PEOPLE P on M.STUDENT_ID = P.ID
+            JOIN GROUPS G on P.GROUP_ID = G.ID
+        WHERE M.ID > after_id
+        ORDER BY M.ID;
+END;
+
+-- имена студентов (S), преподавателей (T), групп (G) и предметов (J) для тех же ключей
+CREATE OR REPLACE PROCEDURE get_mark_names (names_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open names_cursor for
+        SELECT 'S', ID, LAST_NAME || ' ' || FIRST_NAME || ' ' || FATHER_NAME FROM PEOPLE WHERE TYPE = 'S'
+        UNION ALL
+        SELECT 'T', ID, LAST_NAME || ' ' || FIRST_NAME || ' ' || FATHER_NAME FROM PEOPLE WHERE TYPE = 'T'
+        UNION ALL
+        SELECT 'G', ID, NAME FROM GROUPS
+        UNION ALL
+        SELECT 'J', ID, NAME FROM SUBJECTS;
+END;
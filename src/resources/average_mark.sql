@@ -1,64 +1,116 @@
+-- годы - номера годов поступления групп (groups.admission_year, см. groups.sql).
+-- Средние считаются по готовым суммам из MARK_TOTALS (см. mark_totals.sql):
+-- несколько строк на сущность вместо AVG по всем её оценкам
+
 -- средний балл по всем предметам в интервале времени от startYear до endYear(включительно)
 -- конкретного студента
-CREATE OR REPLACE PROCEDURE calcPerfStud(startYear IN VARCHAR2, endYear IN VARCHAR2,
+CREATE OR REPLACE PROCEDURE calcPerfStud(startYear IN NUMBER, endYear IN NUMBER,
                                         studentID IN NUMBER, avg_mark_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open avg_mark_cursor for
-        SELECT AVG(marks.value)
-        FROM
-            marks
-                JOIN people ON marks.student_id = people.id
-                JOIN groups ON people.group_id = groups.id
-        WHERE SUBSTR(groups.name, 8) >= startYear AND SUBSTR(groups.name, 8) <= endYear
-        AND MARKS.STUDENT_ID = studentID;
+        SELECT SUM(MARK_SUM) / NULLIF(SUM(MARK_COUNT), 0)
+        FROM MARK_TOTALS
+        WHERE KIND = 'S' AND ENTITY_ID = studentID
+        AND ADMISSION_YEAR BETWEEN startYear AND endYear;
 END calcPerfStud;
 
 -- средний балл по всем предметам в интервале времени от startYear до endYear(включительно)
 -- конкретной группы
-CREATE OR REPLACE PROCEDURE calcPerfGroup(startYear IN VARCHAR2, endYear IN VARCHAR2,
+CREATE OR REPLACE PROCEDURE calcPerfGroup(startYear IN NUMBER, endYear IN NUMBER,
                                          group_name IN VARCHAR2, avg_mark_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open avg_mark_cursor for
-        SELECT AVG(marks.value)
-        FROM
-            marks
-                JOIN people ON marks.student_id = people.id
-                JOIN groups ON people.group_id = groups.id
-        WHERE SUBSTR(groups.name, 8) >= startYear AND SUBSTR(groups.name, 8) <= endYear
-        AND GROUPS.NAME = group_name;
+        SELECT SUM(T.MARK_SUM) / NULLIF(SUM(T.MARK_COUNT), 0)
+        FROM MARK_TOTALS T
+            JOIN GROUPS ON T.ENTITY_ID = GROUPS.ID
+        WHERE T.KIND = 'G' AND GROUPS.NAME = group_name
+        AND T.ADMISSION_YEAR BETWEEN startYear AND endYear;
 END calcPerfGroup;
 
 -- средний балл в интервале времени от startYear до endYear(включительно)
 -- конкретного предмета
-CREATE OR REPLACE PROCEDURE calcPerfSubj(startYear IN VARCHAR2, endYear IN VARCHAR2,
+CREATE OR REPLACE PROCEDURE calcPerfSubj(startYear IN NUMBER, endYear IN NUMBER,
                                         subj_name IN VARCHAR2, avg_mark_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open avg_mark_cursor for
-        SELECT AVG(marks.value)
-        FROM
-            marks
-                JOIN people ON marks.student_id = people.id
-                JOIN groups ON people.group_id = groups.id
-                JOIN SUBJECTS S on MARKS.SUBJECT_ID = S.ID
-        WHERE SUBSTR(groups.name, 8) >= startYear AND SUBSTR(groups.name, 8) <= endYear
-        AND S.NAME = subj_name;
+        SELECT SUM(T.MARK_SUM) / NULLIF(SUM(T.MARK_COUNT), 0)
+        FROM MARK_TOTALS T
+            JOIN SUBJECTS S on T.ENTITY_ID = S.ID
+        WHERE T.KIND = 'J' AND S.NAME = subj_name
+        AND T.ADMISSION_YEAR BETWEEN startYear AND endYear;
 END calcPerfSubj;
 
 -- средний балл по всем предметам в интервале времени от startYear до endYear(включительно)
 -- конкретного преподавателя
-CREATE OR REPLACE PROCEDURE calcPerfTeacher(startYear IN VARCHAR2, endYear IN VARCHAR2,
+CREATE OR REPLACE PROCEDURE calcPerfTeacher(startYear IN NUMBER, endYear IN NUMBER,
                                            teacherID IN NUMBER, avg_mark_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open avg_mark_cursor for
-        SELECT AVG(marks.value)
-        FROM
-            marks
-                JOIN people ON marks.student_id = people.id
-                JOIN groups ON people.group_id = groups.id
-        WHERE SUBSTR(groups.name, 8) >= startYear AND SUBSTR(groups.name, 8) <= endYear
-        AND MARKS.TEACHER_ID = teacherID;
-END calcPerfTeacher;
\ No newline at end of file
+        SELECT SUM(MARK_SUM) / NULLIF(SUM(MARK_COUNT), 0)
+        FROM MARK_TOTALS
+        WHERE KIND = 'T' AND ENTITY_ID = teacherID
+        AND ADMISSION_YEAR BETWEEN startYear AND endYear;
+END calcPerfTeacher;
+
+-- средний балл и число оценок сразу всех студентов в интервале от startYear до endYear(включительно)
+-- одним запросом, вместо вызова calcPerfStud на каждого
+CREATE OR REPLACE PROCEDURE calcPerfStudAll(startYear IN NUMBER, endYear IN NUMBER,
+                                           avg_mark_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open avg_mark_cursor for
+        SELECT people.id, people.last_name || ' ' || people.first_name || ' ' || people.father_name,
+               SUM(T.MARK_SUM) / SUM(T.MARK_COUNT), SUM(T.MARK_COUNT)
+        FROM MARK_TOTALS T
+            JOIN people ON T.ENTITY_ID = people.id
+        WHERE T.KIND = 'S' AND T.ADMISSION_YEAR BETWEEN startYear AND endYear
+        GROUP BY people.id, people.last_name, people.first_name, people.father_name
+        HAVING SUM(T.MARK_COUNT) > 0;
+END calcPerfStudAll;
+
+-- то же для всех групп
+CREATE OR REPLACE PROCEDURE calcPerfGroupAll(startYear IN NUMBER, endYear IN NUMBER,
+                                            avg_mark_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open avg_mark_cursor for
+        SELECT groups.id, groups.name, SUM(T.MARK_SUM) / SUM(T.MARK_COUNT), SUM(T.MARK_COUNT)
+        FROM MARK_TOTALS T
+            JOIN groups ON T.ENTITY_ID = groups.id
+        WHERE T.KIND = 'G' AND T.ADMISSION_YEAR BETWEEN startYear AND endYear
+        GROUP BY groups.id, groups.name
+        HAVING SUM(T.MARK_COUNT) > 0;
+END calcPerfGroupAll;
+
+-- то же для всех предметов
+CREATE OR REPLACE PROCEDURE calcPerfSubjAll(startYear IN NUMBER, endYear IN NUMBER,
+                                           avg_mark_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open avg_mark_cursor for
+        SELECT S.id, S.name, SUM(T.MARK_SUM) / SUM(T.MARK_COUNT), SUM(T.MARK_COUNT)
+        FROM MARK_TOTALS T
+            JOIN SUBJECTS S on T.ENTITY_ID = S.ID
+        WHERE T.KIND = 'J' AND T.ADMISSION_YEAR BETWEEN startYear AND endYear
+        GROUP BY S.id, S.name
+        HAVING SUM(T.MARK_COUNT) > 0;
+END calcPerfSubjAll;
+
+-- то же для всех преподавателей
+CREATE OR REPLACE PROCEDURE calcPerfTeacherAll(startYear IN NUMBER, endYear IN NUMBER,
+                                              avg_mark_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open avg_mark_cursor for
+        SELECT P.id, P.last_name || ' ' || P.first_name || ' ' || P.father_name,
+               SUM(T.MARK_SUM) / SUM(T.MARK_COUNT), SUM(T.MARK_COUNT)
+        FROM MARK_TOTALS T
+            JOIN people P ON T.ENTITY_ID = P.id
+        WHERE T.KIND = 'T' AND T.ADMISSION_YEAR BETWEEN startYear AND endYear
+        GROUP BY P.id, P.last_name, P.first_name, P.father_name
+        HAVING SUM(T.MARK_COUNT) > 0;
+END calcPerfTeacherAll;
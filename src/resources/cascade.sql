@@ -0,0 +1,67 @@
+-- удаление группы, студента, преподавателя или предмета вместе со всем, что от них зависит,
+-- частями. Каждый вызов del_cascade удаляет не больше max_rows оценок и студентов и сразу
+-- делает COMMIT, так что блокировки и undo не копятся, а прерванное удаление можно продолжить.
+-- Клиент повторяет вызов, пока что-то остаётся; когда зависимых строк не осталось,
+-- тот же вызов удаляет и саму строку.
+CREATE INDEX marks_subject_id_idx ON MARKS (SUBJECT_ID);
+CREATE INDEX marks_teacher_id_idx ON MARKS (TEACHER_ID);
+
+-- kind: GROUPS, STUDENTS, TEACHERS или SUBJECTS, другое - ошибка -20301. max_rows = 0 ничего зависимого не удаляет,
+-- только считает: то, от чего ничего не зависит, удаляется за один вызов вместо
+-- count_*_dependencies и del_*. Остаток читается из MARK_TOTALS (mark_totals.sql).
+CREATE OR REPLACE PROCEDURE del_cascade (kind VARCHAR2, owner_id NUMBER, max_rows NUMBER,
+        marks_left OUT NUMBER, people_left OUT NUMBER)
+    IS
+        budget NUMBER := max_rows;
+BEGIN
+    IF (kind IS NULL OR kind NOT IN ('GROUPS', 'STUDENTS', 'TEACHERS', 'SUBJECTS'))
+    THEN
+        RAISE_APPLICATION_ERROR(-20301, 'Unknown kind: ' || kind);
+    END IF;
+
+    IF (budget > 0)
+    THEN
+        IF (kind = 'GROUPS')
+        THEN
+            DELETE FROM MARKS WHERE STUDENT_ID IN (SELECT ID FROM PEOPLE WHERE GROUP_ID = owner_id)
+                AND ROWNUM <= budget;
+        ELSIF (kind = 'STUDENTS')
+        THEN
+            DELETE FROM MARKS WHERE STUDENT_ID = owner_id AND ROWNUM <= budget;
+        ELSIF (kind = 'TEACHERS')
+        THEN
+            DELETE FROM MARKS WHERE TEACHER_ID = owner_id AND ROWNUM <= budget;
+        ELSIF (kind = 'SUBJECTS')
+        THEN
+            DELETE FROM MARKS WHERE SUBJECT_ID = owner_id AND ROWNUM <= budget;
+        END IF;
+        budget := budget - SQL%ROWCOUNT;
+
+        -- остаток бюджета значит, что оценок группы уже нет и её студентов можно удалять
+        IF (kind = 'GROUPS' AND budget > 0)
+        THEN
+            DELETE FROM PEOPLE WHERE GROUP_ID = owner_id AND TYPE = 'S' AND ROWNUM <= budget;
+        END IF;
+    END IF;
+
+    SELECT NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0), NVL(SUM(PEOPLE_COUNT), 0) INTO marks_left, people_left
+    FROM MARK_TOTALS
+    WHERE KIND = CASE kind WHEN 'GROUPS' THEN 'G' WHEN 'STUDENTS' THEN 'S'
+                           WHEN 'TEACHERS' THEN 'T' WHEN 'SUBJECTS' THEN 'J' END
+      AND ENTITY_ID = owner_id;
+
+    IF (marks_left = 0 AND people_left = 0)
+    THEN
+        IF (kind = 'GROUPS')
+        THEN
+            DELETE FROM GROUPS WHERE ID = owner_id;
+        ELSIF (kind = 'SUBJECTS')
+        THEN
+            DELETE FROM SUBJECTS WHERE ID = owner_id;
+        ELSIF (kind IN ('STUDENTS', 'TEACHERS'))
+        THEN
+            DELETE FROM PEOPLE WHERE ID = owner_id;
+        END IF;
+    END IF;
+    COMMIT;
+END;
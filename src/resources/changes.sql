@@ -0,0 +1,219 @@
+-- отслеживание изменений для обновления списков в интерфейсе без перечитывания таблиц.
+-- Каждая вставка и изменение строки GROUPS, SUBJECTS, PEOPLE записывает в MODSEQ текущий SCN,
+-- удаление оставляет запись в TOMBSTONES. Клиент помнит последний полученный номер (watermark)
+-- и спрашивает только то, что изменилось после него.
+-- Процедурам нужны права, выданные напрямую (от SYS):
+--   GRANT SELECT ON V_$TRANSACTION TO c##my_user;
+--   GRANT EXECUTE ON DBMS_FLASHBACK TO c##my_user;
+
+ALTER TABLE GROUPS ADD (MODSEQ NUMBER);
+ALTER TABLE SUBJECTS ADD (MODSEQ NUMBER);
+ALTER TABLE PEOPLE ADD (MODSEQ NUMBER);
+
+CREATE TABLE TOMBSTONES (
+    TABLE_NAME VARCHAR2(30) NOT NULL,
+    ID         NUMBER       NOT NULL,
+    MODSEQ     NUMBER       NOT NULL,
+    DELETED_AT DATE         DEFAULT SYSDATE NOT NULL
+);
+
+-- номер, до которого TOMBSTONES уже почищены: кто спрашивает с более старого номера,
+-- мог пропустить удаления и получает таблицу целиком
+CREATE TABLE CHANGE_HORIZON (MODSEQ NUMBER NOT NULL);
+INSERT INTO CHANGE_HORIZON VALUES (0);
+
+CREATE OR REPLACE TRIGGER groups_modseq
+    BEFORE INSERT OR UPDATE ON groups
+    FOR EACH ROW
+BEGIN
+    :NEW.modseq := DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER;
+END;
+
+CREATE OR REPLACE TRIGGER subjects_modseq
+    BEFORE INSERT OR UPDATE ON subjects
+    FOR EACH ROW
+BEGIN
+    :NEW.modseq := DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER;
+END;
+
+CREATE OR REPLACE TRIGGER people_modseq
+    BEFORE INSERT OR UPDATE ON people
+    FOR EACH ROW
+BEGIN
+    :NEW.modseq := DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER;
+END;
+
+CREATE OR REPLACE TRIGGER groups_tombstone
+    AFTER DELETE ON groups
+    FOR EACH ROW
+BEGIN
+    INSERT INTO TOMBSTONES (TABLE_NAME, ID, MODSEQ) VALUES ('GROUPS', :OLD.id, DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER);
+END;
+
+CREATE OR REPLACE TRIGGER subjects_tombstone
+    AFTER DELETE ON subjects
+    FOR EACH ROW
+BEGIN
+    INSERT INTO TOMBSTONES (TABLE_NAME, ID, MODSEQ) VALUES ('SUBJECTS', :OLD.id, DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER);
+END;
+
+CREATE OR REPLACE TRIGGER people_tombstone
+    AFTER DELETE ON people
+    FOR EACH ROW
+BEGIN
+    INSERT INTO TOMBSTONES (TABLE_NAME, ID, MODSEQ) VALUES ('PEOPLE', :OLD.id, DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER);
+END;
+
+-- пронумеровать уже существующие строки (триггеры срабатывают на UPDATE)
+UPDATE GROUPS SET name = name;
+UPDATE SUBJECTS SET name = name;
+UPDATE PEOPLE SET TYPE = TYPE;
+COMMIT;
+
+CREATE INDEX groups_modseq_idx ON GROUPS (MODSEQ);
+CREATE INDEX subjects_modseq_idx ON SUBJECTS (MODSEQ);
+CREATE INDEX people_modseq_idx ON PEOPLE (TYPE, MODSEQ);
+CREATE INDEX tombstones_modseq_idx ON TOMBSTONES (TABLE_NAME, MODSEQ);
+
+-- номер, до которого всё изменённое уже закоммичено: текущий SCN или SCN перед началом самой
+-- старой открытой транзакции. MODSEQ ставится при изменении, а строка видна только после COMMIT,
+-- поэтому всё незакоммиченное имеет MODSEQ больше него и придёт в следующий вызов.
+-- Пока открыта долгая транзакция, номер стоит на месте, и изменения после него читаются повторно.
+CREATE OR REPLACE FUNCTION change_watermark RETURN NUMBER
+    IS
+        scn NUMBER;
+        oldest NUMBER;
+BEGIN
+    scn := DBMS_FLASHBACK.GET_SYSTEM_CHANGE_NUMBER;
+    SELECT MIN(START_SCN) INTO oldest FROM V$TRANSACTION;
+    RETURN LEAST(scn, NVL(oldest, scn + 1) - 1);
+END;
+
+-- Общая схема get_*_changed: строки с MODSEQ > since в rows_cursor, id удалённых в
+-- deleted_cursor, номер для следующего вызова в watermark. is_full = 1, если rows_cursor
+-- содержит таблицу целиком (since = 0 или since старше CHANGE_HORIZON) и список нужно заменить.
+-- watermark берётся до открытия курсоров (change_watermark): строка, закоммиченная между ними
+-- или позже, придёт ещё раз в следующий вызов, а не потеряется. Повторы клиент заменяет по id.
+CREATE OR REPLACE PROCEDURE get_groups_changed (since NUMBER, rows_cursor OUT SYS_REFCURSOR,
+        deleted_cursor OUT SYS_REFCURSOR, watermark OUT NUMBER, is_full OUT NUMBER)
+    IS
+        horizon NUMBER;
+        from_seq NUMBER;
+BEGIN
+    watermark := change_watermark;
+    SELECT MODSEQ INTO horizon FROM CHANGE_HORIZON;
+    IF (since <= 0 OR since < horizon)
+    THEN
+        is_full := 1;
+        from_seq := 0;
+    ELSE
+        is_full := 0;
+        from_seq := since;
+    END IF;
+
+    open rows_cursor for
+        SELECT ID, name FROM GROUPS WHERE MODSEQ > from_seq;
+    open deleted_cursor for
+        SELECT ID FROM TOMBSTONES WHERE TABLE_NAME = 'GROUPS' AND MODSEQ > from_seq AND is_full = 0;
+END;
+
+CREATE OR REPLACE PROCEDURE get_subjects_changed (since NUMBER, rows_cursor OUT SYS_REFCURSOR,
+        deleted_cursor OUT SYS_REFCURSOR, watermark OUT NUMBER, is_full OUT NUMBER)
+    IS
+        horizon NUMBER;
+        from_seq NUMBER;
+BEGIN
+    watermark := change_watermark;
+    SELECT MODSEQ INTO horizon FROM CHANGE_HORIZON;
+    IF (since <= 0 OR since < horizon)
+    THEN
+        is_full := 1;
+        from_seq := 0;
+    ELSE
+        is_full := 0;
+        from_seq := since;
+    END IF;
+
+    open rows_cursor for
+        SELECT ID, name FROM SUBJECTS WHERE MODSEQ > from_seq;
+    open deleted_cursor for
+        SELECT ID FROM TOMBSTONES WHERE TABLE_NAME = 'SUBJECTS' AND MODSEQ > from_seq AND is_full = 0;
+END;
+
+CREATE OR REPLACE PROCEDURE get_teachers_changed (since NUMBER, rows_cursor OUT SYS_REFCURSOR,
+        deleted_cursor OUT SYS_REFCURSOR, watermark OUT NUMBER, is_full OUT NUMBER)
+    IS
+        horizon NUMBER;
+        from_seq NUMBER;
+BEGIN
+    watermark := change_watermark;
+    SELECT MODSEQ INTO horizon FROM CHANGE_HORIZON;
+    IF (since <= 0 OR since < horizon)
+    THEN
+        is_full := 1;
+        from_seq := 0;
+    ELSE
+        is_full := 0;
+        from_seq := since;
+    END IF;
+
+    open rows_cursor for
+        SELECT PEOPLE.ID, FIRST_NAME, LAST_NAME, FATHER_NAME FROM PEOPLE
+        WHERE TYPE = 'T' AND MODSEQ > from_seq;
+    -- TOMBSTONES не знают тип человека, лишние id студентов клиент просто не найдёт у себя
+    open deleted_cursor for
+        SELECT ID FROM TOMBSTONES WHERE TABLE_NAME = 'PEOPLE' AND MODSEQ > from_seq AND is_full = 0;
+END;
+
+-- студент меняется и при переименовании его группы: имя группы приходит из GROUPS
+CREATE OR REPLACE PROCEDURE get_students_changed (since NUMBER, rows_cursor OUT SYS_REFCURSOR,
+        deleted_cursor OUT SYS_REFCURSOR, watermark OUT NUMBER, is_full OUT NUMBER)
+    IS
+        horizon NUMBER;
+        from_seq NUMBER;
+BEGIN
+    watermark := change_watermark;
+    SELECT MODSEQ INTO horizon FROM CHANGE_HORIZON;
+    IF (since <= 0 OR since < horizon)
+    THEN
+        is_full := 1;
+        from_seq := 0;
+    ELSE
+        is_full := 0;
+        from_seq := since;
+    END IF;
+
+    open rows_cursor for
+        SELECT PEOPLE.ID, FIRST_NAME, LAST_NAME, FATHER_NAME, NAME FROM PEOPLE
+        JOIN GROUPS G on PEOPLE.GROUP_ID = G.ID
+        WHERE TYPE = 'S' AND PEOPLE.MODSEQ > from_seq
+        UNION
+        SELECT PEOPLE.ID, FIRST_NAME, LAST_NAME, FATHER_NAME, NAME FROM PEOPLE
+        JOIN GROUPS G on PEOPLE.GROUP_ID = G.ID
+        WHERE TYPE = 'S' AND G.MODSEQ > from_seq;
+    open deleted_cursor for
+        SELECT ID FROM TOMBSTONES WHERE TABLE_NAME = 'PEOPLE' AND MODSEQ > from_seq AND is_full = 0;
+END;
+
+-- удаляет записи TOMBSTONES старше keep_days дней и сдвигает CHANGE_HORIZON
+CREATE OR REPLACE PROCEDURE purge_tombstones (keep_days NUMBER)
+    IS
+        purged NUMBER;
+BEGIN
+    SELECT MAX(MODSEQ) INTO purged FROM TOMBSTONES WHERE DELETED_AT < SYSDATE - keep_days;
+    IF (purged IS NOT NULL)
+    THEN
+        DELETE FROM TOMBSTONES WHERE MODSEQ <= purged;
+        UPDATE CHANGE_HORIZON SET MODSEQ = GREATEST(MODSEQ, purged);
+    END IF;
+    COMMIT;
+END;
+
+BEGIN
+    DBMS_SCHEDULER.CREATE_JOB(
+        job_name        => 'purge_tombstones_job',
+        job_type        => 'PLSQL_BLOCK',
+        job_action      => 'BEGIN purge_tombstones(7); END;',
+        repeat_interval => 'FREQ=DAILY; BYHOUR=3',
+        enabled         => TRUE);
+END;
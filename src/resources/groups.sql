@@ -1,8 +1,33 @@
+-- год поступления группы числом - последние символы имени, начиная с 8-го (как раньше
+-- в SUBSTR(groups.name, 8)). Заполняется триггером при добавлении и переименовании группы.
+ALTER TABLE GROUPS ADD (ADMISSION_YEAR NUMBER(4));
+
+CREATE OR REPLACE TRIGGER groups_admission_year
+    BEFORE INSERT OR UPDATE OF name ON groups
+    FOR EACH ROW
+BEGIN
+    IF (REGEXP_LIKE(TRIM(SUBSTR(:NEW.name, 8)), '^[0-9]{1,4}$'))
+    THEN
+        :NEW.admission_year := TO_NUMBER(TRIM(SUBSTR(:NEW.name, 8)));
+    ELSE
+        :NEW.admission_year := NULL;
+    END IF;
+END;
+
+-- заполнить для уже существующих групп (триггер срабатывает на UPDATE OF name)
+UPDATE GROUPS SET name = name;
+COMMIT;
+
+-- диапазон лет -> группы -> студенты -> оценки, всё по индексам
+CREATE INDEX groups_admission_year_idx ON GROUPS (ADMISSION_YEAR, ID);
+CREATE INDEX people_group_id_idx ON PEOPLE (GROUP_ID);
+CREATE INDEX marks_student_id_idx ON MARKS (STUDENT_ID);
+
 CREATE OR REPLACE PROCEDURE get_groups (groups_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open groups_cursor for
-        SELECT name FROM GROUPS;
+        SELECT ID, name FROM GROUPS;
 END;
 
 CREATE OR REPLACE PROCEDURE add_groups (group_name VARCHAR2)
@@ -37,14 +62,13 @@ BEGIN
     commit;
 END;
 
-CREATE OR REPLACE PROCEDURE count_group_dependencies (group_name VARCHAR2, count_cursor OUT SYS_REFCURSOR)
+-- студенты группы и их оценки из MARK_TOTALS (mark_totals.sql), по всем годам
+CREATE OR REPLACE PROCEDURE count_group_dependencies (groupID NUMBER, count_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open count_cursor for
-        SELECT COUNT(P.ID), COUNT(M.ID) FROM GROUPS
-        JOIN PEOPLE P on GROUPS.ID = P.GROUP_ID
-        JOIN MARKS M on P.ID = M.STUDENT_ID
-        WHERE GROUPS.NAME = group_name;
+        SELECT NVL(SUM(PEOPLE_COUNT), 0), NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0) FROM MARK_TOTALS
+        WHERE KIND = 'G' AND ENTITY_ID = groupID;
 END;
 
 CREATE OR REPLACE PROCEDURE upd_groups (old_group_name VARCHAR2, new_group_name VARCHAR2)
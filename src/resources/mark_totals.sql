@@ -0,0 +1,220 @@
+-- сумма и число оценок каждого студента (S), преподавателя (T), предмета (J) и группы (G)
+-- по годам поступления групп. Поддерживается триггерами на каждом изменении оценок и студентов,
+-- так что calcPerf* читают несколько строк вместо AVG по всем оценкам, а count_*_dependencies,
+-- del_cascade и get_marks_by_group - число зависимых строк без соединения с MARKS.
+-- MARK_SUM и MARK_COUNT - по оценкам со значением, EMPTY_COUNT - оценки без значения,
+-- PEOPLE_COUNT - студенты группы (только у G). Год поступления NULL хранится как 0.
+CREATE TABLE MARK_TOTALS (
+    KIND           CHAR(1)   NOT NULL,
+    ENTITY_ID      NUMBER    NOT NULL,
+    ADMISSION_YEAR NUMBER(4) NOT NULL,
+    MARK_SUM       NUMBER    NOT NULL,
+    MARK_COUNT     NUMBER    NOT NULL,
+    EMPTY_COUNT    NUMBER    NOT NULL,
+    PEOPLE_COUNT   NUMBER    NOT NULL,
+    CONSTRAINT mark_totals_pk PRIMARY KEY (KIND, ENTITY_ID, ADMISSION_YEAR)
+);
+
+CREATE INDEX mark_totals_year_idx ON MARK_TOTALS (KIND, ADMISSION_YEAR);
+
+-- те же суммы, посчитанные заново по MARKS и PEOPLE.
+-- Оценки студента без группы идут в год 0 и не попадают в суммы групп
+CREATE OR REPLACE VIEW mark_totals_expected AS
+    SELECT 'S' KIND, m.student_id ENTITY_ID, NVL(g.admission_year, 0) ADMISSION_YEAR,
+           NVL(SUM(m.value), 0) MARK_SUM, COUNT(m.value) MARK_COUNT,
+           COUNT(*) - COUNT(m.value) EMPTY_COUNT, 0 PEOPLE_COUNT
+    FROM marks m
+        JOIN people p ON m.student_id = p.id
+        LEFT JOIN groups g ON p.group_id = g.id
+    GROUP BY m.student_id, NVL(g.admission_year, 0)
+    UNION ALL
+    SELECT 'T', m.teacher_id, NVL(g.admission_year, 0), NVL(SUM(m.value), 0), COUNT(m.value),
+           COUNT(*) - COUNT(m.value), 0
+    FROM marks m
+        JOIN people p ON m.student_id = p.id
+        LEFT JOIN groups g ON p.group_id = g.id
+    GROUP BY m.teacher_id, NVL(g.admission_year, 0)
+    UNION ALL
+    SELECT 'J', m.subject_id, NVL(g.admission_year, 0), NVL(SUM(m.value), 0), COUNT(m.value),
+           COUNT(*) - COUNT(m.value), 0
+    FROM marks m
+        JOIN people p ON m.student_id = p.id
+        LEFT JOIN groups g ON p.group_id = g.id
+    GROUP BY m.subject_id, NVL(g.admission_year, 0)
+    UNION ALL
+    SELECT 'G', p.group_id, NVL(g.admission_year, 0), NVL(SUM(m.value), 0), COUNT(m.value),
+           COUNT(m.id) - COUNT(m.value), COUNT(DISTINCT p.id)
+    FROM people p
+        LEFT JOIN groups g ON p.group_id = g.id
+        LEFT JOIN marks m ON m.student_id = p.id
+    WHERE p.type = 'S' AND p.group_id IS NOT NULL
+    GROUP BY p.group_id, NVL(g.admission_year, 0);
+
+CREATE OR REPLACE PROCEDURE mark_totals_apply (kindd CHAR, entity_idd NUMBER, yearr NUMBER,
+                                             delta_sum NUMBER, delta_count NUMBER,
+                                             delta_empty NUMBER, delta_people NUMBER)
+    IS
+BEGIN
+    MERGE INTO MARK_TOTALS t
+    USING (SELECT kindd k, entity_idd e, NVL(yearr, 0) y FROM dual) s
+    ON (t.KIND = s.k AND t.ENTITY_ID = s.e AND t.ADMISSION_YEAR = s.y)
+    WHEN MATCHED THEN
+        UPDATE SET t.MARK_SUM = t.MARK_SUM + delta_sum, t.MARK_COUNT = t.MARK_COUNT + delta_count,
+                   t.EMPTY_COUNT = t.EMPTY_COUNT + delta_empty, t.PEOPLE_COUNT = t.PEOPLE_COUNT + delta_people
+        DELETE WHERE t.MARK_COUNT = 0 AND t.EMPTY_COUNT = 0 AND t.PEOPLE_COUNT = 0
+    WHEN NOT MATCHED THEN
+        INSERT (KIND, ENTITY_ID, ADMISSION_YEAR, MARK_SUM, MARK_COUNT, EMPTY_COUNT, PEOPLE_COUNT)
+        VALUES (s.k, s.e, s.y, delta_sum, delta_count, delta_empty, delta_people);
+END;
+
+-- добавляет (sign = 1) или вычитает (sign = -1) одну оценку из всех четырёх сумм,
+-- оценка без значения идёт в EMPTY_COUNT.
+-- Группа и год передаются явно: триггеры на PEOPLE и GROUPS не могут читать свои таблицы
+CREATE OR REPLACE PROCEDURE mark_totals_apply_mark (student_idd NUMBER, subject_idd NUMBER,
+                                                  teacher_idd NUMBER, group_idd NUMBER,
+                                                  yearr NUMBER, val NUMBER, sign NUMBER)
+    IS
+        delta_sum NUMBER := sign * NVL(val, 0);
+        delta_count NUMBER := CASE WHEN val IS NULL THEN 0 ELSE sign END;
+        delta_empty NUMBER := sign - delta_count;
+BEGIN
+    mark_totals_apply('S', student_idd, yearr, delta_sum, delta_count, delta_empty, 0);
+    mark_totals_apply('T', teacher_idd, yearr, delta_sum, delta_count, delta_empty, 0);
+    mark_totals_apply('J', subject_idd, yearr, delta_sum, delta_count, delta_empty, 0);
+    IF (group_idd IS NOT NULL)
+    THEN
+        mark_totals_apply('G', group_idd, yearr, delta_sum, delta_count, delta_empty, 0);
+    END IF;
+END;
+
+-- add_marks, upd_marks, del_marks и каскадные удаления в del_students/del_groups/del_subjects
+-- (они удаляют оценки раньше студентов и групп, так что группа здесь ещё находится).
+-- MAX вместо SELECT INTO по строке: если студента или группы нет, запись оценки не отклоняется
+-- с NO_DATA_FOUND, а группа и год просто остаются NULL
+CREATE OR REPLACE TRIGGER marks_totals
+    AFTER INSERT OR UPDATE OR DELETE ON marks
+    FOR EACH ROW
+DECLARE
+    groupID NUMBER;
+    admissionYear NUMBER;
+BEGIN
+    IF (DELETING OR UPDATING)
+    THEN
+        SELECT MAX(p.group_id), MAX(g.admission_year) INTO groupID, admissionYear
+        FROM people p LEFT JOIN groups g ON p.group_id = g.id
+        WHERE p.id = :OLD.student_id;
+        mark_totals_apply_mark(:OLD.student_id, :OLD.subject_id, :OLD.teacher_id,
+                               groupID, admissionYear, :OLD.value, -1);
+    END IF;
+    IF (INSERTING OR UPDATING)
+    THEN
+        SELECT MAX(p.group_id), MAX(g.admission_year) INTO groupID, admissionYear
+        FROM people p LEFT JOIN groups g ON p.group_id = g.id
+        WHERE p.id = :NEW.student_id;
+        mark_totals_apply_mark(:NEW.student_id, :NEW.subject_id, :NEW.teacher_id,
+                               groupID, admissionYear, :NEW.value, 1);
+    END IF;
+END;
+
+-- студента добавили или удалили (его оценки к этому времени уже удалены): число студентов группы
+CREATE OR REPLACE TRIGGER people_count_totals
+    AFTER INSERT OR DELETE ON people
+    FOR EACH ROW
+    WHEN (NEW.type = 'S' OR OLD.type = 'S')
+DECLARE
+    admissionYear NUMBER;
+BEGIN
+    IF (INSERTING AND :NEW.group_id IS NOT NULL)
+    THEN
+        SELECT MAX(admission_year) INTO admissionYear FROM groups WHERE id = :NEW.group_id;
+        mark_totals_apply('G', :NEW.group_id, admissionYear, 0, 0, 0, 1);
+    ELSIF (DELETING AND :OLD.group_id IS NOT NULL)
+    THEN
+        SELECT MAX(admission_year) INTO admissionYear FROM groups WHERE id = :OLD.group_id;
+        mark_totals_apply('G', :OLD.group_id, admissionYear, 0, 0, 0, -1);
+    END IF;
+END;
+
+-- студента перевели в другую группу: он и его оценки переходят в суммы новой группы и года.
+-- DECODE сравнивает с учётом NULL, у студента группы может и не быть
+CREATE OR REPLACE TRIGGER people_group_totals
+    AFTER UPDATE OF group_id ON people
+    FOR EACH ROW
+    WHEN (NEW.type = 'S' AND DECODE(OLD.group_id, NEW.group_id, 0, 1) = 1)
+DECLARE
+    oldYear NUMBER;
+    newYear NUMBER;
+BEGIN
+    SELECT MAX(admission_year) INTO oldYear FROM groups WHERE id = :OLD.group_id;
+    SELECT MAX(admission_year) INTO newYear FROM groups WHERE id = :NEW.group_id;
+    FOR m IN (SELECT subject_id, teacher_id, value FROM marks WHERE student_id = :NEW.id)
+    LOOP
+        mark_totals_apply_mark(:NEW.id, m.subject_id, m.teacher_id, :OLD.group_id, oldYear, m.value, -1);
+        mark_totals_apply_mark(:NEW.id, m.subject_id, m.teacher_id, :NEW.group_id, newYear, m.value, 1);
+    END LOOP;
+    IF (:OLD.group_id IS NOT NULL)
+    THEN
+        mark_totals_apply('G', :OLD.group_id, oldYear, 0, 0, 0, -1);
+    END IF;
+    IF (:NEW.group_id IS NOT NULL)
+    THEN
+        mark_totals_apply('G', :NEW.group_id, newYear, 0, 0, 0, 1);
+    END IF;
+END;
+
+-- группу переименовали и у неё сменился год поступления (его ставит триггер groups_admission_year)
+CREATE OR REPLACE TRIGGER groups_year_totals
+    AFTER UPDATE OF name ON groups
+    FOR EACH ROW
+    WHEN (NVL(OLD.admission_year, 0) != NVL(NEW.admission_year, 0))
+DECLARE
+    students NUMBER;
+BEGIN
+    FOR m IN (SELECT m.student_id, m.subject_id, m.teacher_id, m.value FROM marks m
+              JOIN people p ON m.student_id = p.id
+              WHERE p.group_id = :NEW.id)
+    LOOP
+        mark_totals_apply_mark(m.student_id, m.subject_id, m.teacher_id, :NEW.id,
+                               :OLD.admission_year, m.value, -1);
+        mark_totals_apply_mark(m.student_id, m.subject_id, m.teacher_id, :NEW.id,
+                               :NEW.admission_year, m.value, 1);
+    END LOOP;
+    SELECT COUNT(*) INTO students FROM people WHERE group_id = :NEW.id AND type = 'S';
+    IF (students > 0)
+    THEN
+        mark_totals_apply('G', :NEW.id, :OLD.admission_year, 0, 0, 0, -students);
+        mark_totals_apply('G', :NEW.id, :NEW.admission_year, 0, 0, 0, students);
+    END IF;
+END;
+
+-- пересчитать все суммы с нуля, если они разошлись с MARKS и PEOPLE
+CREATE OR REPLACE PROCEDURE rebuild_mark_totals
+    IS
+BEGIN
+    DELETE FROM MARK_TOTALS;
+    INSERT INTO MARK_TOTALS (KIND, ENTITY_ID, ADMISSION_YEAR, MARK_SUM, MARK_COUNT, EMPTY_COUNT, PEOPLE_COUNT)
+        SELECT KIND, ENTITY_ID, ADMISSION_YEAR, MARK_SUM, MARK_COUNT, EMPTY_COUNT, PEOPLE_COUNT
+        FROM mark_totals_expected;
+    COMMIT;
+END;
+
+-- строки, где хранимые суммы не совпадают с посчитанными заново
+CREATE OR REPLACE PROCEDURE verify_mark_totals (drift_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open drift_cursor for
+        SELECT NVL(e.KIND, t.KIND), NVL(e.ENTITY_ID, t.ENTITY_ID), NVL(e.ADMISSION_YEAR, t.ADMISSION_YEAR),
+               t.MARK_SUM, t.MARK_COUNT, t.EMPTY_COUNT, t.PEOPLE_COUNT,
+               e.MARK_SUM, e.MARK_COUNT, e.EMPTY_COUNT, e.PEOPLE_COUNT
+        FROM mark_totals_expected e
+        FULL OUTER JOIN MARK_TOTALS t
+            ON t.KIND = e.KIND AND t.ENTITY_ID = e.ENTITY_ID AND t.ADMISSION_YEAR = e.ADMISSION_YEAR
+        WHERE t.KIND IS NULL OR e.KIND IS NULL
+           OR t.MARK_SUM != e.MARK_SUM OR t.MARK_COUNT != e.MARK_COUNT
+           OR t.EMPTY_COUNT != e.EMPTY_COUNT OR t.PEOPLE_COUNT != e.PEOPLE_COUNT;
+END;
+
+-- первоначальное заполнение
+BEGIN
+    rebuild_mark_totals;
+END;
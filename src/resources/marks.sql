@@ -9,6 +9,58 @@ BEGIN
         WHERE P.ID = student_idd;
 END;
 
+CREATE OR REPLACE PROCEDURE get_marks_page (student_idd NUMBER, after_id NUMBER, page_size NUMBER,
+                                          marks_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open marks_cursor for
+        SELECT M.ID, S.NAME, P2.FIRST_NAME, P2.LAST_NAME, VALUE FROM MARKS M
+        JOIN PEOPLE P2 on P2.ID = M.TEACHER_ID
+        JOIN SUBJECTS S on M.SUBJECT_ID = S.ID
+        WHERE M.STUDENT_ID = student_idd AND M.ID > after_id
+        ORDER BY M.ID
+        FETCH FIRST page_size ROWS ONLY;
+END;
+
+CREATE OR REPLACE PROCEDURE get_marks_page_keys (student_idd NUMBER, page_size NUMBER, total OUT NUMBER,
+                                               keys_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    SELECT COUNT(M.ID) INTO total FROM MARKS M
+    JOIN PEOPLE P2 on P2.ID = M.TEACHER_ID
+    JOIN SUBJECTS S on M.SUBJECT_ID = S.ID
+    WHERE M.STUDENT_ID = student_idd;
+
+    open keys_cursor for
+        SELECT ID FROM (
+            SELECT M.ID, ROW_NUMBER() OVER (ORDER BY M.ID) rn FROM MARKS M
+            JOIN PEOPLE P2 on P2.ID = M.TEACHER_ID
+            JOIN SUBJECTS S on M.SUBJECT_ID = S.ID
+            WHERE M.STUDENT_ID = student_idd
+        )
+        WHERE MOD(rn, page_size) = 0
+        ORDER BY ID;
+END;
+
+-- оценки всех студентов группы одним курсором, по студенту и по ID оценки. Студент без оценок
+-- приходит одной строкой с пустым ID оценки. total - число оценок группы из MARK_TOTALS
+-- (mark_totals.sql); если их больше max_rows, курсор пустой.
+CREATE OR REPLACE PROCEDURE get_marks_by_group (group_idd NUMBER, max_rows NUMBER, total OUT NUMBER,
+                                              marks_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    SELECT NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0) INTO total FROM MARK_TOTALS
+    WHERE KIND = 'G' AND ENTITY_ID = group_idd;
+
+    open marks_cursor for
+        SELECT P.ID, M.ID, S.NAME, P2.FIRST_NAME, P2.LAST_NAME, M.VALUE FROM PEOPLE P
+        LEFT JOIN (MARKS M
+            JOIN PEOPLE P2 on P2.ID = M.TEACHER_ID
+            JOIN SUBJECTS S on M.SUBJECT_ID = S.ID) on M.STUDENT_ID = P.ID
+        WHERE P.GROUP_ID = group_idd AND P.TYPE = 'S' AND total <= max_rows
+        ORDER BY P.ID, M.ID;
+END;
+
 CREATE OR REPLACE PROCEDURE add_marks (student_idd NUMBER, subject_name VARCHAR2,
                                     teacher_idd NUMBER, val NUMBER)
     IS
@@ -19,6 +71,16 @@ BEGIN
         (student_idd, (SELECT ID FROM SUBJECTS WHERE name = subject_name), teacher_idd, val);
 END;
 
+CREATE OR REPLACE PROCEDURE add_marks_by_id (student_idd NUMBER, subject_idd NUMBER,
+                                          teacher_idd NUMBER, val NUMBER)
+    IS
+BEGIN
+    INSERT INTO MARKS
+        (STUDENT_ID, SUBJECT_ID, TEACHER_ID, VALUE)
+    VALUES
+        (student_idd, subject_idd, teacher_idd, val);
+END;
+
 CREATE OR REPLACE PROCEDURE del_marks (mark_id NUMBER)
     IS
 BEGIN
@@ -7,12 +7,44 @@ BEGIN
         WHERE TYPE = 'S';
 END;
 
+-- страница из page_size студентов с id больше after_id
+CREATE OR REPLACE PROCEDURE get_students_page (after_id NUMBER, page_size NUMBER,
+                                             students_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    open students_cursor for
+        SELECT PEOPLE.ID, FIRST_NAME, LAST_NAME, FATHER_NAME, NAME FROM PEOPLE
+        JOIN GROUPS G on PEOPLE.GROUP_ID = G.ID
+        WHERE TYPE = 'S' AND PEOPLE.ID > after_id
+        ORDER BY PEOPLE.ID
+        FETCH FIRST page_size ROWS ONLY;
+END;
+
+-- число студентов и id последнего студента каждой полной страницы,
+-- чтобы любую страницу можно было запросить сразу, без OFFSET
+CREATE OR REPLACE PROCEDURE get_students_page_keys (page_size NUMBER, total OUT NUMBER,
+                                                  keys_cursor OUT SYS_REFCURSOR)
+    IS
+BEGIN
+    SELECT COUNT(PEOPLE.ID) INTO total FROM PEOPLE
+    JOIN GROUPS G on PEOPLE.GROUP_ID = G.ID
+    WHERE TYPE = 'S';
+
+    open keys_cursor for
+        SELECT ID FROM (
+            SELECT PEOPLE.ID, ROW_NUMBER() OVER (ORDER BY PEOPLE.ID) rn FROM PEOPLE
+            JOIN GROUPS G on PEOPLE.GROUP_ID = G.ID
+            WHERE TYPE = 'S'
+        )
+        WHERE MOD(rn, page_size) = 0
+        ORDER BY ID;
+END;
+
 CREATE OR REPLACE PROCEDURE add_students (first_namee VARCHAR2, last_namee VARCHAR2,
                                         father_namee VARCHAR2, group_name VARCHAR2)
     IS
         groupIdCount NUMBER;
 BEGIN
-    COMMIT;
     SELECT COUNT(ID) INTO groupIdCount FROM GROUPS WHERE name = group_name;
 
     IF (groupIdCount != 0)
@@ -21,12 +53,23 @@ BEGIN
             (FIRST_NAME, LAST_NAME, FATHER_NAME, GROUP_ID, TYPE)
         VALUES
             (first_namee, last_namee, father_namee, (SELECT id FROM GROUPS WHERE name = group_name), 'S');
-        COMMIT;
-    ELSE
-        ROLLBACK;
     END IF;
 END;
 
+-- то же, что add_students, но группа передаётся по id: без поиска по имени и проверки COUNT,
+-- несуществующую группу отклонит внешний ключ.
+-- Как и add_students, не делает COMMIT: одиночный вызов фиксирует autocommit драйвера,
+-- а при массовой вставке транзакцией и точками сохранения управляет DAO
+CREATE OR REPLACE PROCEDURE add_students_by_id (first_namee VARCHAR2, last_namee VARCHAR2,
+                                              father_namee VARCHAR2, group_idd NUMBER)
+    IS
+BEGIN
+    INSERT INTO PEOPLE
+        (FIRST_NAME, LAST_NAME, FATHER_NAME, GROUP_ID, TYPE)
+    VALUES
+        (first_namee, last_namee, father_namee, group_idd, 'S');
+END;
+
 CREATE OR REPLACE PROCEDURE del_students (studentID NUMBER)
     IS
 BEGIN
@@ -40,9 +83,8 @@ CREATE OR REPLACE PROCEDURE count_stud_dependencies (studentID NUMBER, count_cur
     IS
 BEGIN
     open count_cursor for
-        SELECT COUNT(M.ID) FROM PEOPLE
-        JOIN MARKS M on PEOPLE.ID = M.STUDENT_ID
-        WHERE PEOPLE.ID = studentID;
+        SELECT NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0) FROM MARK_TOTALS
+        WHERE KIND = 'S' AND ENTITY_ID = studentID;
 END;
 
 CREATE OR REPLACE PROCEDURE upd_students (student_id NUMBER, first_namee VARCHAR2, last_namee VARCHAR2,
@@ -56,4 +98,17 @@ BEGIN
                       GROUP_ID = (SELECT id FROM GROUPS WHERE name = group_name)
     WHERE ID = student_id;
     commit;
+END;
+
+CREATE OR REPLACE PROCEDURE upd_students_by_id (student_id NUMBER, first_namee VARCHAR2, last_namee VARCHAR2,
+                                              father_namee VARCHAR2, group_idd NUMBER)
+    IS
+BEGIN
+    UPDATE PEOPLE SET
+                      FIRST_NAME = first_namee,
+                      LAST_NAME = last_namee,
+                      FATHER_NAME = father_namee,
+                      GROUP_ID = group_idd
+    WHERE ID = student_id;
+    commit;
 END;
\ No newline at end of file
@@ -2,7 +2,7 @@ CREATE OR REPLACE PROCEDURE get_subjects (subjects_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open subjects_cursor for
-        SELECT name FROM SUBJECTS;
+        SELECT ID, name FROM SUBJECTS;
 END;
 
 CREATE OR REPLACE PROCEDURE add_subjects (subject_name VARCHAR2)
@@ -33,13 +33,12 @@ BEGIN
     commit;
 END;
 
-CREATE OR REPLACE PROCEDURE count_subj_dependencies (subject_name VARCHAR2, count_cursor OUT SYS_REFCURSOR)
+CREATE OR REPLACE PROCEDURE count_subj_dependencies (subjectID NUMBER, count_cursor OUT SYS_REFCURSOR)
     IS
 BEGIN
     open count_cursor for
-        SELECT COUNT(M.ID) FROM SUBJECTS
-        JOIN MARKS M on SUBJECTS.ID = M.SUBJECT_ID
-        WHERE SUBJECTS.NAME = subject_name;
+        SELECT NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0) FROM MARK_TOTALS
+        WHERE KIND = 'J' AND ENTITY_ID = subjectID;
 END;
 
 CREATE OR REPLACE PROCEDURE upd_subjects (old_subject_name VARCHAR2, new_subject_name VARCHAR2)
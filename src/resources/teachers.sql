@@ -29,9 +29,8 @@ CREATE OR REPLACE PROCEDURE count_teach_dependencies (teacherID NUMBER, count_cu
     IS
 BEGIN
     open count_cursor for
-        SELECT COUNT(M.ID) FROM PEOPLE
-        JOIN MARKS M on PEOPLE.ID = M.TEACHER_ID
-        WHERE PEOPLE.ID = teacherID;
+        SELECT NVL(SUM(MARK_COUNT + EMPTY_COUNT), 0) FROM MARK_TOTALS
+        WHERE KIND = 'T' AND ENTITY_ID = teacherID;
 END;
 
 CREATE OR REPLACE PROCEDURE upd_teachers (teacher_id NUMBER, first_namee VARCHAR2,
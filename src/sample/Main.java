@@ -5,15 +5,26 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+import sample.controller.Controller;
+import sample.database.DBConnection;
+import sample.service.async.DbExecutor;
 
 public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) throws Exception {
+        // the db is opened and the main window's lists are read while the password is typed
+        DbExecutor.get().execute(Controller::prefetch);
         Parent authRoot = FXMLLoader.load(getClass().getResource("gui/auth.fxml"));
         primaryStage.setTitle("Деканат");
         primaryStage.setScene(new Scene(authRoot, 600, 400));
         primaryStage.show();
+        Startup.loginFormShown();
+    }
+
+    @Override
+    public void stop() {
+        DBConnection.close();
     }
 
 
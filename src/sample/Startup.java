@@ -0,0 +1,34 @@
+package sample;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Startup timings for the console: launch -> login form, login -> main window with its lists loaded
+public final class Startup {
+    private static final AtomicBoolean reported = new AtomicBoolean();
+    private static volatile long loggedInAt;
+
+    public static void loginFormShown() {
+        System.out.println("Startup: login form shown " + sinceLaunch() + " ms after launch");
+    }
+
+    public static void loggedIn() {
+        loggedInAt = System.currentTimeMillis();
+    }
+
+    // only the first main window is reported
+    public static void mainWindowReady() {
+        if (loggedInAt == 0 || !reported.compareAndSet(false, true))
+            return;
+        System.out.println("Startup: main window ready " + (System.currentTimeMillis() - loggedInAt)
+                + " ms after login, " + sinceLaunch() + " ms after launch");
+    }
+
+    private static long sinceLaunch() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    private Startup() {
+
+    }
+}
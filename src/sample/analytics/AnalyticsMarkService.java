@@ -0,0 +1,79 @@
+package sample.analytics;
+
+import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.PageIndex;
+import sample.entity.Group;
+import sample.entity.Mark;
+import sample.entity.Student;
+import sample.service.MarkService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// MarkService that passes every mark write on to the in-memory engine
+public class AnalyticsMarkService implements MarkService {
+    private final MarkService delegate;
+    private final MarksEngine engine;
+
+    public AnalyticsMarkService(MarkService delegate, MarksEngine engine) {
+        this.delegate = delegate;
+        this.engine = engine;
+    }
+
+    @Override
+    public ObservableList<Mark> findAllByStudent(Student student) {
+        return delegate.findAllByStudent(student);
+    }
+
+    @Override
+    public List<Mark> findPageByStudent(Student student, Integer afterId, int limit) {
+        return delegate.findPageByStudent(student, afterId, limit);
+    }
+
+    @Override
+    public PageIndex findPageIndexByStudent(Student student, int pageSize) {
+        return delegate.findPageIndexByStudent(student, pageSize);
+    }
+
+    @Override
+    public Map<Integer, List<Mark>> findAllByGroup(Group group, int maxMarks) {
+        return delegate.findAllByGroup(group, maxMarks);
+    }
+
+    // the new ids are only known to the db, the engine pulls everything after its last id
+    @Override
+    public void add(Mark mark) {
+        delegate.add(mark);
+        engine.refresh();
+    }
+
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks) {
+        BatchResult<Mark> result = delegate.addAll(marks);
+        engine.refresh();
+        return result;
+    }
+
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks, int chunkSize) {
+        BatchResult<Mark> result = delegate.addAll(marks, chunkSize);
+        engine.refresh();
+        return result;
+    }
+
+    @Override
+    public void delete(Mark mark) {
+        delegate.delete(mark);
+        engine.delete(mark.getId());
+    }
+
+    @Override
+    public boolean update(Mark _old, Mark _new) {
+        if (!delegate.update(_old, _new))
+            return false;
+        engine.updateValue(_old.getId(), _new.getValue());
+        return true;
+    }
+}
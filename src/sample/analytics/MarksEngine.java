@@ -0,0 +1,595 @@
+package sample.analytics;
+
+import sample.database.dao.MarkFactDao;
+import sample.entity.AverageMark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// All marks held in memory as parallel primitive columns (student, subject, teacher and group
+// dictionary-encoded to dense codes, admission year, value). Grouped averages, drill-downs and
+// cross-tabs are fork/join scans over the columns, no db round trips.
+// Loaded once by load(), then kept current by refresh() for new marks and updateValue/delete/
+// deleteBy for changes. New marks are found by id > last seen id, so ids must grow.
+public final class MarksEngine {
+    // more keys than this would make every scan chunk allocate a huge accumulator,
+    // such scans sum into hash maps of the keys that actually have marks instead
+    private static final int MAX_KEYS = 1 << 18;
+    private static final int MIN_CHUNK = 1 << 15;
+    private static final byte DELETED = 0;
+
+    private final MarkFactDao dao;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<AverageMark.Scope, Dictionary> dictionaries = new EnumMap<>(AverageMark.Scope.class);
+
+    private int[] ids = new int[0];
+    private int[] students = new int[0];
+    private int[] subjects = new int[0];
+    private int[] teachers = new int[0];
+    private int[] groups = new int[0];
+    private short[] years = new short[0];
+    private byte[] values = new byte[0];
+    private int size;
+    private int deleted;
+    private int lastId;
+    private boolean loaded;
+
+    public MarksEngine(MarkFactDao dao) {
+        this.dao = dao;
+        for (AverageMark.Scope scope : AverageMark.Scope.values()) {
+            dictionaries.put(scope, new Dictionary());
+        }
+    }
+
+    public boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // number of live marks
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // (re)reads every mark, false if the db could not be read
+    public boolean load() {
+        Map<AverageMark.Scope, Map<Integer, String>> names = loadNames();
+        FactBuffer facts = new FactBuffer();
+        if (names == null || !dao.forEachFact(0, facts))
+            return false;
+
+        lock.writeLock().lock();
+        try {
+            for (AverageMark.Scope scope : AverageMark.Scope.values()) {
+                dictionaries.put(scope, new Dictionary());
+                dictionaries.get(scope).names.putAll(names.get(scope));
+            }
+            size = 0;
+            deleted = 0;
+            lastId = 0;
+            ensureCapacity(facts.size);
+            facts.appendTo(this);
+            loaded = true;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // pulls in marks added since the last load/refresh
+    public boolean refresh() {
+        int after;
+        lock.readLock().lock();
+        try {
+            if (!loaded)
+                return false;
+            after = lastId;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        FactBuffer facts = new FactBuffer();
+        if (!dao.forEachFact(after, facts))
+            return false;
+        if (facts.size == 0)
+            return true;
+        // marks of a student or subject added after the load need their names
+        Map<AverageMark.Scope, Map<Integer, String>> names = hasUnknownNames(facts) ? loadNames() : null;
+
+        lock.writeLock().lock();
+        try {
+            if (names != null) {
+                names.forEach((scope, byId) -> dictionaries.get(scope).names.putAll(byId));
+            }
+            ensureCapacity(size + facts.size);
+            facts.appendTo(this);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateValue(int markId, int value) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, markId);
+            if (row >= 0 && values[row] != DELETED)
+                values[row] = (byte) value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(int markId) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, markId);
+            if (row >= 0 && values[row] != DELETED) {
+                values[row] = DELETED;
+                deleted++;
+                compactIfSparse();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // drops every mark of a deleted student, teacher, group or subject
+    public void deleteBy(AverageMark.Scope scope, int id) {
+        lock.writeLock().lock();
+        try {
+            Integer code = dictionaries.get(scope).codes.get(id);
+            if (code == null)
+                return;
+            int[] column = column(scope);
+            for (int i = 0; i < size; i++) {
+                if (column[i] == code && values[i] != DELETED) {
+                    values[i] = DELETED;
+                    deleted++;
+                }
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // average and count of marks per entity of `by` in the admission years, limited to the
+    // entities fixed in filter, e.g. SUBJECTS with {GROUPS: 5} are the subjects of group 5
+    public List<AverageMark> averages(AverageMark.Scope by, int startYear, int endYear,
+                                      Map<AverageMark.Scope, Integer> filter) {
+        lock.readLock().lock();
+        try {
+            Dictionary dict = dictionaries.get(by);
+            Columns columns = columns(column(by), null, 1, startYear, endYear, filter);
+            if (columns == null)
+                return Collections.emptyList();
+            if (dict.size() > MAX_KEYS)
+                return collect(dict, sparseScan(columns));
+            return collect(dict, scan(columns, dict.size()), 0, dict.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // averages for every (rows, columns) pair, e.g. GROUPS x SUBJECTS, keyed by the row entity
+    public Map<AverageMark, List<AverageMark>> crossTab(AverageMark.Scope rows, AverageMark.Scope columns,
+                                                        int startYear, int endYear,
+                                                        Map<AverageMark.Scope, Integer> filter) {
+        lock.readLock().lock();
+        try {
+            Dictionary rowDict = dictionaries.get(rows);
+            Dictionary columnDict = dictionaries.get(columns);
+            int width = columnDict.size();
+            Map<AverageMark, List<AverageMark>> res = new LinkedHashMap<>();
+            Columns c = columns(column(rows), column(columns), width, startYear, endYear, filter);
+            if (c == null)
+                return res;
+
+            if ((long) rowDict.size() * width > MAX_KEYS) {
+                // row code -> column code -> sum and count, rows and cells in code order
+                Map<Integer, Map<Long, long[]>> byRow = new TreeMap<>();
+                sparseScan(c).forEach((key, sum) -> byRow
+                        .computeIfAbsent((int) (key / width), k -> new TreeMap<>())
+                        .put(key % width, sum));
+                byRow.forEach((code, cells) -> {
+                    long[] total = new long[2];
+                    cells.values().forEach(sum -> {
+                        total[0] += sum[0];
+                        total[1] += sum[1];
+                    });
+                    res.put(average(rowDict, code, total), collect(columnDict, cells));
+                });
+                return res;
+            }
+
+            long[] acc = scan(c, rowDict.size() * width);
+            for (AverageMark row : collect(rowDict, rowTotals(acc, rowDict.size(), width), 0, rowDict.size())) {
+                int code = rowDict.codes.get(row.getId());
+                res.put(row, collect(columnDict, acc, code * width, width));
+            }
+            return res;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // what a scan over keyA (x keyB) reads, null if a filtered entity has no marks
+    private Columns columns(int[] keyA, int[] keyB, int sizeB, int startYear, int endYear,
+                            Map<AverageMark.Scope, Integer> filter) {
+        int filters = filter == null ? 0 : filter.size();
+        int[][] filterColumns = new int[filters][];
+        int[] filterCodes = new int[filters];
+        int f = 0;
+        if (filter != null) {
+            for (Map.Entry<AverageMark.Scope, Integer> entry : filter.entrySet()) {
+                Integer code = dictionaries.get(entry.getKey()).codes.get(entry.getValue());
+                if (code == null)
+                    return null;
+                filterColumns[f] = column(entry.getKey());
+                filterCodes[f++] = code;
+            }
+        }
+        return new Columns(keyA, keyB, sizeB, years, values, filterColumns, filterCodes, startYear, endYear);
+    }
+
+    private long[] scan(Columns columns, int keys) {
+        return ForkJoinPool.commonPool().invoke(new Scan(columns, keys, 0, size, chunkSize()));
+    }
+
+    private Map<Long, long[]> sparseScan(Columns columns) {
+        return ForkJoinPool.commonPool().invoke(new SparseScan(columns, 0, size, chunkSize()));
+    }
+
+    private int chunkSize() {
+        return Math.max(MIN_CHUNK, size / (ForkJoinPool.getCommonPoolParallelism() * 4 + 1));
+    }
+
+    private static long[] rowTotals(long[] acc, int rows, int width) {
+        long[] totals = new long[rows * 2];
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < width; c++) {
+                totals[r * 2] += acc[(r * width + c) * 2];
+                totals[r * 2 + 1] += acc[(r * width + c) * 2 + 1];
+            }
+        }
+        return totals;
+    }
+
+    private static List<AverageMark> collect(Dictionary dict, Map<Long, long[]> acc) {
+        List<AverageMark> res = new ArrayList<>();
+        new TreeMap<>(acc).forEach((code, sum) -> res.add(average(dict, code.intValue(), sum)));
+        return res;
+    }
+
+    private static AverageMark average(Dictionary dict, int code, long[] sum) {
+        return new AverageMark(dict.ids[code], dict.nameOf(code), (double) sum[0] / sum[1], (int) sum[1]);
+    }
+
+    private static List<AverageMark> collect(Dictionary dict, long[] acc, int from, int count) {
+        List<AverageMark> res = new ArrayList<>();
+        for (int code = 0; code < count; code++) {
+            long sum = acc[(from + code) * 2];
+            long marks = acc[(from + code) * 2 + 1];
+            if (marks > 0)
+                res.add(new AverageMark(dict.ids[code], dict.nameOf(code), (double) sum / marks, (int) marks));
+        }
+        return res;
+    }
+
+    private int[] column(AverageMark.Scope scope) {
+        switch (scope) {
+            case STUDENTS:
+                return students;
+            case TEACHERS:
+                return teachers;
+            case GROUPS:
+                return groups;
+            default:
+                return subjects;
+        }
+    }
+
+    private void append(int id, int studentId, int subjectId, int teacherId, int groupId, int year, int value) {
+        if (id <= lastId)
+            return;
+        ids[size] = id;
+        students[size] = dictionaries.get(AverageMark.Scope.STUDENTS).encode(studentId);
+        subjects[size] = dictionaries.get(AverageMark.Scope.SUBJECTS).encode(subjectId);
+        teachers[size] = dictionaries.get(AverageMark.Scope.TEACHERS).encode(teacherId);
+        groups[size] = dictionaries.get(AverageMark.Scope.GROUPS).encode(groupId);
+        years[size] = (short) year;
+        values[size] = (byte) value;
+        if (value == DELETED)
+            deleted++;
+        size++;
+        lastId = id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length)
+            return;
+        int length = Math.max(capacity, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, length);
+        students = Arrays.copyOf(students, length);
+        subjects = Arrays.copyOf(subjects, length);
+        teachers = Arrays.copyOf(teachers, length);
+        groups = Arrays.copyOf(groups, length);
+        years = Arrays.copyOf(years, length);
+        values = Arrays.copyOf(values, length);
+    }
+
+    // deleted rows are only marked, they are squeezed out once they are half of the columns
+    private void compactIfSparse() {
+        if (deleted * 2 < size)
+            return;
+        int live = 0;
+        for (int i = 0; i < size; i++) {
+            if (values[i] == DELETED)
+                continue;
+            ids[live] = ids[i];
+            students[live] = students[i];
+            subjects[live] = subjects[i];
+            teachers[live] = teachers[i];
+            groups[live] = groups[i];
+            years[live] = years[i];
+            values[live] = values[i];
+            live++;
+        }
+        size = live;
+        deleted = 0;
+    }
+
+    private boolean hasUnknownNames(FactBuffer facts) {
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < facts.size; i++) {
+                int at = i * FactBuffer.WIDTH;
+                if (!dictionaries.get(AverageMark.Scope.STUDENTS).names.containsKey(facts.data[at + 1])
+                        || !dictionaries.get(AverageMark.Scope.SUBJECTS).names.containsKey(facts.data[at + 2])
+                        || !dictionaries.get(AverageMark.Scope.TEACHERS).names.containsKey(facts.data[at + 3])
+                        || !dictionaries.get(AverageMark.Scope.GROUPS).names.containsKey(facts.data[at + 4]))
+                    return true;
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<AverageMark.Scope, Map<Integer, String>> loadNames() {
+        Map<AverageMark.Scope, Map<Integer, String>> names = new EnumMap<>(AverageMark.Scope.class);
+        for (AverageMark.Scope scope : AverageMark.Scope.values()) {
+            names.put(scope, new HashMap<>());
+        }
+        boolean ok = dao.forEachName((kind, id, name) -> {
+            switch (kind) {
+                case 'S':
+                    names.get(AverageMark.Scope.STUDENTS).put(id, name);
+                    break;
+                case 'T':
+                    names.get(AverageMark.Scope.TEACHERS).put(id, name);
+                    break;
+                case 'G':
+                    names.get(AverageMark.Scope.GROUPS).put(id, name);
+                    break;
+                default:
+                    names.get(AverageMark.Scope.SUBJECTS).put(id, name);
+                    break;
+            }
+        });
+        return ok ? names : null;
+    }
+
+    // entity id <-> dense code, plus display names by id
+    private static final class Dictionary {
+        private final Map<Integer, Integer> codes = new HashMap<>();
+        private final Map<Integer, String> names = new HashMap<>();
+        private int[] ids = new int[64];
+
+        int encode(int id) {
+            Integer code = codes.get(id);
+            if (code == null) {
+                code = codes.size();
+                if (code == ids.length)
+                    ids = Arrays.copyOf(ids, code * 2);
+                ids[code] = id;
+                codes.put(id, code);
+            }
+            return code;
+        }
+
+        int size() {
+            return codes.size();
+        }
+
+        String nameOf(int code) {
+            return names.getOrDefault(ids[code], "#" + ids[code]);
+        }
+    }
+
+    // rows read from the db before they are appended under the write lock
+    private static final class FactBuffer implements MarkFactDao.FactSink {
+        static final int WIDTH = 7;
+        int[] data = new int[WIDTH * 1024];
+        int size;
+
+        @Override
+        public void accept(int id, int studentId, int subjectId, int teacherId, int groupId, int year, int value) {
+            if ((size + 1) * WIDTH > data.length)
+                data = Arrays.copyOf(data, data.length * 2);
+            int at = size * WIDTH;
+            data[at] = id;
+            data[at + 1] = studentId;
+            data[at + 2] = subjectId;
+            data[at + 3] = teacherId;
+            data[at + 4] = groupId;
+            data[at + 5] = year;
+            data[at + 6] = value;
+            size++;
+        }
+
+        void appendTo(MarksEngine engine) {
+            for (int i = 0; i < size; i++) {
+                int at = i * WIDTH;
+                engine.append(data[at], data[at + 1], data[at + 2], data[at + 3], data[at + 4],
+                        data[at + 5], data[at + 6]);
+            }
+        }
+    }
+
+    // what a scan reads, captured under the read lock
+    private static final class Columns {
+        final int[] keyA;
+        final int[] keyB;
+        final int sizeB;
+        final short[] years;
+        final byte[] values;
+        final int[][] filterColumns;
+        final int[] filterCodes;
+        final int startYear;
+        final int endYear;
+
+        Columns(int[] keyA, int[] keyB, int sizeB, short[] years, byte[] values, int[][] filterColumns,
+                int[] filterCodes, int startYear, int endYear) {
+            this.keyA = keyA;
+            this.keyB = keyB;
+            this.sizeB = sizeB;
+            this.years = years;
+            this.values = values;
+            this.filterColumns = filterColumns;
+            this.filterCodes = filterCodes;
+            this.startYear = startYear;
+            this.endYear = endYear;
+        }
+
+        boolean matches(int i) {
+            byte value = values[i];
+            short year = years[i];
+            if (value == DELETED || year < startYear || year > endYear)
+                return false;
+            for (int f = 0; f < filterCodes.length; f++) {
+                if (filterColumns[f][i] != filterCodes[f])
+                    return false;
+            }
+            return true;
+        }
+
+        long key(int i) {
+            return keyB == null ? keyA[i] : (long) keyA[i] * sizeB + keyB[i];
+        }
+    }
+
+    // sum and count per key as acc[key * 2], acc[key * 2 + 1]
+    @SuppressWarnings("serial")
+    private static final class Scan extends RecursiveTask<long[]> {
+        private final Columns c;
+        private final int keys;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        Scan(Columns c, int keys, int from, int to, int chunk) {
+            this.c = c;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                Scan left = new Scan(c, keys, from, middle, chunk);
+                left.fork();
+                long[] right = new Scan(c, keys, middle, to, chunk).compute();
+                long[] acc = left.join();
+                for (int i = 0; i < acc.length; i++) {
+                    acc[i] += right[i];
+                }
+                return acc;
+            }
+
+            long[] acc = new long[keys * 2];
+            for (int i = from; i < to; i++) {
+                if (!c.matches(i))
+                    continue;
+                int key = (int) c.key(i);
+                acc[key * 2] += c.values[i];
+                acc[key * 2 + 1]++;
+            }
+            return acc;
+        }
+    }
+
+    // the same as a map of key -> {sum, count}, for key spaces too large for an array
+    @SuppressWarnings("serial")
+    private static final class SparseScan extends RecursiveTask<Map<Long, long[]>> {
+        private final Columns c;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        SparseScan(Columns c, int from, int to, int chunk) {
+            this.c = c;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Map<Long, long[]> compute() {
+            if (to - from > chunk) {
+                int middle = (from + to) >>> 1;
+                SparseScan left = new SparseScan(c, from, middle, chunk);
+                left.fork();
+                Map<Long, long[]> right = new SparseScan(c, middle, to, chunk).compute();
+                Map<Long, long[]> acc = left.join();
+                if (acc.size() < right.size()) {
+                    Map<Long, long[]> smaller = acc;
+                    acc = right;
+                    right = smaller;
+                }
+                for (Map.Entry<Long, long[]> entry : right.entrySet()) {
+                    long[] sum = entry.getValue();
+                    acc.merge(entry.getKey(), sum, (a, b) -> {
+                        a[0] += b[0];
+                        a[1] += b[1];
+                        return a;
+                    });
+                }
+                return acc;
+            }
+
+            Map<Long, long[]> acc = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                if (!c.matches(i))
+                    continue;
+                long[] sum = acc.computeIfAbsent(c.key(i), k -> new long[2]);
+                sum[0] += c.values[i];
+                sum[1]++;
+            }
+            return acc;
+        }
+    }
+}
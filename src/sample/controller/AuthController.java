@@ -1,30 +1,59 @@
 package sample.controller;
 
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.PasswordField;
 import javafx.scene.control.TextField;
 import sample.Second;
+import sample.Startup;
 import sample.database.dao.*;
 import sample.service.UserService;
+import sample.service.async.AsyncService;
+import sample.service.async.DbExecutor;
+import sample.service.async.InFlight;
 import sample.service.impl.*;
 
 import java.sql.*;
 
+import static sample.service.async.DbExecutor.FX;
+
 public class AuthController {
-    private static UserService userService;
+    // Opens the db at the first check, i.e. on a db thread at the first login, so the form never
+    // waits for the db to come up. A failed open is tried again by the next check.
+    private static final class LazyUserService implements UserService {
+        private UserService service;
+
+        @Override
+        public boolean userExists(String login, String password) {
+            UserService opened = open();
+            return opened != null && opened.userExists(login, password);
+        }
 
-    static {
-        try {
-            userService = new UserServiceImpl(new UserDao());
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
+        private synchronized UserService open() {
+            if (service == null) {
+                try {
+                    service = new UserServiceImpl(new UserDao());
+                } catch (SQLException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+            return service;
         }
     }
 
+    private static final UserService userService = new LazyUserService();
+
+    // the login check only, the main window tracks its own requests
+    private final InFlight inFlight = new InFlight();
+    private final AsyncService<UserService> usersAsync =
+            new AsyncService<>(userService, DbExecutor.get(), inFlight);
+
     @FXML
     private void initialize() {
         label.setText("");
+        loginBut.disableProperty().bind(inFlight.countProperty().greaterThan(0));
+        cancelBut.visibleProperty().bind(inFlight.countProperty().greaterThan(0));
     }
 
     @FXML
@@ -36,16 +65,35 @@ public class AuthController {
     @FXML
     private Label label;
 
+    @FXML
+    private Button loginBut;
+
+    @FXML
+    private Button cancelBut;
+
     public void openMainForm() {
-        if (userService.userExists(login.getText(), password.getText())) {
-            Second second = new Second();
-            try {
-                second.showWindow();
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
+        String userLogin = login.getText();
+        String userPassword = password.getText();
+        label.setText("Проверка...");
+        usersAsync.supply(s -> s.userExists(userLogin, userPassword)).thenAcceptAsync(exists -> {
+            if (exists) {
+                label.setText("");
+                Startup.loggedIn();
+                Second second = new Second();
+                try {
+                    second.showWindow();
+                } catch (Exception e) {
+                    System.out.println(e.getMessage());
+                }
+            } else {
+                label.setText("Неверный логин или пароль");
             }
-        } else {
-            label.setText("Неверный логин или пароль");
-        }
+        }, FX).exceptionally(AsyncService::logError);
+    }
+
+    // e.g. the db doesn't answer, the check is dropped and can be started again
+    public void cancelLogin() {
+        inFlight.cancelAll();
+        label.setText("");
     }
 }
@@ -0,0 +1,268 @@
+package sample.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.DatePicker;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import sample.entity.AverageMark;
+import sample.entity.Group;
+import sample.entity.Student;
+import sample.entity.Subject;
+import sample.entity.Teacher;
+import sample.service.async.AsyncService;
+import sample.service.async.FxBatcher;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class AverageController extends TabController {
+    @FXML
+    private ComboBox<String> filterCombo;
+
+    @FXML
+    private ComboBox<Student> filterStudCombo;
+
+    @FXML
+    private ComboBox<Teacher> filterTeacherCombo;
+
+    @FXML
+    private ComboBox<Subject> filterSubjCombo;
+
+    @FXML
+    private ComboBox<Group> filterGroupCombo;
+
+    @FXML
+    private DatePicker filterStartDate;
+
+    @FXML
+    private DatePicker filterEndDate;
+
+    @FXML
+    private TextField filterAverageTf;
+
+    @FXML
+    private Button filterCalcBut;
+
+    @FXML
+    private Button filterCalcAllBut;
+
+    @FXML
+    private TableView<AverageMark> tableAverage;
+
+    @FXML
+    private TableColumn<AverageMark, String> tableAverageNameColumn;
+
+    @FXML
+    private TableColumn<AverageMark, Double> tableAverageValueColumn;
+
+    @FXML
+    private TableColumn<AverageMark, Integer> tableAverageCountColumn;
+
+    private SortedList<AverageMark> averages;
+    private AverageMark.Scope averageScope;
+    private Map<AverageMark.Scope, Integer> averageFilter = new EnumMap<>(AverageMark.Scope.class);
+    private int averageStartYear;
+    private int averageEndYear;
+    
+    private String selectedFilter;
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        filterStudCombo.setOnAction(e -> filterCalcBut.setDisable(false));
+        filterTeacherCombo.setOnAction(e -> filterCalcBut.setDisable(false));
+        filterSubjCombo.setOnAction(e -> filterCalcBut.setDisable(false));
+        filterGroupCombo.setOnAction(e -> filterCalcBut.setDisable(false));
+
+        tableAverageNameColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
+        tableAverageValueColumn.setCellValueFactory(new PropertyValueFactory<>("average"));
+        tableAverageCountColumn.setCellValueFactory(new PropertyValueFactory<>("count"));
+        tableAverageValueColumn.setCellFactory(column -> new TableCell<AverageMark, Double>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format("%.2f", value));
+            }
+        });
+
+        tableAverage.setRowFactory(table -> {
+            TableRow<AverageMark> row = new TableRow<>();
+            row.setOnMouseClicked(e -> {
+                if (e.getClickCount() == 2 && !row.isEmpty())
+                    drillDown(row.getItem());
+            });
+            return row;
+        });
+
+        SearchBinding.comboBox(filterStudCombo, main.studentIndex, main.students);
+        SearchBinding.comboBox(filterTeacherCombo, main.teacherIndex, main.teachers.getItems());
+        filterSubjCombo.setItems(main.subjects.getItems());
+        filterGroupCombo.setItems(main.groups.getItems());
+        filterCombo.setItems(FXCollections.observableArrayList("Студенты", "Преподаватели",
+                                                                "Предметы", "Группы"));
+
+        main.openAnalytics();
+        return CompletableFuture.allOf(main.need(AverageMark.Scope.STUDENTS), main.need(AverageMark.Scope.TEACHERS),
+                main.need(AverageMark.Scope.SUBJECTS), main.need(AverageMark.Scope.GROUPS));
+    }
+
+    public void filterSelected() {
+        selectedFilter = filterCombo.getValue();
+        switch (selectedFilter) {
+            case "Студенты":
+                filterStudCombo.setDisable(false);
+                filterTeacherCombo.setDisable(true);
+                filterSubjCombo.setDisable(true);
+                filterGroupCombo.setDisable(true);
+                break;
+            case "Преподаватели":
+                filterTeacherCombo.setDisable(false);
+                filterStudCombo.setDisable(true);
+                filterSubjCombo.setDisable(true);
+                filterGroupCombo.setDisable(true);
+                break;
+            case "Предметы":
+                filterSubjCombo.setDisable(false);
+                filterStudCombo.setDisable(true);
+                filterTeacherCombo.setDisable(true);
+                filterGroupCombo.setDisable(true);
+                break;
+            case "Группы":
+                filterGroupCombo.setDisable(false);
+                filterStudCombo.setDisable(true);
+                filterTeacherCombo.setDisable(true);
+                filterSubjCombo.setDisable(true);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    public void calculatePerformance() {
+        LocalDate start = filterStartDate.getValue();
+        LocalDate end = filterEndDate.getValue();
+        if (start != null && end != null && start.getYear() <= end.getYear()) {
+            // the procedures filter by the admission year of the group
+            int startYear = start.getYear();
+            int endYear = end.getYear();
+            CompletableFuture<String> averageMark;
+            switch (selectedFilter) {
+                case "Студенты":
+                    Integer studentId = filterStudCombo.getValue().getId();
+                    averageMark = main.averageAsync.supply(s -> s.calcPerfStud(startYear, endYear, studentId));
+                    break;
+                case "Преподаватели":
+                    Integer teacherId = filterTeacherCombo.getValue().getId();
+                    averageMark = main.averageAsync.supply(s -> s.calcPerfTeach(startYear, endYear, teacherId));
+                    break;
+                case "Предметы":
+                    String subjectName = filterSubjCombo.getValue().getName();
+                    averageMark = main.averageAsync.supply(s -> s.calcPerfSubj(startYear, endYear, subjectName));
+                    break;
+                case "Группы":
+                    String groupName = filterGroupCombo.getValue().getName();
+                    averageMark = main.averageAsync.supply(s -> s.calcPerfGroup(startYear, endYear, groupName));
+                    break;
+                default:
+                    averageMark = CompletableFuture.completedFuture("");
+                    break;
+            }
+            averageMark.thenAcceptAsync(filterAverageTf::setText, FX)
+                    .exceptionally(AsyncService::logError);
+        }
+        disableComboBoxes();
+    }
+
+    // averages of every entity of the selected filter, rows appear while the cursor is read
+    public void calculateAllPerformance() {
+        LocalDate start = filterStartDate.getValue();
+        LocalDate end = filterEndDate.getValue();
+        if (selectedFilter == null || start == null || end == null || start.getYear() > end.getYear())
+            return;
+        int startYear = start.getYear();
+        int endYear = end.getYear();
+
+        AverageMark.Scope scope;
+        switch (selectedFilter) {
+            case "Студенты":
+                scope = AverageMark.Scope.STUDENTS;
+                break;
+            case "Преподаватели":
+                scope = AverageMark.Scope.TEACHERS;
+                break;
+            case "Предметы":
+                scope = AverageMark.Scope.SUBJECTS;
+                break;
+            default:
+                scope = AverageMark.Scope.GROUPS;
+                break;
+        }
+        averageStartYear = startYear;
+        averageEndYear = endYear;
+        showAverages(scope, new EnumMap<>(AverageMark.Scope.class));
+    }
+
+    // double click on a group shows its subjects, on a subject - its teachers (in-memory marks only)
+    private void drillDown(AverageMark row) {
+        if (main.loadedEngine() == null)
+            return;
+        AverageMark.Scope next;
+        if (averageScope == AverageMark.Scope.GROUPS)
+            next = AverageMark.Scope.SUBJECTS;
+        else if (averageScope == AverageMark.Scope.SUBJECTS)
+            next = AverageMark.Scope.TEACHERS;
+        else
+            return;
+
+        Map<AverageMark.Scope, Integer> filter = new EnumMap<>(averageFilter);
+        filter.put(averageScope, row.getId());
+        showAverages(next, filter);
+    }
+
+    private void showAverages(AverageMark.Scope scope, Map<AverageMark.Scope, Integer> filter) {
+        averageScope = scope;
+        averageFilter = filter;
+        int startYear = averageStartYear;
+        int endYear = averageEndYear;
+
+        // a new list per run, rows of a run still in progress can't mix into this one
+        ObservableList<AverageMark> rows = FXCollections.observableArrayList();
+        if (averages != null)
+            averages.comparatorProperty().unbind();
+        averages = new SortedList<>(rows);
+        averages.comparatorProperty().bind(tableAverage.comparatorProperty());
+        tableAverage.setItems(averages);
+
+        if (main.loadedEngine() != null) {
+            main.engineAsync.supply(e -> e.averages(scope, startYear, endYear, filter))
+                    .thenAcceptAsync(rows::setAll, FX)
+                    .exceptionally(AsyncService::logError);
+            return;
+        }
+        FxBatcher<AverageMark> batcher = new FxBatcher<>(rows, 200);
+        main.averageAsync.run(s -> {
+            s.forEachAverage(scope, startYear, endYear, batcher);
+            batcher.flush();
+        }).exceptionally(AsyncService::logError);
+    }
+
+    private void disableComboBoxes() {
+        filterStudCombo.setDisable(true);
+        filterTeacherCombo.setDisable(true);
+        filterSubjCombo.setDisable(true);
+        filterGroupCombo.setDisable(true);
+        filterCalcBut.setDisable(true);
+    }
+}
@@ -1,705 +1,413 @@
 package sample.controller;
 
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.beans.Observable;
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.ComboBoxTableCell;
-import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.control.cell.TextFieldTableCell;
 import javafx.stage.Stage;
-import javafx.util.converter.DefaultStringConverter;
+import sample.Startup;
+import sample.analytics.AnalyticsMarkService;
+import sample.analytics.MarksEngine;
 import sample.database.dao.*;
 import sample.entity.*;
+import sample.search.NameIndex;
 import sample.service.*;
+import sample.service.async.AsyncService;
+import sample.service.cache.CachingGroupService;
+import sample.service.cache.CachingMarkService;
+import sample.service.cache.CachingSubjectService;
+import sample.service.cache.CachingTeacherService;
+import sample.service.async.DbExecutor;
+import sample.service.async.InFlight;
 import sample.service.impl.*;
 
+import java.io.IOException;
 import java.sql.SQLException;
-import java.time.LocalDate;
-import java.util.List;
-
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import static sample.service.async.DbExecutor.FX;
+
+// The main window: the services, the lists several tabs show, the busy bar and deletes.
+// Every tab has its own FXML and controller, loaded the first time the tab is selected,
+// and a list is only read once a tab that shows it is opened.
 public class Controller {
     private static GroupService groupService;
     private static StudentService studentService;
     private static TeacherService teacherService;
     private static SubjectService subjectService;
     private static MarkService markService;
+    // marks of the groups looked at on the marks tab
+    private static CachingMarkService markCache;
     private static AverageMarkService averageMarkService;
+    private static CascadeService cascadeService;
+    // in-memory marks for the analysis tab, only with -Danalytics.inMemory=true
+    private static MarksEngine marksEngine;
 
     static {
         try {
-            groupService = new GroupServiceImpl(new GroupsDao());
+            groupService = new CachingGroupService(new GroupServiceImpl(new GroupsDao()));
             studentService = new StudentServiceImpl(new StudentDao());
-            teacherService = new TeacherServiceImpl(new TeacherDao());
-            subjectService = new SubjectServiceImpl(new SubjectDao());
-            markService = new MarkServiceImpl(new MarkDao());
+            teacherService = new CachingTeacherService(new TeacherServiceImpl(new TeacherDao()));
+            subjectService = new CachingSubjectService(new SubjectServiceImpl(new SubjectDao()));
+            markCache = new CachingMarkService(new MarkServiceImpl(new MarkDao()));
+            markService = markCache;
             averageMarkService = new AverageMarkServiceImpl(new AverageMarkDao());
+            cascadeService = new CascadeServiceImpl(new CascadeDao());
+            if (Boolean.getBoolean("analytics.inMemory")) {
+                marksEngine = new MarksEngine(new MarkFactDao());
+                markService = new AnalyticsMarkService(markService, marksEngine);
+            }
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    // lists read by prefetch(), each one is taken by the first full load of its list
+    private static final AtomicReference<CompletableFuture<ChangeSet<Group>>> prefetchedGroups =
+            new AtomicReference<>();
+    private static final AtomicReference<CompletableFuture<ChangeSet<Student>>> prefetchedStudents =
+            new AtomicReference<>();
+    private static final AtomicReference<CompletableFuture<ChangeSet<Teacher>>> prefetchedTeachers =
+            new AtomicReference<>();
+    private static final AtomicReference<CompletableFuture<ChangeSet<Subject>>> prefetchedSubjects =
+            new AtomicReference<>();
+
+    // Reads what the main window shows first, all four lists at once. Called on a db thread
+    // while the login form is open, so the static block above opens the db there too.
+    public static void prefetch() {
+        prefetchedGroups.set(prefetch(groupService::findChangedSince));
+        prefetchedStudents.set(prefetch(studentService::findChangedSince));
+        prefetchedTeachers.set(prefetch(teacherService::findChangedSince));
+        prefetchedSubjects.set(prefetch(subjectService::findChangedSince));
+    }
+
+    private static <T> CompletableFuture<ChangeSet<T>> prefetch(LongFunction<ChangeSet<T>> read) {
+        return CompletableFuture.supplyAsync(() -> read.apply(0), DbExecutor.get());
+    }
+
+    // Called once the main window is up. The lists no tab has taken by then are not kept
+    // for the whole session, a tab opened later reads its list itself.
+    private static void releasePrefetched() {
+        release(prefetchedGroups);
+        release(prefetchedStudents);
+        release(prefetchedTeachers);
+        release(prefetchedSubjects);
+    }
+
+    private static void release(AtomicReference<? extends CompletableFuture<?>> prefetched) {
+        CompletableFuture<?> early = prefetched.getAndSet(null);
+        if (early != null)
+            early.cancel(false);
+    }
+
+    // the prefetched list for the first full load, a read of its own for any other or if prefetch failed
+    private static <T> CompletableFuture<ChangeSet<T>> changesSince(
+            AtomicReference<CompletableFuture<ChangeSet<T>>> prefetched, long since,
+            Supplier<CompletableFuture<ChangeSet<T>>> read) {
+        CompletableFuture<ChangeSet<T>> early = since == 0 ? prefetched.getAndSet(null) : null;
+        if (early == null)
+            return read.get();
+        return early.handle((changes, e) -> changes != null ? CompletableFuture.completedFuture(changes) : read.get())
+                .thenCompose(Function.identity());
+    }
+
+    // every db call goes through these, the FX thread only gets the results
+    private final InFlight inFlight = new InFlight();
+    final AsyncService<GroupService> groupsAsync =
+            new AsyncService<>(groupService, DbExecutor.get(), inFlight);
+    final AsyncService<StudentService> studentsAsync =
+            new AsyncService<>(studentService, DbExecutor.get(), inFlight);
+    final AsyncService<TeacherService> teachersAsync =
+            new AsyncService<>(teacherService, DbExecutor.get(), inFlight);
+    final AsyncService<SubjectService> subjectsAsync =
+            new AsyncService<>(subjectService, DbExecutor.get(), inFlight);
+    final AsyncService<MarkService> marksAsync =
+            new AsyncService<>(markService, DbExecutor.get(), inFlight);
+    final AsyncService<AverageMarkService> averageAsync =
+            new AsyncService<>(averageMarkService, DbExecutor.get(), inFlight);
+    private final AsyncService<CascadeService> cascadeAsync =
+            new AsyncService<>(cascadeService, DbExecutor.get(), inFlight);
+    final AsyncService<MarksEngine> engineAsync = marksEngine == null ? null
+            : new AsyncService<>(marksEngine, DbExecutor.get(), inFlight);
+
     @FXML
     private void initialize() {
-        initData();
-        initGroups();
-        initStudents();
-        initTeachers();
-        initSubjects();
-        initMarks();
-        initAverage();
+        initBusyState();
+        initTabs();
     }
 
-    private void initData() {
-        groups = groupService.findAll();
-        students = studentService.findAll();
-        teachers = teacherService.findAll();
-        subjects = subjectService.findAll();
-    }
+    // the in-memory marks are read when the analysis tab is opened, changes before that are not needed
+    private boolean analyticsOpened;
 
-    /*
-        -------------------------------------------- ГРУППЫ --------------------------------------------
-    */
-    private void initGroups() {
-        tableGroupsColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-
-        tableGroupsColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableGroupsColumn.setOnEditCommit(e -> {
-            String newName = e.getNewValue();
-            editGroup(e.getTableView().getItems().get(e.getTablePosition().getRow()), newName);
-        });
+    void openAnalytics() {
+        analyticsOpened = true;
+        syncAnalytics(MarksEngine::load);
     }
 
-    private ObservableList<Group> groups = FXCollections.observableArrayList();
-
-    @FXML
-    private Tab tabGroups;
-
-    @FXML
-    private TableView<Group> tableGroups;
-
-    @FXML
-    private TableColumn<Group, String> tableGroupsColumn;
-
-    @FXML
-    private TextField addGroupTf;
-
-    @FXML
-    private Button addGroupBut;
-
-    @FXML
-    private Button deleteGroupBut;
-
-    // в момент нажатия на tabGroups
-    public void loadGroups() {
-        groups = groupService.findAll();
-        tableGroups.setItems(groups);
+    // applies a change to the in-memory marks if they are on
+    void syncAnalytics(Consumer<MarksEngine> change) {
+        if (engineAsync != null && analyticsOpened)
+            engineAsync.run(change).exceptionally(AsyncService::logError);
     }
 
-    public void addGroup() {
-        String name = addGroupTf.getText();
-        if ("".equals(name)) return;
-
-        groupService.add(new Group(name));
-        loadGroups();
-
-        loadAverageComboBoxes();
+    // the in-memory marks if they are on and read
+    MarksEngine loadedEngine() {
+        return marksEngine != null && marksEngine.isLoaded() ? marksEngine : null;
     }
 
-    private Group groupToDelete = null;
-    public void delGroup() {
-        groupToDelete = tableGroups.getSelectionModel().getSelectedItem();
-        if (groupToDelete != null) {
-            List<Integer> countDependencies = groupService.countDependencies(groupToDelete);
-            if (countDependencies != null) {
-                Integer count1 = countDependencies.get(0);
-                Integer count2 = countDependencies.get(1);
-                if (count1 > 0 || count2 > 0) {
-                    // push warning
-                    String text = String.format("Эта группа содержит %d студентов, которые имеют %d оценок." +
-                            "Вы действительно хотите продолжить и удалить всё вместе ?", count1, count2);
-                    pushWarning(text);
-                    return;
-                }
-            }
-            reallyDelete(true);
-        }
+    // marks changed past the mark service, e.g. a teacher or a subject got another name
+    void marksChanged() {
+        markCache.clear();
     }
 
-    public void editGroup(Group group, String newGroupName) {
-        if (group == null || "".equals(newGroupName)) return;
-
-        groupService.update(group, new Group(newGroupName));
-        group.setName(newGroupName);
-
-        loadAverageComboBoxes();
-    }
-
-    /*
-        -------------------------------------------- СТУДЕНТЫ --------------------------------------------
-    */
-    private void initStudents() {
-        tableStudentsLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("lastName"));
-        tableStudentsNameColumn.setCellValueFactory(new PropertyValueFactory<>("firstName"));
-        tableStudentsFatherNameColumn.setCellValueFactory(new PropertyValueFactory<>("fatherName"));
-        tableStudentsGroupColumn.setCellValueFactory(new PropertyValueFactory<>("groupName"));
-
-        tableStudentsLastNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableStudentsNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableStudentsFatherNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableStudentsGroupColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-
-        tableStudentsLastNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editStudent(oldStudent, newVal, oldStudent.getFirstName(),
-                    oldStudent.getFatherName(), oldStudent.getGroupName());
-        });
-        tableStudentsNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editStudent(oldStudent, oldStudent.getLastName(), newVal,
-                    oldStudent.getFatherName(), oldStudent.getGroupName());
-        });
-        tableStudentsFatherNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editStudent(oldStudent, oldStudent.getLastName(), oldStudent.getFirstName(),
-                    newVal, oldStudent.getGroupName());
-        });
-        tableStudentsGroupColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editStudent(oldStudent, oldStudent.getLastName(), oldStudent.getFirstName(),
-                    oldStudent.getFatherName(), newVal);
-        });
-    }
-
-    private ObservableList<Student> students = FXCollections.observableArrayList();
-
-    @FXML
-    private Tab tabStudents;
-
-    @FXML
-    private TableView<Student> tableStudents;
-
-    @FXML
-    private TableColumn<Student, String> tableStudentsLastNameColumn;
-
-    @FXML
-    private TableColumn<Student, String> tableStudentsNameColumn;
-
-    @FXML
-    private TableColumn<Student, String> tableStudentsFatherNameColumn;
-
-    @FXML
-    private TableColumn<Student, String> tableStudentsGroupColumn;
-
-    @FXML
-    private TextField addStudentLastNameTf;
-
-    @FXML
-    private TextField addStudentNameTf;
-
-    @FXML
-    private TextField addStudentFatherNameTf;
-
-    @FXML
-    private TextField addStudentGroupTf;
-
-    @FXML
-    private Button addStudentBut;
-
-    @FXML
-    private Button deleteStudentBut;
-
-    // в момент нажатия на tabStudents
-    public void loadStudents() {
-        students = studentService.findAll();
-        tableStudents.setItems(students);
-    }
-
-    public void addStudent() {
-        String lastName = addStudentLastNameTf.getText();
-        String name = addStudentNameTf.getText();
-        String fatherName = addStudentFatherNameTf.getText();
-        String group = addStudentGroupTf.getText();
-
-        if ("".equals(lastName) || "".equals(name) ||
-            "".equals(fatherName) || "".equals(group)) return;
-
-        studentService.add(new Student(name, lastName, fatherName, group));
-        loadStudents();
-        
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
-    }
-
-    private Student studentToDelete = null;
-    public void delStudent() {
-        studentToDelete = tableStudents.getSelectionModel().getSelectedItem();
-        if (studentToDelete != null) {
-            List<Integer> countDependencies = studentService.countDependencies(studentToDelete);
-            if (countDependencies != null) {
-                Integer count1 = countDependencies.get(0);
-                if (count1 > 0) {
-                    // push warning
-                    String text = String.format("Этот студент имеет %d оценок." +
-                            "Вы действительно хотите продолжить и удалить всё вместе ?", count1);
-                    pushWarning(text);
-                    return;
-                }
+    // Shows an edit at once and writes it in the background. apply sets the row's properties,
+    // so only the cells bound to them are redrawn; if the write is refused or fails, undo puts
+    // the old values back. Completes on the FX thread with whether the write went through.
+    <S> CompletableFuture<Boolean> editInPlace(AsyncService<S> async, Function<S, Boolean> write,
+                                               Runnable apply, Runnable undo) {
+        apply.run();
+        return async.supply(write).handleAsync((updated, e) -> {
+            if (e != null)
+                AsyncService.logError(e);
+            if (e != null || !Boolean.TRUE.equals(updated)) {
+                undo.run();
+                return false;
             }
-            reallyDelete(true);
-        }
-    }
-
-    public void editStudent(Student student, String lastName, String name,
-                            String fatherName, String group) {
-        if (student == null || "".equals(lastName) || "".equals(name) ||
-            "".equals(fatherName) || "".equals(group)) return;
-
-        studentService.update(student, new Student(name, lastName, fatherName, group));
-        student.setLastName(lastName);
-        student.setFirstName(name);
-        student.setFatherName(fatherName);
-        student.setGroupName(group);
-
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
+            return true;
+        }, FX);
     }
 
     /*
-        -------------------------------------------- ПРЕПОДАВАТЕЛИ --------------------------------------------
+        -------------------------------------------- ЗАГРУЗКА --------------------------------------------
     */
-    private void initTeachers() {
-        tableTeachersLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("lastName"));
-        tableTeachersNameColumn.setCellValueFactory(new PropertyValueFactory<>("firstName"));
-        tableTeachersFatherNameColumn.setCellValueFactory(new PropertyValueFactory<>("fatherName"));
-
-        tableTeachersLastNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableTeachersNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableTeachersFatherNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-
-        tableTeachersLastNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editTeacher(oldTeacher, newVal, oldTeacher.getFirstName(), oldTeacher.getFatherName());
-        });
-        tableTeachersNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editTeacher(oldTeacher, oldTeacher.getLastName(), newVal, oldTeacher.getFatherName());
-        });
-        tableTeachersFatherNameColumn.setOnEditCommit(e -> {
-            String newVal = e.getNewValue();
-            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
-            editTeacher(oldTeacher, oldTeacher.getLastName(), oldTeacher.getFirstName(), newVal);
-        });
-    }
-
-    private ObservableList<Teacher> teachers = FXCollections.observableArrayList();
-
-    @FXML
-    private Tab tabTeachers;
-
-    @FXML
-    private TableView<Teacher> tableTeachers;
-
-    @FXML
-    private TableColumn<Teacher, String> tableTeachersLastNameColumn;
-
     @FXML
-    private TableColumn<Teacher, String> tableTeachersNameColumn;
+    private ProgressIndicator busyIndicator;
 
     @FXML
-    private TableColumn<Teacher, String> tableTeachersFatherNameColumn;
+    private Label busyLabel;
 
     @FXML
-    private TextField addTeacherLastNameTf;
+    private Button cancelBut;
 
-    @FXML
-    private TextField addTeacherNameTf;
+    // share of a cascading delete done, indeterminate otherwise
+    private final DoubleProperty deleteProgress =
+            new SimpleDoubleProperty(ProgressIndicator.INDETERMINATE_PROGRESS);
 
-    @FXML
-    private TextField addTeacherFatherNameTf;
-
-    @FXML
-    private Button addTeacherBut;
-
-    @FXML
-    private Button deleteTeacherBut;
-
-    // в момент нажатия на tabTeachers
-    public void loadTeachers() {
-        teachers = teacherService.findAll();
-        tableTeachers.setItems(teachers);
+    private void initBusyState() {
+        busyIndicator.progressProperty().bind(deleteProgress);
+        busyIndicator.visibleProperty().bind(inFlight.countProperty().greaterThan(0));
+        busyLabel.visibleProperty().bind(inFlight.countProperty().greaterThan(0));
+        busyLabel.textProperty().bind(Bindings.format("Запросов к базе: %d", inFlight.countProperty()));
+        cancelBut.disableProperty().bind(inFlight.countProperty().isEqualTo(0));
     }
 
-    public void addTeacher() {
-        String lastName = addTeacherLastNameTf.getText();
-        String name = addTeacherNameTf.getText();
-        String fatherName = addTeacherFatherNameTf.getText();
-
-        if ("".equals(lastName) || "".equals(name) || "".equals(fatherName)) return;
-
-        teacherService.add(new Teacher(name, lastName, fatherName));
-        loadTeachers();
-        
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
-    }
-
-    private Teacher teacherToDelete = null;
-    public void delTeacher() {
-        teacherToDelete = tableTeachers.getSelectionModel().getSelectedItem();
-        if (teacherToDelete != null) {
-            List<Integer> countDependencies = teacherService.countDependencies(teacherToDelete);
-            if (countDependencies != null) {
-                Integer count1 = countDependencies.get(0);
-                if (count1 > 0) {
-                    // push warning
-                    String text = String.format("Этот преподаватель провел %d экзаменов." +
-                            "Вы действительно хотите продолжить и удалить всё вместе ?", count1);
-                    pushWarning(text);
-                    return;
-                }
-            }
-            reallyDelete(true);
-        }
-    }
-
-    public void editTeacher(Teacher teacher, String lastName, String name, String fatherName) {
-        if (teacher == null || "".equals(lastName) || "".equals(name) || "".equals(fatherName)) return;
-
-        teacherService.update(teacher, new Teacher(name, lastName, fatherName));
-        teacher.setLastName(lastName);
-        teacher.setFirstName(name);
-        teacher.setFatherName(fatherName);
-
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
+    public void cancelRequests() {
+        inFlight.cancelAll();
     }
 
     /*
-        -------------------------------------------- ПРЕДМЕТЫ --------------------------------------------
+        -------------------------------------------- ВКЛАДКИ --------------------------------------------
     */
-    private void initSubjects() {
-        tableSubjectsColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
-
-        tableSubjectsColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableSubjectsColumn.setOnEditCommit(e -> {
-            String newName = e.getNewValue();
-            editSubject(e.getTableView().getItems().get(e.getTablePosition().getRow()), newName);
-        });
-    }
-
-    private ObservableList<Subject> subjects = FXCollections.observableArrayList();
-
     @FXML
-    private Tab tabSubjects;
+    private TabPane tabPane;
 
     @FXML
-    private TableView<Subject> tableSubjects;
-
-    @FXML
-    private TableColumn<Subject, String> tableSubjectsColumn;
+    private Tab tabGroups;
 
     @FXML
-    private TextField addSubjectTf;
+    private Tab tabStudents;
 
     @FXML
-    private Button addSubjectBut;
+    private Tab tabTeachers;
 
     @FXML
-    private Button deleteSubjectBut;
-
-    // в момент нажатия на tabSubjects
-    public void loadSubjects() {
-        subjects = subjectService.findAll();
-        tableSubjects.setItems(subjects);
-    }
-
-    public void addSubject() {
-        String name = addSubjectTf.getText();
-        if ("".equals(name)) return;
-
-        subjectService.add(new Subject(name));
-        loadSubjects();
-        
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
-    }
-
-    private Subject subjectToDelete = null;
-    public void delSubject() {
-        subjectToDelete = tableSubjects.getSelectionModel().getSelectedItem();
-        if (subjectToDelete != null) {
-            List<Integer> countDependencies = subjectService.countDependencies(subjectToDelete);
-            if (countDependencies != null) {
-                Integer count1 = countDependencies.get(0);
-                if (count1 > 0) {
-                    // push warning
-                    String text = String.format("Этот предмет содержится в %d оценках." +
-                            "Вы действительно хотите продолжить и удалить всё вместе ?", count1);
-                    pushWarning(text);
-                    return;
-                }
-            }
-            reallyDelete(true);
-        }
-    }
-
-    public void editSubject(Subject subject, String newSubjectName) {
-        if (subject == null || "".equals(newSubjectName)) return;
-
-        subjectService.update(subject, new Subject(newSubjectName));
-        subject.setName(newSubjectName);
-
-        loadMarksComboBoxes();
-        loadAverageComboBoxes();
-    }
-
-    /*
-        -------------------------------------------- ОЦЕНКИ --------------------------------------------
-    */
-    private void initMarks() {
-        tableMarkSubjectColumn.setCellValueFactory(new PropertyValueFactory<>("subjectName"));
-        tableMarkTeacherLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("teacherLastName"));
-        tableMarkTeacherNameColumn.setCellValueFactory(new PropertyValueFactory<>("teacherName"));
-        tableMarkValueColumn.setCellValueFactory(new PropertyValueFactory<>("value"));
-
-        tableMarkSubjectColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableMarkTeacherLastNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableMarkTeacherNameColumn.setCellFactory(
-                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
-        tableMarkValueColumn.setCellFactory(
-                ComboBoxTableCell.forTableColumn(2, 3, 4, 5));
-
-        tableMarkValueColumn.setOnEditCommit(e -> {
-            Integer newVal = e.getNewValue();
-            editMark(e.getTableView().getItems().get(e.getTablePosition().getRow()), newVal);
-        });
-
-        loadMarksComboBoxes();
-        marksValueCombo.setItems(FXCollections.observableArrayList(2, 3, 4, 5));
-    }
-
-    private void loadMarksComboBoxes() {
-        marksStudentsCombo.setItems(students);
-        marksSubjectsCombo.setItems(subjects);
-        marksTeachersCombo.setItems(teachers);
-    }
-
-    private ObservableList<Mark> marks = FXCollections.observableArrayList();
+    private Tab tabSubjects;
 
     @FXML
     private Tab tabMarks;
 
     @FXML
-    private TableView<Mark> tableMarks;
-
-    @FXML
-    private TableColumn<Mark, String> tableMarkSubjectColumn;
-
-    @FXML
-    private TableColumn<Mark, String> tableMarkTeacherLastNameColumn;
-
-    @FXML
-    private TableColumn<Mark, String> tableMarkTeacherNameColumn;
-
-    @FXML
-    private TableColumn<Mark, Integer> tableMarkValueColumn;
-
-    @FXML
-    private ComboBox<Student> marksStudentsCombo;
-
-    @FXML
-    private ComboBox<Subject> marksSubjectsCombo;
-
-    @FXML
-    private ComboBox<Teacher> marksTeachersCombo;
-
-    @FXML
-    private ComboBox<Integer> marksValueCombo;
-
-    @FXML
-    private Button addMarkBut;
-
-    @FXML
-    private Button deleteMarkBut;
-
-    // в момент смены value в marksStudentsCombo
-    public void loadMarks() {
-        marks = markService.findAllByStudent(marksStudentsCombo.getValue());
-        tableMarks.setItems(marks);
-    }
-
-    public void addMark() {
-        Subject subject = marksSubjectsCombo.getValue();
-        Teacher teacher = marksTeachersCombo.getValue();
-        Integer value = marksValueCombo.getValue();
-        Student student = marksStudentsCombo.getValue();
-
-        if (subject == null || teacher == null || value == null || student == null)
-            return;
-
-        markService.add(new Mark(student.getId(), subject.getName(), teacher.getId(), value));
-        loadMarks();
-    }
+    private Tab tabAverage;
 
-    public void delMark() {
-        Mark mark = tableMarks.getSelectionModel().getSelectedItem();
-        if (mark != null) {
-            markService.delete(mark);
+    private final Map<Tab, String> tabViews = new HashMap<>();
+    private final Map<Tab, TabController> openedTabs = new HashMap<>();
+
+    private void initTabs() {
+        tabViews.put(tabGroups, "groups.fxml");
+        tabViews.put(tabStudents, "students.fxml");
+        tabViews.put(tabTeachers, "teachers.fxml");
+        tabViews.put(tabSubjects, "subjects.fxml");
+        tabViews.put(tabMarks, "marks.fxml");
+        tabViews.put(tabAverage, "average.fxml");
+
+        tabPane.getSelectionModel().selectedItemProperty().addListener((obs, old, tab) -> select(tab));
+        open(tabPane.getSelectionModel().getSelectedItem())
+                .whenComplete((r, e) -> releasePrefetched())
+                .thenRun(Startup::mainWindowReady)
+                .exceptionally(AsyncService::logError);
+    }
+
+    private void select(Tab tab) {
+        TabController opened = openedTabs.get(tab);
+        if (opened != null)
+            opened.shown();
+        else
+            open(tab).exceptionally(AsyncService::logError);
+    }
+
+    // The tab keeps its placeholder from sample.fxml while its first read is running,
+    // the view loaded from the tab's FXML replaces it once the read is done or failed.
+    private CompletableFuture<Void> open(Tab tab) {
+        FXMLLoader loader = new FXMLLoader(this.getClass().getResource("../gui/" + tabViews.get(tab)));
+        Node view;
+        try {
+            view = loader.load();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            return CompletableFuture.completedFuture(null);
         }
-        loadMarks();
-    }
-
-    public void editMark(Mark mark, Integer newValue) {
-        Student student = marksStudentsCombo.getValue();
-        if (mark == null || newValue == null || student == null) return;
-
-        markService.update(mark, new Mark(newValue));
-        mark.setValue(newValue);
+        TabController controller = loader.getController();
+        openedTabs.put(tab, controller);
+        return controller.open(this)
+                .whenCompleteAsync((v, e) -> tab.setContent(view), FX);
     }
 
     /*
-        -------------------------------------------- СРЕДНИЙ БАЛЛ --------------------------------------------
+        -------------------------------------------- ОБЩИЕ СПИСКИ --------------------------------------------
     */
-    private void initAverage() {
-        filterStudCombo.setOnAction(e -> filterCalcBut.setDisable(false));
-        filterTeacherCombo.setOnAction(e -> filterCalcBut.setDisable(false));
-        filterSubjCombo.setOnAction(e -> filterCalcBut.setDisable(false));
-        filterGroupCombo.setOnAction(e -> filterCalcBut.setDisable(false));
-
-        loadAverageComboBoxes();
-        filterCombo.setItems(FXCollections.observableArrayList("Студенты", "Преподаватели",
-                                                                "Предметы", "Группы"));
-    }
-
-    private void loadAverageComboBoxes() {
-        filterStudCombo.setItems(students);
-        filterTeacherCombo.setItems(teachers);
-        filterSubjCombo.setItems(subjects);
-        filterGroupCombo.setItems(groups);
-    }
-
-    @FXML
-    private Tab tabAverage;
-
-    @FXML
-    private ComboBox<String> filterCombo;
-
-    @FXML
-    private ComboBox<Student> filterStudCombo;
-
-    @FXML
-    private ComboBox<Teacher> filterTeacherCombo;
-
-    @FXML
-    private ComboBox<Subject> filterSubjCombo;
-
-    @FXML
-    private ComboBox<Group> filterGroupCombo;
-
-    @FXML
-    private DatePicker filterStartDate;
-
-    @FXML
-    private DatePicker filterEndDate;
-
-    @FXML
-    private TextField filterAverageTf;
-
-    @FXML
-    private Button filterCalcBut;
-    
-    private String selectedFilter;
-
-    public void filterSelected() {
-        selectedFilter = filterCombo.getValue();
-        switch (selectedFilter) {
-            case "Студенты":
-                filterStudCombo.setDisable(false);
-                filterTeacherCombo.setDisable(true);
-                filterSubjCombo.setDisable(true);
-                filterGroupCombo.setDisable(true);
-                break;
-            case "Преподаватели":
-                filterTeacherCombo.setDisable(false);
-                filterStudCombo.setDisable(true);
-                filterSubjCombo.setDisable(true);
-                filterGroupCombo.setDisable(true);
-                break;
-            case "Предметы":
-                filterSubjCombo.setDisable(false);
-                filterStudCombo.setDisable(true);
-                filterTeacherCombo.setDisable(true);
-                filterGroupCombo.setDisable(true);
-                break;
-            case "Группы":
-                filterGroupCombo.setDisable(false);
-                filterStudCombo.setDisable(true);
-                filterTeacherCombo.setDisable(true);
-                filterSubjCombo.setDisable(true);
-                break;
+    // rows per keyset page and how many pages a table keeps in memory
+    static final int PAGE_SIZE = Integer.getInteger("ui.page.size", 100);
+    static final int MAX_PAGES = Integer.getInteger("ui.page.cached", 20);
+
+    // after a write only the rows changed since the last read come back, see TrackedList
+    final TrackedList<Group> groups = new TrackedList<>(
+            since -> changesSince(prefetchedGroups, since, () -> groupsAsync.supply(s -> s.findChangedSince(since))),
+            Group::getId,
+            g -> new Observable[]{g.nameProperty()});
+
+    final PagedList<Student> students = new PagedList<>(
+            size -> studentsAsync.supply(s -> s.findPageIndex(size)),
+            (afterId, size) -> studentsAsync.supply(s -> s.findPage(afterId, size)),
+            PAGE_SIZE, MAX_PAGES);
+
+    // every student for the search boxes, filled and kept current by the reads of the changes
+    final NameIndex<Student> studentIndex = new NameIndex<>(Student::getId,
+            s -> new String[]{s.getLastName(), s.getFirstName(), s.getFatherName()});
+
+    final NameIndex<Teacher> teacherIndex = new NameIndex<>(Teacher::getId,
+            t -> new String[]{t.getLastName(), t.getFirstName(), t.getFatherName()});
+
+    final TrackedList<Teacher> teachers = new TrackedList<>(
+            since -> changesSince(prefetchedTeachers, since,
+                    () -> teachersAsync.supply(s -> s.findChangedSince(since)))
+                    .thenApplyAsync(changes -> {
+                        teacherIndex.apply(changes);
+                        return changes;
+                    }, DbExecutor.get()), Teacher::getId,
+            t -> new Observable[]{t.firstNameProperty(), t.lastNameProperty()});
+
+    final TrackedList<Subject> subjects = new TrackedList<>(
+            since -> changesSince(prefetchedSubjects, since,
+                    () -> subjectsAsync.supply(s -> s.findChangedSince(since))), Subject::getId,
+            s -> new Observable[]{s.nameProperty()});
+
+    // first reads of the lists above, by the entity they hold
+    private final Map<AverageMark.Scope, CompletableFuture<Void>> firstLoads = new EnumMap<>(AverageMark.Scope.class);
+
+    // Reads the list the first time a tab needs it, later calls get the same read; a failed read
+    // is tried again. Must be called on the FX thread.
+    CompletableFuture<Void> need(AverageMark.Scope list) {
+        CompletableFuture<Void> load = firstLoads.get(list);
+        if (load == null || load.isCompletedExceptionally()) {
+            load = reload(list);
+            firstLoads.put(list, load);
+        }
+        return load;
+    }
+
+    // reads the whole list again
+    CompletableFuture<Void> reload(AverageMark.Scope list) {
+        switch (list) {
+            case GROUPS:
+                return groups.reload();
+            case STUDENTS:
+                return reloadStudents();
+            case TEACHERS:
+                return teachers.reload();
             default:
-                break;
+                return subjects.reload();
         }
     }
-    
-    public void calculatePerformance() {
-        LocalDate start = filterStartDate.getValue();
-        LocalDate end = filterEndDate.getValue();
-        if (start != null && end != null && start.getYear() <= end.getYear()) {
-            String averageMark;
-            switch (selectedFilter) {
-                case "Студенты":
-                    averageMark = averageMarkService.calcPerfStud(start.toString(), end.toString(),
-                                                                filterStudCombo.getValue().getId());
-                    break;
-                case "Преподаватели":
-                    averageMark = averageMarkService.calcPerfTeach(start.toString(), end.toString(),
-                                                                filterTeacherCombo.getValue().getId());
-                    break;
-                case "Предметы":
-                    averageMark = averageMarkService.calcPerfSubj(start.toString(), end.toString(),
-                                                                filterSubjCombo.getValue().getName());
-                    break;
-                case "Группы":
-                    averageMark = averageMarkService.calcPerfGroup(start.toString(), end.toString(),
-                                                                filterGroupCombo.getValue().getName());
-                    break;
-                default:
-                    averageMark = "";
-                    break;
-            }
-            filterAverageTf.setText(averageMark);
+
+    // reads what changed in the list, nothing if no tab has read it yet; the whole list comes
+    // back only when its watermark is older than CHANGE_HORIZON
+    CompletableFuture<Void> refresh(AverageMark.Scope list) {
+        if (!firstLoads.containsKey(list))
+            return CompletableFuture.completedFuture(null);
+        switch (list) {
+            case GROUPS:
+                return groups.refresh();
+            case STUDENTS:
+                return refreshStudents();
+            case TEACHERS:
+                return teachers.refresh();
+            default:
+                return subjects.refresh();
         }
-        disableComboBoxes();
     }
 
-    private void disableComboBoxes() {
-        filterStudCombo.setDisable(true);
-        filterTeacherCombo.setDisable(true);
-        filterSubjCombo.setDisable(true);
-        filterGroupCombo.setDisable(true);
-        filterCalcBut.setDisable(true);
+    // the students table is paged, changes are patched into the loaded pages
+    private long studentsWatermark;
+
+    private CompletableFuture<ChangeSet<Student>> studentChanges(long since) {
+        return changesSince(prefetchedStudents, since, () -> studentsAsync.supply(s -> s.findChangedSince(since)))
+                .thenApplyAsync(changes -> {
+                    studentIndex.apply(changes);
+                    return changes;
+                }, DbExecutor.get());
+    }
+
+    // must be called on the FX thread
+    private CompletableFuture<Void> reloadStudents() {
+        // the first time this reads every student into the search index, later only what changed;
+        // the watermark is taken before the page keys, so a change in between is patched in, not lost
+        return studentChanges(studentIndex.getWatermark())
+                .thenComposeAsync(changes -> {
+                    if (changes != null)
+                        studentsWatermark = changes.getWatermark();
+                    return students.refresh();
+                }, FX);
+    }
+
+    // must be called on the FX thread
+    private CompletableFuture<Void> refreshStudents() {
+        long since = studentsWatermark;
+        if (since == 0)
+            return reloadStudents();
+        return studentChanges(since)
+                .thenComposeAsync(changes -> {
+                    if (changes == null)
+                        return students.refresh();
+                    if (changes.getWatermark() < studentsWatermark)
+                        return CompletableFuture.completedFuture(null);
+                    studentsWatermark = changes.getWatermark();
+                    return students.patch(changes, Student::getId)
+                            ? CompletableFuture.completedFuture(null) : students.refresh();
+                }, FX);
     }
 
     /*
@@ -726,52 +434,67 @@ public class Controller {
         }
     }
 
-    public void reallyDelete(boolean really) {
-        if (really) {
-            if (groupToDelete != null) {
-                groupService.delete(groupToDelete);
-                groupToDelete = null;
-
-                loadGroups();
+    // the delete waiting for an answer in the warning window
+    private static final class PendingDelete {
+        final AverageMark.Scope scope;
+        final int id;
+        final CascadeDao.Left dependents;
 
-                loadMarksComboBoxes();
-                loadAverageComboBoxes();
-                return;
-            }
-            if (studentToDelete != null) {
-                studentService.delete(studentToDelete);
-                studentToDelete = null;
+        PendingDelete(AverageMark.Scope scope, int id, CascadeDao.Left dependents) {
+            this.scope = scope;
+            this.id = id;
+            this.dependents = dependents;
+        }
+    }
 
-                loadStudents();
+    private PendingDelete pendingDelete = null;
 
-                loadMarksComboBoxes();
-                loadAverageComboBoxes();
+    // One call deletes the row if nothing depends on it, otherwise counts its dependent rows
+    // and the warning built by warning() asks before they are deleted too
+    void delete(AverageMark.Scope scope, int id, Function<CascadeDao.Left, String> warning) {
+        cascadeAsync.supply(s -> s.deleteIfFree(scope, id)).thenAcceptAsync(dependents -> {
+            if (dependents == null)
                 return;
-            }
-            if (teacherToDelete != null) {
-                teacherService.delete(teacherToDelete);
-                teacherToDelete = null;
-
-                loadTeachers();
-
-                loadMarksComboBoxes();
-                loadAverageComboBoxes();
+            if (dependents.isEmpty()) {
+                afterDelete(scope, id, true);
                 return;
             }
-            if (subjectToDelete != null) {
-                subjectService.delete(subjectToDelete);
-                subjectToDelete = null;
+            pendingDelete = new PendingDelete(scope, id, dependents);
+            pushWarning(warning.apply(dependents));
+        }, FX).exceptionally(AsyncService::logError);
+    }
 
-                loadSubjects();
+    public void reallyDelete(boolean really) {
+        PendingDelete pending = pendingDelete;
+        pendingDelete = null;
+        if (!really || pending == null)
+            return;
 
-                loadMarksComboBoxes();
-                loadAverageComboBoxes();
-            }
-        } else {
-            groupToDelete = null;
-            studentToDelete = null;
-            teacherToDelete = null;
-            subjectToDelete = null;
-        }
+        // a chunk per transaction in the background, "Отменить" stops it between chunks
+        deleteProgress.set(0);
+        cascadeAsync.supply(s -> s.deleteAll(pending.scope, pending.id, pending.dependents,
+                        (done, total) -> FX.execute(() -> deleteProgress.set((double) done / total))))
+                .whenCompleteAsync((deleted, e) -> {
+                    deleteProgress.set(ProgressIndicator.INDETERMINATE_PROGRESS);
+                    if (e != null)
+                        AsyncService.logError(e);
+                    afterDelete(pending.scope, pending.id, e == null && Boolean.TRUE.equals(deleted));
+                }, FX);
+    }
+
+    // Refreshes what a delete touched. A stopped delete keeps the row, but part of its marks
+    // or students may be gone, so the lists are refreshed and the in-memory marks reloaded anyway.
+    private void afterDelete(AverageMark.Scope scope, int id, boolean complete) {
+        markCache.clear();
+        if (complete)
+            syncAnalytics(e -> e.deleteBy(scope, id));
+        else
+            syncAnalytics(MarksEngine::load);
+
+        CompletableFuture<Void> refreshed = refresh(scope);
+        // the students of a group are deleted with it
+        if (scope == AverageMark.Scope.GROUPS)
+            refreshed = refreshed.thenComposeAsync(v -> refresh(AverageMark.Scope.STUDENTS), FX);
+        refreshed.exceptionally(AsyncService::logError);
     }
 }
@@ -0,0 +1,94 @@
+package sample.controller;
+
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import sample.analytics.MarksEngine;
+import sample.entity.AverageMark;
+import sample.entity.Group;
+import sample.service.async.AsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class GroupsController extends TabController {
+    @FXML
+    private TableView<Group> tableGroups;
+
+    @FXML
+    private TableColumn<Group, String> tableGroupsColumn;
+
+    @FXML
+    private TextField addGroupTf;
+
+    @FXML
+    private Button addGroupBut;
+
+    @FXML
+    private Button deleteGroupBut;
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        tableGroupsColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
+        tableGroups.setItems(main.groups.getItems());
+
+        tableGroupsColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableGroupsColumn.setOnEditCommit(e -> {
+            String newName = e.getNewValue();
+            editGroup(e.getTableView().getItems().get(e.getTablePosition().getRow()), newName);
+        });
+        return main.need(AverageMark.Scope.GROUPS);
+    }
+
+    // в момент нажатия на tabGroups
+    @Override
+    void shown() {
+        main.refresh(AverageMark.Scope.GROUPS).exceptionally(AsyncService::logError);
+    }
+
+    public void addGroup() {
+        String name = addGroupTf.getText();
+        if ("".equals(name)) return;
+
+        main.groupsAsync.run(s -> s.add(new Group(name)))
+                .thenComposeAsync(v -> main.groups.refresh(), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void delGroup() {
+        Group group = tableGroups.getSelectionModel().getSelectedItem();
+        if (group != null)
+            main.delete(AverageMark.Scope.GROUPS, group.getId(),
+                    dependents -> String.format("Эта группа содержит %d студентов, которые имеют %d оценок." +
+                            "Вы действительно хотите продолжить и удалить всё вместе ?",
+                            dependents.getPeople(), dependents.getMarks()));
+    }
+
+    public void editGroup(Group group, String newGroupName) {
+        if (group == null) return;
+        if ("".equals(newGroupName)) {
+            // the cell shows the rejected text, draw it again from the row
+            tableGroups.refresh();
+            return;
+        }
+
+        String oldName = group.getName();
+        main.editInPlace(main.groupsAsync, s -> s.update(new Group(group.getId(), oldName), new Group(newGroupName)),
+                () -> group.setName(newGroupName), () -> group.setName(oldName))
+                .thenAcceptAsync(updated -> {
+                    if (!updated) return;
+                    // the admission year comes from the name
+                    main.syncAnalytics(MarksEngine::load);
+                    // and the students show the new name
+                    main.refresh(AverageMark.Scope.STUDENTS).exceptionally(AsyncService::logError);
+                }, FX)
+                .exceptionally(AsyncService::logError);
+    }
+}
@@ -0,0 +1,155 @@
+package sample.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.ComboBoxTableCell;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import sample.entity.AverageMark;
+import sample.entity.Mark;
+import sample.entity.Student;
+import sample.entity.Subject;
+import sample.entity.Teacher;
+import sample.service.async.AsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class MarksController extends TabController {
+    @FXML
+    private TableView<Mark> tableMarks;
+
+    @FXML
+    private TableColumn<Mark, String> tableMarkSubjectColumn;
+
+    @FXML
+    private TableColumn<Mark, String> tableMarkTeacherLastNameColumn;
+
+    @FXML
+    private TableColumn<Mark, String> tableMarkTeacherNameColumn;
+
+    @FXML
+    private TableColumn<Mark, Integer> tableMarkValueColumn;
+
+    @FXML
+    private ComboBox<Student> marksStudentsCombo;
+
+    @FXML
+    private ComboBox<Subject> marksSubjectsCombo;
+
+    @FXML
+    private ComboBox<Teacher> marksTeachersCombo;
+
+    @FXML
+    private ComboBox<Integer> marksValueCombo;
+
+    @FXML
+    private Button addMarkBut;
+
+    @FXML
+    private Button deleteMarkBut;
+
+    private ObservableList<Mark> marks = FXCollections.observableArrayList();
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        tableMarkSubjectColumn.setCellValueFactory(new PropertyValueFactory<>("subjectName"));
+        tableMarkTeacherLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("teacherLastName"));
+        tableMarkTeacherNameColumn.setCellValueFactory(new PropertyValueFactory<>("teacherName"));
+        tableMarkValueColumn.setCellValueFactory(new PropertyValueFactory<>("value"));
+        tableMarks.getColumns().forEach(column -> column.setSortable(false));
+
+        tableMarkSubjectColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableMarkTeacherLastNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableMarkTeacherNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableMarkValueColumn.setCellFactory(
+                ComboBoxTableCell.forTableColumn(2, 3, 4, 5));
+
+        tableMarkValueColumn.setOnEditCommit(e -> {
+            Integer newVal = e.getNewValue();
+            editMark(e.getTableView().getItems().get(e.getTablePosition().getRow()), newVal);
+        });
+
+        SearchBinding.comboBox(marksStudentsCombo, main.studentIndex, main.students);
+        marksSubjectsCombo.setItems(main.subjects.getItems());
+        SearchBinding.comboBox(marksTeachersCombo, main.teacherIndex, main.teachers.getItems());
+        marksValueCombo.setItems(FXCollections.observableArrayList(2, 3, 4, 5));
+
+        return CompletableFuture.allOf(main.need(AverageMark.Scope.STUDENTS),
+                main.need(AverageMark.Scope.SUBJECTS), main.need(AverageMark.Scope.TEACHERS));
+    }
+
+    // в момент смены value в marksStudentsCombo
+    public void loadMarks() {
+        reloadMarks().exceptionally(AsyncService::logError);
+    }
+
+    private CompletableFuture<Void> reloadMarks() {
+        Student student = marksStudentsCombo.getValue();
+        if (student == null) {
+            tableMarks.setItems(FXCollections.observableArrayList());
+            return CompletableFuture.completedFuture(null);
+        }
+        PagedList<Mark> list = new PagedList<>(
+                size -> main.marksAsync.supply(s -> s.findPageIndexByStudent(student, size)),
+                (afterId, size) -> main.marksAsync.supply(s -> s.findPageByStudent(student, afterId, size)),
+                Controller.PAGE_SIZE, Controller.MAX_PAGES);
+        return list.refresh().thenRunAsync(() -> {
+            // another student may have been picked while this one was loading
+            if (student != marksStudentsCombo.getValue()) return;
+            marks = list;
+            tableMarks.setItems(marks);
+        }, FX);
+    }
+
+    public void addMark() {
+        Subject subject = marksSubjectsCombo.getValue();
+        Teacher teacher = marksTeachersCombo.getValue();
+        Integer value = marksValueCombo.getValue();
+        Student student = marksStudentsCombo.getValue();
+
+        if (subject == null || teacher == null || value == null || student == null)
+            return;
+
+        Mark mark = new Mark(student.getId(), subject.getName(), teacher.getId(), value);
+        mark.setSubjectId(subject.getId());
+        main.marksAsync.run(s -> s.add(mark))
+                .thenComposeAsync(v -> reloadMarks(), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void delMark() {
+        Mark mark = tableMarks.getSelectionModel().getSelectedItem();
+        CompletableFuture<Void> deleted = mark != null
+                ? main.marksAsync.run(s -> s.delete(mark))
+                : CompletableFuture.completedFuture(null);
+        deleted.thenComposeAsync(v -> reloadMarks(), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void editMark(Mark mark, Integer newValue) {
+        Student student = marksStudentsCombo.getValue();
+        if (mark == null || student == null) return;
+        if (newValue == null) {
+            tableMarks.refresh();
+            return;
+        }
+
+        Integer oldValue = mark.getValue();
+        Mark before = new Mark(mark.getId(), mark.getSubjectName(), mark.getTeacherName(),
+                mark.getTeacherLastName(), oldValue);
+        main.editInPlace(main.marksAsync, s -> s.update(before, new Mark(newValue)),
+                () -> mark.setValue(newValue), () -> mark.setValue(oldValue))
+                .exceptionally(AsyncService::logError);
+    }
+}
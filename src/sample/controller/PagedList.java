@@ -0,0 +1,172 @@
+package sample.controller;
+
+import javafx.collections.ObservableListBase;
+import sample.database.dao.ChangeSet;
+import sample.database.dao.PageIndex;
+import sample.service.async.AsyncService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+import static sample.service.async.DbExecutor.FX;
+
+// Read-only list for TableView/ComboBox that keeps at most maxPages pages in memory.
+// A row that isn't loaded reads as null, its page is fetched in the background
+// and the row is redrawn when it arrives. Must only be touched on the FX thread.
+public final class PagedList<T> extends ObservableListBase<T> {
+    private final IntFunction<CompletableFuture<PageIndex>> indexLoader;
+    private final BiFunction<Integer, Integer, CompletableFuture<List<T>>> pageLoader;
+    private final int pageSize;
+    private final Map<Integer, List<T>> pages;
+    private final Set<Integer> loading = new HashSet<>();
+    // pages whose load failed, they stay empty until the next refresh()
+    private final Set<Integer> failed = new HashSet<>();
+    private PageIndex index = PageIndex.EMPTY;
+    private int generation;
+    private int refreshes;
+
+    // pageLoader gets the key to start after and the page size
+    public PagedList(IntFunction<CompletableFuture<PageIndex>> indexLoader,
+                     BiFunction<Integer, Integer, CompletableFuture<List<T>>> pageLoader,
+                     int pageSize, int maxPages) {
+        this.indexLoader = indexLoader;
+        this.pageLoader = pageLoader;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<Integer, List<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    // re-reads the page keys and drops every loaded page, failed pages are asked for again
+    public CompletableFuture<Void> refresh() {
+        int requested = ++refreshes;
+        failed.clear();
+        return indexLoader.apply(pageSize)
+                .thenAcceptAsync(newIndex -> {
+                    if (newIndex == null || requested != refreshes) return;
+
+                    int oldSize = size();
+                    index = newIndex;
+                    pages.clear();
+                    loading.clear();
+                    generation++;
+
+                    beginChange();
+                    if (oldSize > 0)
+                        nextRemove(0, Collections.nCopies(oldSize, null));
+                    if (index.getTotal() > 0)
+                        nextAdd(0, index.getTotal());
+                    endChange();
+                }, FX);
+    }
+
+    // Replaces the loaded copies of changed rows in place. False if rows may have been added
+    // or deleted, the page keys are stale then and the list needs a refresh().
+    public boolean patch(ChangeSet<T> changes, Function<T, Integer> idOf) {
+        if (changes.isFull() || !changes.getDeletedIds().isEmpty())
+            return false;
+
+        Map<Integer, T> changed = new HashMap<>();
+        for (T row : changes.getRows())
+            changed.put(idOf.apply(row), row);
+        beginChange();
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            List<T> rows = entry.getValue();
+            for (int offset = 0; offset < rows.size() && !changed.isEmpty(); offset++) {
+                T row = changed.remove(idOf.apply(rows.get(offset)));
+                if (row != null) {
+                    nextSet(entry.getKey() * pageSize + offset, rows.set(offset, row));
+                }
+            }
+        }
+        endChange();
+        // the rest is in pages that are not loaded, they are read fresh when shown
+        for (Integer id : changed.keySet()) {
+            if (!index.covers(id))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public T get(int i) {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + size());
+
+        int page = i / pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            load(page);
+            return null;
+        }
+        int offset = i % pageSize;
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return index.getTotal();
+    }
+
+    // only looks at loaded pages, a full scan would pull the whole table in
+    @Override
+    public int indexOf(Object o) {
+        for (Map.Entry<Integer, List<T>> entry : pages.entrySet()) {
+            int offset = entry.getValue().indexOf(o);
+            if (offset >= 0)
+                return entry.getKey() * pageSize + offset;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private void load(int page) {
+        if (failed.contains(page) || !loading.add(page))
+            return;
+
+        int requested = generation;
+        Integer afterId = index.afterId(page);
+        pageLoader.apply(afterId, pageSize)
+                .whenCompleteAsync((rows, e) -> {
+                    if (requested != generation) return;
+                    loading.remove(page);
+                    if (rows == null) {
+                        // every redraw of the row would ask again, e.g. while scrolling with the db down
+                        failed.add(page);
+                        if (e != null)
+                            AsyncService.logError(e);
+                        return;
+                    }
+
+                    pages.put(page, rows);
+                    int from = page * pageSize;
+                    int to = Math.min(from + pageSize, size());
+                    beginChange();
+                    for (int i = from; i < to; i++) {
+                        nextSet(i, null);
+                    }
+                    endChange();
+                }, FX);
+    }
+}
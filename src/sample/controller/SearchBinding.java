@@ -0,0 +1,82 @@
+package sample.controller;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.util.StringConverter;
+import sample.search.NameIndex;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Search-as-you-type over a NameIndex: the text of a field or of an editable combo box replaces
+// the list shown with the rows found, an empty text puts the full list back. The rows found are
+// looked up again when the full list changes after the index got newer rows, page loads of a
+// PagedList don't count. Must only be touched on the FX thread.
+final class SearchBinding<T> {
+    // rows shown for a query, -Dui.search.limit
+    private static final int LIMIT = Integer.getInteger("ui.search.limit", 200);
+
+    private final NameIndex<T> index;
+    private final ObservableList<T> all;
+    private final Consumer<ObservableList<T>> show;
+    private String query = "";
+    private long searchedAt;
+
+    private SearchBinding(NameIndex<T> index, ObservableList<T> all, Consumer<ObservableList<T>> show) {
+        this.index = index;
+        this.all = all;
+        this.show = show;
+        all.addListener((ListChangeListener<T>) c -> {
+            if (!query.isEmpty() && index.getVersion() != searchedAt)
+                search(query);
+        });
+    }
+
+    private void search(String text) {
+        query = text == null ? "" : text.trim();
+        searchedAt = index.getVersion();
+        show.accept(query.isEmpty() ? all : FXCollections.observableArrayList(index.search(query, LIMIT)));
+    }
+
+    static <T> void table(TextField field, TableView<T> table, NameIndex<T> index, ObservableList<T> all) {
+        SearchBinding<T> binding = new SearchBinding<>(index, all, table::setItems);
+        field.textProperty().addListener((obs, old, text) -> binding.search(text));
+    }
+
+    static <T> void comboBox(ComboBox<T> combo, NameIndex<T> index, ObservableList<T> all) {
+        SearchBinding<T> binding = new SearchBinding<>(index, all, items -> {
+            combo.setItems(items);
+            if (items != all && combo.isFocused())
+                combo.show();
+        });
+        combo.setItems(all);
+        combo.setEditable(true);
+        combo.setConverter(new StringConverter<T>() {
+            @Override
+            public String toString(T row) {
+                return row == null ? "" : row.toString();
+            }
+
+            // Enter takes the row shown or the best match of the text
+            @Override
+            public T fromString(String text) {
+                T value = combo.getValue();
+                if (value != null && value.toString().equals(text))
+                    return value;
+                List<T> found = index.search(text, 1);
+                return found.isEmpty() ? null : found.get(0);
+            }
+        });
+        combo.getEditor().textProperty().addListener((obs, old, text) -> {
+            // the text of a picked row, not a query
+            T value = combo.getValue();
+            if (value != null && value.toString().equals(text))
+                return;
+            binding.search(text);
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package sample.controller;
+
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import sample.analytics.MarksEngine;
+import sample.entity.AverageMark;
+import sample.entity.Student;
+import sample.service.async.AsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class StudentsController extends TabController {
+    @FXML
+    private TableView<Student> tableStudents;
+
+    @FXML
+    private TableColumn<Student, String> tableStudentsLastNameColumn;
+
+    @FXML
+    private TableColumn<Student, String> tableStudentsNameColumn;
+
+    @FXML
+    private TableColumn<Student, String> tableStudentsFatherNameColumn;
+
+    @FXML
+    private TableColumn<Student, String> tableStudentsGroupColumn;
+
+    @FXML
+    private TextField addStudentLastNameTf;
+
+    @FXML
+    private TextField addStudentNameTf;
+
+    @FXML
+    private TextField addStudentFatherNameTf;
+
+    @FXML
+    private TextField addStudentGroupTf;
+
+    @FXML
+    private Button addStudentBut;
+
+    @FXML
+    private Button deleteStudentBut;
+
+    @FXML
+    private TextField searchStudentsTf;
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        tableStudentsLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("lastName"));
+        tableStudentsNameColumn.setCellValueFactory(new PropertyValueFactory<>("firstName"));
+        tableStudentsFatherNameColumn.setCellValueFactory(new PropertyValueFactory<>("fatherName"));
+        tableStudentsGroupColumn.setCellValueFactory(new PropertyValueFactory<>("groupName"));
+
+        // rows come in id order page by page, sorting would pull in the whole table
+        tableStudents.getColumns().forEach(column -> column.setSortable(false));
+        tableStudents.setItems(main.students);
+        SearchBinding.table(searchStudentsTf, tableStudents, main.studentIndex, main.students);
+
+        tableStudentsLastNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableStudentsNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableStudentsFatherNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableStudentsGroupColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+
+        tableStudentsLastNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editStudent(oldStudent, newVal, oldStudent.getFirstName(),
+                    oldStudent.getFatherName(), oldStudent.getGroupName());
+        });
+        tableStudentsNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editStudent(oldStudent, oldStudent.getLastName(), newVal,
+                    oldStudent.getFatherName(), oldStudent.getGroupName());
+        });
+        tableStudentsFatherNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editStudent(oldStudent, oldStudent.getLastName(), oldStudent.getFirstName(),
+                    newVal, oldStudent.getGroupName());
+        });
+        tableStudentsGroupColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Student oldStudent = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editStudent(oldStudent, oldStudent.getLastName(), oldStudent.getFirstName(),
+                    oldStudent.getFatherName(), newVal);
+        });
+        return main.need(AverageMark.Scope.STUDENTS);
+    }
+
+    // в момент нажатия на tabStudents
+    @Override
+    void shown() {
+        main.refresh(AverageMark.Scope.STUDENTS).exceptionally(AsyncService::logError);
+    }
+
+    public void addStudent() {
+        String lastName = addStudentLastNameTf.getText();
+        String name = addStudentNameTf.getText();
+        String fatherName = addStudentFatherNameTf.getText();
+        String group = addStudentGroupTf.getText();
+
+        if ("".equals(lastName) || "".equals(name) ||
+            "".equals(fatherName) || "".equals(group)) return;
+
+        main.studentsAsync.run(s -> s.add(new Student(name, lastName, fatherName, group)))
+                .thenComposeAsync(v -> main.refresh(AverageMark.Scope.STUDENTS), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void delStudent() {
+        Student student = tableStudents.getSelectionModel().getSelectedItem();
+        if (student != null)
+            main.delete(AverageMark.Scope.STUDENTS, student.getId(),
+                    dependents -> String.format("Этот студент имеет %d оценок." +
+                            "Вы действительно хотите продолжить и удалить всё вместе ?", dependents.getMarks()));
+    }
+
+    public void editStudent(Student student, String lastName, String name,
+                            String fatherName, String group) {
+        if (student == null) return;
+        if ("".equals(lastName) || "".equals(name) || "".equals(fatherName) || "".equals(group)) {
+            tableStudents.refresh();
+            return;
+        }
+
+        Student before = new Student(student.getId(), student.getFirstName(), student.getLastName(),
+                student.getFatherName(), student.getGroupName());
+        Student after = new Student(student.getId(), name, lastName, fatherName, group);
+        main.editInPlace(main.studentsAsync, s -> s.update(before, after),
+                () -> setNames(student, after), () -> setNames(student, before))
+                .thenComposeAsync(updated -> {
+                    if (!updated)
+                        return CompletableFuture.completedFuture(null);
+                    if (!group.equals(before.getGroupName()))
+                        main.syncAnalytics(MarksEngine::load);
+                    // the search index and the table pages hold other copies of the row
+                    return main.refresh(AverageMark.Scope.STUDENTS);
+                }, FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    private static void setNames(Student student, Student from) {
+        student.setLastName(from.getLastName());
+        student.setFirstName(from.getFirstName());
+        student.setFatherName(from.getFatherName());
+        student.setGroupName(from.getGroupName());
+    }
+}
@@ -0,0 +1,90 @@
+package sample.controller;
+
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import sample.entity.AverageMark;
+import sample.entity.Subject;
+import sample.service.async.AsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class SubjectsController extends TabController {
+    @FXML
+    private TableView<Subject> tableSubjects;
+
+    @FXML
+    private TableColumn<Subject, String> tableSubjectsColumn;
+
+    @FXML
+    private TextField addSubjectTf;
+
+    @FXML
+    private Button addSubjectBut;
+
+    @FXML
+    private Button deleteSubjectBut;
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        tableSubjectsColumn.setCellValueFactory(new PropertyValueFactory<>("name"));
+        tableSubjects.setItems(main.subjects.getItems());
+
+        tableSubjectsColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableSubjectsColumn.setOnEditCommit(e -> {
+            String newName = e.getNewValue();
+            editSubject(e.getTableView().getItems().get(e.getTablePosition().getRow()), newName);
+        });
+        return main.need(AverageMark.Scope.SUBJECTS);
+    }
+
+    // в момент нажатия на tabSubjects
+    @Override
+    void shown() {
+        main.refresh(AverageMark.Scope.SUBJECTS).exceptionally(AsyncService::logError);
+    }
+
+    public void addSubject() {
+        String name = addSubjectTf.getText();
+        if ("".equals(name)) return;
+
+        main.subjectsAsync.run(s -> s.add(new Subject(name)))
+                .thenComposeAsync(v -> main.subjects.refresh(), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void delSubject() {
+        Subject subject = tableSubjects.getSelectionModel().getSelectedItem();
+        if (subject != null)
+            main.delete(AverageMark.Scope.SUBJECTS, subject.getId(),
+                    dependents -> String.format("Этот предмет содержится в %d оценках." +
+                            "Вы действительно хотите продолжить и удалить всё вместе ?", dependents.getMarks()));
+    }
+
+    public void editSubject(Subject subject, String newSubjectName) {
+        if (subject == null) return;
+        if ("".equals(newSubjectName)) {
+            tableSubjects.refresh();
+            return;
+        }
+
+        String oldName = subject.getName();
+        main.editInPlace(main.subjectsAsync,
+                s -> s.update(new Subject(subject.getId(), oldName), new Subject(newSubjectName)),
+                () -> subject.setName(newSubjectName), () -> subject.setName(oldName))
+                .thenAcceptAsync(updated -> {
+                    // cached marks carry the subject's name
+                    if (updated)
+                        main.marksChanged();
+                }, FX)
+                .exceptionally(AsyncService::logError);
+    }
+}
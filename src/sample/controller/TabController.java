@@ -0,0 +1,22 @@
+package sample.controller;
+
+import java.util.concurrent.CompletableFuture;
+
+// Controller of one tab of the main window, created with the tab's FXML the first time
+// the tab is selected. Must only be touched on the FX thread.
+abstract class TabController {
+    protected Controller main;
+
+    // binds the controls and starts the reads the tab needs; the tab shows a placeholder until they are done
+    CompletableFuture<Void> open(Controller main) {
+        this.main = main;
+        return init();
+    }
+
+    protected abstract CompletableFuture<Void> init();
+
+    // the tab is selected again
+    void shown() {
+
+    }
+}
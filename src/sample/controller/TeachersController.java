@@ -0,0 +1,136 @@
+package sample.controller;
+
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.control.cell.TextFieldTableCell;
+import javafx.util.converter.DefaultStringConverter;
+import sample.entity.AverageMark;
+import sample.entity.Teacher;
+import sample.service.async.AsyncService;
+
+import java.util.concurrent.CompletableFuture;
+
+import static sample.service.async.DbExecutor.FX;
+
+public class TeachersController extends TabController {
+    @FXML
+    private TableView<Teacher> tableTeachers;
+
+    @FXML
+    private TableColumn<Teacher, String> tableTeachersLastNameColumn;
+
+    @FXML
+    private TableColumn<Teacher, String> tableTeachersNameColumn;
+
+    @FXML
+    private TableColumn<Teacher, String> tableTeachersFatherNameColumn;
+
+    @FXML
+    private TextField addTeacherLastNameTf;
+
+    @FXML
+    private TextField addTeacherNameTf;
+
+    @FXML
+    private TextField addTeacherFatherNameTf;
+
+    @FXML
+    private Button addTeacherBut;
+
+    @FXML
+    private Button deleteTeacherBut;
+
+    @FXML
+    private TextField searchTeachersTf;
+
+    @Override
+    protected CompletableFuture<Void> init() {
+        tableTeachersLastNameColumn.setCellValueFactory(new PropertyValueFactory<>("lastName"));
+        tableTeachersNameColumn.setCellValueFactory(new PropertyValueFactory<>("firstName"));
+        tableTeachersFatherNameColumn.setCellValueFactory(new PropertyValueFactory<>("fatherName"));
+        tableTeachers.setItems(main.teachers.getItems());
+        SearchBinding.table(searchTeachersTf, tableTeachers, main.teacherIndex, main.teachers.getItems());
+
+        tableTeachersLastNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableTeachersNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+        tableTeachersFatherNameColumn.setCellFactory(
+                TextFieldTableCell.forTableColumn(new DefaultStringConverter()));
+
+        tableTeachersLastNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editTeacher(oldTeacher, newVal, oldTeacher.getFirstName(), oldTeacher.getFatherName());
+        });
+        tableTeachersNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editTeacher(oldTeacher, oldTeacher.getLastName(), newVal, oldTeacher.getFatherName());
+        });
+        tableTeachersFatherNameColumn.setOnEditCommit(e -> {
+            String newVal = e.getNewValue();
+            Teacher oldTeacher = e.getTableView().getItems().get(e.getTablePosition().getRow());
+            editTeacher(oldTeacher, oldTeacher.getLastName(), oldTeacher.getFirstName(), newVal);
+        });
+        return main.need(AverageMark.Scope.TEACHERS);
+    }
+
+    // в момент нажатия на tabTeachers
+    @Override
+    void shown() {
+        main.refresh(AverageMark.Scope.TEACHERS).exceptionally(AsyncService::logError);
+    }
+
+    public void addTeacher() {
+        String lastName = addTeacherLastNameTf.getText();
+        String name = addTeacherNameTf.getText();
+        String fatherName = addTeacherFatherNameTf.getText();
+
+        if ("".equals(lastName) || "".equals(name) || "".equals(fatherName)) return;
+
+        main.teachersAsync.run(s -> s.add(new Teacher(name, lastName, fatherName)))
+                .thenComposeAsync(v -> main.teachers.refresh(), FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    public void delTeacher() {
+        Teacher teacher = tableTeachers.getSelectionModel().getSelectedItem();
+        if (teacher != null)
+            main.delete(AverageMark.Scope.TEACHERS, teacher.getId(),
+                    dependents -> String.format("Этот преподаватель провел %d экзаменов." +
+                            "Вы действительно хотите продолжить и удалить всё вместе ?", dependents.getMarks()));
+    }
+
+    public void editTeacher(Teacher teacher, String lastName, String name, String fatherName) {
+        if (teacher == null) return;
+        if ("".equals(lastName) || "".equals(name) || "".equals(fatherName)) {
+            tableTeachers.refresh();
+            return;
+        }
+
+        Teacher before = new Teacher(teacher.getId(), teacher.getFirstName(), teacher.getLastName(),
+                teacher.getFatherName());
+        Teacher after = new Teacher(teacher.getId(), name, lastName, fatherName);
+        main.editInPlace(main.teachersAsync, s -> s.update(before, after),
+                () -> setNames(teacher, after), () -> setNames(teacher, before))
+                .thenAcceptAsync(updated -> {
+                    // the index holds the same row, but its words are folded when it is put
+                    if (updated) {
+                        main.teacherIndex.put(teacher);
+                        main.marksChanged();
+                    }
+                }, FX)
+                .exceptionally(AsyncService::logError);
+    }
+
+    private static void setNames(Teacher teacher, Teacher from) {
+        teacher.setLastName(from.getLastName());
+        teacher.setFirstName(from.getFirstName());
+        teacher.setFatherName(from.getFatherName());
+    }
+}
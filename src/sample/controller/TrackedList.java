@@ -0,0 +1,89 @@
+package sample.controller;
+
+import javafx.beans.Observable;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.util.Callback;
+import sample.database.dao.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import static sample.service.async.DbExecutor.FX;
+
+// Items of a table that are kept up to date with findChangedSince: changed rows are replaced
+// where they are, new ones appended and deleted ones removed, so the selection and the scroll
+// position of the table stay. The items list never changes, combo boxes can share it.
+// Must only be touched on the FX thread.
+public final class TrackedList<T> {
+    private final ObservableList<T> items;
+    private final LongFunction<CompletableFuture<ChangeSet<T>>> loader;
+    private final Function<T, Integer> idOf;
+    private long watermark;
+
+    // loader gets the watermark, 0 for the whole table; the properties from extractor are
+    // watched, so combo boxes showing the items redraw one when it is edited
+    public TrackedList(LongFunction<CompletableFuture<ChangeSet<T>>> loader, Function<T, Integer> idOf,
+                       Callback<T, Observable[]> extractor) {
+        this.items = FXCollections.observableArrayList(extractor);
+        this.loader = loader;
+        this.idOf = idOf;
+    }
+
+    public ObservableList<T> getItems() {
+        return items;
+    }
+
+    // reads the whole table
+    public CompletableFuture<Void> reload() {
+        return load(0);
+    }
+
+    // reads what changed since the last load
+    public CompletableFuture<Void> refresh() {
+        return load(watermark);
+    }
+
+    private CompletableFuture<Void> load(long since) {
+        return loader.apply(since).thenAcceptAsync(this::apply, FX);
+    }
+
+    // answers of overlapping loads can come in any order, an older one is dropped;
+    // the watermark stays the same while a transaction is open, such answers are applied
+    void apply(ChangeSet<T> changes) {
+        if (changes == null || changes.getWatermark() < watermark)
+            return;
+        watermark = changes.getWatermark();
+        if (changes.isFull()) {
+            items.setAll(changes.getRows());
+            return;
+        }
+        if (changes.isEmpty())
+            return;
+
+        Map<Integer, T> changed = new LinkedHashMap<>();
+        for (T row : changes.getRows())
+            changed.put(idOf.apply(row), row);
+        Set<Integer> deleted = new HashSet<>(changes.getDeletedIds());
+        List<Integer> removed = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Integer id = idOf.apply(items.get(i));
+            T row = changed.remove(id);
+            if (deleted.contains(id))
+                removed.add(i);
+            else if (row != null)
+                items.set(i, row);
+        }
+        for (int i = removed.size() - 1; i >= 0; i--)
+            items.remove((int) removed.get(i));
+        changed.keySet().removeAll(deleted);
+        items.addAll(changed.values());
+    }
+}
@@ -0,0 +1,30 @@
+package sample.database;
+
+import sample.database.embedded.EmbeddedBackend;
+
+import java.sql.SQLException;
+
+// Where the stored procedures run. DAOs only call procedures and read cursors,
+// so any backend that serves the procedures from src/resources over JDBC will do.
+//   -Ddb.backend=oracle    the Oracle instance (default)
+//   -Ddb.backend=embedded  the in-process engine, see EmbeddedBackend
+public interface Backend extends ConnectionFactory {
+    String getName();
+
+    // called once the pool is closed and no connection is in use anymore
+    default void close() {
+
+    }
+
+    static Backend fromSystemProperties() throws SQLException {
+        String name = System.getProperty("db.backend", "oracle");
+        switch (name) {
+            case "oracle":
+                return OracleBackend.fromSystemProperties();
+            case "embedded":
+                return EmbeddedBackend.fromSystemProperties();
+            default:
+                throw new IllegalArgumentException("Unknown db.backend: " + name);
+        }
+    }
+}
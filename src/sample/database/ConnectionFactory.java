@@ -0,0 +1,10 @@
+package sample.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// Opens a new physical connection for the pool
+@FunctionalInterface
+public interface ConnectionFactory {
+    Connection open() throws SQLException;
+}
@@ -0,0 +1,150 @@
+package sample.database;
+
+import sample.database.metrics.DbMetrics;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Bounded pool: at most maxSize connections are leased at the same time,
+// idle ones are validated on borrow and evicted after idleTimeout or maxLifetime
+public final class ConnectionPool implements AutoCloseable {
+    private final ConnectionFactory factory;
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, config.getIdleTimeoutMs() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        DbMetrics.attach(this);
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    public StatementCache.Stats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed)
+            throw new SQLException("Connection pool is closed");
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                DbMetrics.pool().timedOut();
+                throw new SQLTimeoutException("No free connection after " + config.getBorrowTimeoutMs() + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        Connection connection = leaseAcquired();
+        DbMetrics.pool().borrowed(System.nanoTime() - start);
+        return connection;
+    }
+
+    // a permit is held, an idle connection that is still good or a new one
+    private Connection leaseAcquired() throws SQLException {
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                long now = System.currentTimeMillis();
+                if (pooled.isExpired(now, config) || !pooled.validate(now, config)) {
+                    pooled.closePhysical();
+                    continue;
+                }
+                return pooled.lease();
+            }
+            return new PooledConnection(factory.open(), this).lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.isBroken()
+                    && !pooled.isExpired(System.currentTimeMillis(), config)
+                    && pooled.reset();
+            if (reusable) {
+                synchronized (idle) {
+                    idle.addFirst(pooled);
+                }
+            } else {
+                pooled.closePhysical();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getActiveCount() {
+        return config.getMaxSize() - permits.availablePermits();
+    }
+
+    private PooledConnection pollIdle() {
+        synchronized (idle) {
+            return idle.pollFirst();
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (pooled.isIdleTooLong(now, config) || pooled.isExpired(now, config)) {
+                    it.remove();
+                    evicted.add(pooled);
+                }
+            }
+        }
+        evicted.forEach(PooledConnection::closePhysical);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> all;
+        synchronized (idle) {
+            all = new ArrayList<>(idle);
+            idle.clear();
+        }
+        all.forEach(PooledConnection::closePhysical);
+    }
+}
@@ -1,33 +1,45 @@
 package sample.database;
 
-import oracle.jdbc.OracleDriver;
-
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
-// Connection with db is Singleton
+// Connections with db are leased from a single shared pool
 public final class DBConnection {
-    private static Connection getConnection() throws SQLException {
-        String url = "jdbc:oracle:thin:@localhost:1521:XE";
-        String user = "c##my_user";
-        String password = "my_pass";
-        DriverManager.registerDriver(new OracleDriver());
-        Connection connection = DriverManager.getConnection(url, user, password);
-
-        if (connection.isValid(1)) {
-            System.out.println("Connection successful!\n");
+    private static Backend backend;
+    private static ConnectionPool pool;
+
+    public static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            if (backend == null)
+                backend = Backend.fromSystemProperties();
+            pool = new ConnectionPool(backend, PoolConfig.fromSystemProperties());
         }
+        return pool;
+    }
 
-        return connection;
+    // closing the returned connection gives it back to the pool
+    public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
     }
 
-    private static Connection connection;
+    // another backend than -Ddb.backend, e.g. a generated embedded database for benchmarks.
+    // Has to be called before the first getPool
+    public static synchronized void useBackend(Backend other) {
+        if (pool != null)
+            throw new IllegalStateException("Connection pool is already open");
+        backend = other;
+    }
 
-    public static Connection getInstance() throws SQLException {
-        if (connection == null)
-            connection = getConnection();
-        return connection;
+    // closes the pool, then the backend (the embedded one saves its data)
+    public static synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+        if (backend != null) {
+            backend.close();
+            backend = null;
+        }
     }
 
     private DBConnection() {
@@ -0,0 +1,42 @@
+package sample.database;
+
+import sample.database.dao.AverageMarkDao;
+
+import java.sql.SQLException;
+
+// Checks the MARK_TOTALS aggregates against the marks and rebuilds them if they drifted.
+//   java sample.database.MarkTotalsTool verify|rebuild|repair
+public class MarkTotalsTool {
+    public static void main(String[] args) throws SQLException {
+        String command = args.length > 0 ? args[0] : "verify";
+        AverageMarkDao dao = new AverageMarkDao();
+        try {
+            switch (command) {
+                case "verify":
+                    report(dao.verifyTotals());
+                    break;
+                case "rebuild":
+                    System.out.println(dao.rebuildTotals() ? "Rebuilt" : "Rebuild failed");
+                    break;
+                case "repair":
+                    int drifted = dao.verifyTotals();
+                    report(drifted);
+                    if (drifted > 0)
+                        System.out.println(dao.rebuildTotals() ? "Rebuilt" : "Rebuild failed");
+                    break;
+                default:
+                    System.out.println("Usage: MarkTotalsTool verify|rebuild|repair");
+                    break;
+            }
+        } finally {
+            DBConnection.close();
+        }
+    }
+
+    private static void report(int drifted) {
+        if (drifted < 0)
+            System.out.println("Verify failed");
+        else
+            System.out.println(drifted == 0 ? "Totals are exact" : drifted + " rows drifted");
+    }
+}
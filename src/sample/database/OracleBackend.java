@@ -0,0 +1,44 @@
+package sample.database;
+
+import oracle.jdbc.OracleDriver;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+// Oracle over the thin driver, the procedures are created by the scripts in src/resources
+public final class OracleBackend implements Backend {
+    private final String url;
+    private final String user;
+    private final String password;
+
+    public OracleBackend(String url, String user, String password) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        DriverManager.registerDriver(new OracleDriver());
+    }
+
+    public static OracleBackend fromSystemProperties() throws SQLException {
+        return new OracleBackend(
+                System.getProperty("db.url", "jdbc:oracle:thin:@localhost:1521:XE"),
+                System.getProperty("db.user", "c##my_user"),
+                System.getProperty("db.password", "my_pass"));
+    }
+
+    @Override
+    public String getName() {
+        return "oracle";
+    }
+
+    @Override
+    public Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+
+        if (connection.isValid(1)) {
+            System.out.println("Connection successful!\n");
+        }
+
+        return connection;
+    }
+}
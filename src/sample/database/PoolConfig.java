@@ -0,0 +1,67 @@
+package sample.database;
+
+// Pool settings, overridable with -Ddb.pool.* system properties
+public final class PoolConfig {
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long validateAfterIdleMs;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+
+    public PoolConfig(int maxSize, long borrowTimeoutMs, long idleTimeoutMs,
+                      long maxLifetimeMs, long validateAfterIdleMs, int validationTimeoutSec,
+                      int statementCacheSize) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Pool size must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.validateAfterIdleMs = validateAfterIdleMs;
+        this.validationTimeoutSec = validationTimeoutSec;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static PoolConfig fromSystemProperties() {
+        return new PoolConfig(
+                Integer.getInteger("db.pool.maxSize", 4),
+                Long.getLong("db.pool.borrowTimeoutMs", 10_000),
+                Long.getLong("db.pool.idleTimeoutMs", 300_000),
+                Long.getLong("db.pool.maxLifetimeMs", 1_800_000),
+                Long.getLong("db.pool.validateAfterIdleMs", 500),
+                Integer.getInteger("db.pool.validationTimeoutSec", 1),
+                Integer.getInteger("db.statementCache.size", 32)
+        );
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getBorrowTimeoutMs() {
+        return borrowTimeoutMs;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public long getMaxLifetimeMs() {
+        return maxLifetimeMs;
+    }
+
+    public long getValidateAfterIdleMs() {
+        return validateAfterIdleMs;
+    }
+
+    public int getValidationTimeoutSec() {
+        return validationTimeoutSec;
+    }
+
+    // 0 turns the statement cache off
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
@@ -0,0 +1,200 @@
+package sample.database;
+
+import sample.database.metrics.DbMetrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+
+// Physical connection owned by the pool. Callers only ever see a lease handle,
+// closing the handle gives the connection back instead of closing it.
+final class PooledConnection {
+    private final Connection physical;
+    private final ConnectionPool pool;
+    private final StatementCache statements;
+    private final long createdAt;
+    private volatile long lastReturnedAt;
+    private volatile boolean broken;
+    // some call failed, the session is checked before it goes back to the pool
+    private volatile boolean suspect;
+
+    PooledConnection(Connection physical, ConnectionPool pool) {
+        this.physical = physical;
+        this.pool = pool;
+        int cacheSize = pool.getConfig().getStatementCacheSize();
+        this.statements = cacheSize > 0
+                ? new StatementCache(physical, cacheSize, pool.getStatementCacheStats())
+                : null;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+    }
+
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease());
+    }
+
+    boolean isExpired(long now, PoolConfig config) {
+        return now - createdAt >= config.getMaxLifetimeMs();
+    }
+
+    boolean isIdleTooLong(long now, PoolConfig config) {
+        return now - lastReturnedAt >= config.getIdleTimeoutMs();
+    }
+
+    boolean validate(long now, PoolConfig config) {
+        if (now - lastReturnedAt < config.getValidateAfterIdleMs())
+            return true;
+        try {
+            return physical.isValid(config.getValidationTimeoutSec());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    // Leaves the connection in auto-commit mode with no open transaction
+    boolean reset() {
+        try {
+            if (suspect) {
+                suspect = false;
+                if (!physical.isValid(pool.getConfig().getValidationTimeoutSec()))
+                    return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            physical.clearWarnings();
+            lastReturnedAt = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statements != null)
+            statements.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private final class Lease implements InvocationHandler {
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical;
+                default:
+                    break;
+            }
+            if (closed)
+                throw new SQLException("Connection has already been returned to the pool");
+
+            if (statements != null && "prepareCall".equals(method.getName()) && args.length == 1) {
+                try {
+                    return guard(DbMetrics.instrument(statements.prepareCall((String) args[0]), (String) args[0]));
+                } catch (SQLException e) {
+                    throw failed(e);
+                }
+            }
+
+            try {
+                Object result = method.invoke(physical, args);
+                if (result instanceof CallableStatement)
+                    return guard(DbMetrics.instrument((CallableStatement) result, (String) args[0]));
+                return guard(result);
+            } catch (InvocationTargetException e) {
+                throw failed(e.getCause());
+            }
+        }
+    }
+
+    private Throwable failed(Throwable cause) {
+        // e.g. releaseSavepoint on Oracle, nothing wrong with the session
+        if (cause instanceof SQLFeatureNotSupportedException)
+            return cause;
+        if (cause instanceof SQLException) {
+            String state = ((SQLException) cause).getSQLState();
+            // class 08 - connection exception, the session is no good anymore
+            if (state != null && state.startsWith("08"))
+                broken = true;
+            else
+                suspect = true;
+        }
+        return cause;
+    }
+
+    // statements and cursors of a lease report their errors to it as well,
+    // a dropped session usually shows up in execute or next, not in a Connection method
+    private Object guard(Object result) {
+        Class<?> type;
+        if (result instanceof CallableStatement)
+            type = CallableStatement.class;
+        else if (result instanceof PreparedStatement)
+            type = PreparedStatement.class;
+        else if (result instanceof Statement)
+            type = Statement.class;
+        else if (result instanceof ResultSet)
+            type = ResultSet.class;
+        else
+            return result;
+        if (Proxy.isProxyClass(result.getClass()) && Proxy.getInvocationHandler(result) instanceof Guarded)
+            return result;
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Guarded(result));
+    }
+
+    private final class Guarded implements InvocationHandler {
+        private final Object target;
+
+        Guarded(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return guard(method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw failed(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package sample.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-connection LRU cache of prepared procedure calls keyed by the call string.
+// Closing a statement handed out by the cache puts it back instead of closing it.
+public final class StatementCache {
+    private final Connection physical;
+    private final Stats stats;
+    private final Map<String, CachedStatement> statements;
+
+    StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().evict();
+                    stats.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    CallableStatement prepareCall(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached == null) {
+            stats.misses.increment();
+            cached = new CachedStatement(sql, physical.prepareCall(sql));
+            statements.put(sql, cached);
+        } else if (cached.inUse) {
+            // same call nested inside itself, don't share the statement
+            stats.misses.increment();
+            return physical.prepareCall(sql);
+        } else {
+            stats.hits.increment();
+        }
+        cached.inUse = true;
+        return cached.handle();
+    }
+
+    void closeAll() {
+        statements.values().forEach(CachedStatement::evict);
+        statements.clear();
+    }
+
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getEvictions() {
+            return evictions.sum();
+        }
+
+        public double getHitRate() {
+            long hits = getHits();
+            long total = hits + getMisses();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("statement cache: hits=%d misses=%d evictions=%d hit rate=%.2f",
+                    getHits(), getMisses(), getEvictions(), getHitRate());
+        }
+    }
+
+    private final class CachedStatement {
+        private final String sql;
+        private final CallableStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(String sql, CallableStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        CallableStatement handle() {
+            return (CallableStatement) Proxy.newProxyInstance(CallableStatement.class.getClassLoader(),
+                    new Class<?>[]{CallableStatement.class}, new Handle());
+        }
+
+        // closes cursors left open by the caller and clears binds for the next use
+        void giveBack() {
+            closeResults();
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                statements.remove(sql, this);
+                evicted = true;
+            }
+            inUse = false;
+            if (evicted)
+                closeQuietly();
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse)
+                closeQuietly();
+        }
+
+        private void closeResults() {
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            openResults.clear();
+        }
+
+        private void closeQuietly() {
+            closeResults();
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+
+        private final class Handle implements InvocationHandler {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!closed) {
+                            closed = true;
+                            giveBack();
+                        }
+                        return null;
+                    case "isClosed":
+                        return closed;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                if (closed)
+                    throw new SQLException("Statement is closed");
+
+                try {
+                    Object result = method.invoke(statement, args);
+                    if (result instanceof ResultSet)
+                        openResults.add((ResultSet) result);
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -1,22 +1,25 @@
 package sample.database.dao;
 
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
+import sample.entity.AverageMark;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class AverageMarkDao extends DAO<Double> {
     public AverageMarkDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
-    public String calcPerfStud(String start, String end, Integer studentId) {
-        try (CallableStatement cstmt = conn.prepareCall("{call calcPerfStud(?,?,?,?)}")) {
-            return getAverageMarkStudAndTeach(start, end, studentId, cstmt);
+    public String calcPerfStud(int startYear, int endYear, Integer studentId) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call calcPerfStud(?,?,?,?)}")) {
+            return getAverageMarkStudAndTeach(startYear, endYear, studentId, cstmt);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
             e.printStackTrace();
@@ -24,19 +27,20 @@ public class AverageMarkDao extends DAO<Double> {
         }
     }
 
-    public String calcPerfTeacher(String start, String end, Integer teacherId) {
-        try (CallableStatement cstmt = conn.prepareCall("{call calcPerfTeacher(?,?,?,?)}")) {
-            return getAverageMarkStudAndTeach(start, end, teacherId, cstmt);
+    public String calcPerfTeacher(int startYear, int endYear, Integer teacherId) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call calcPerfTeacher(?,?,?,?)}")) {
+            return getAverageMarkStudAndTeach(startYear, endYear, teacherId, cstmt);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
             return null;
         }
     }
 
-    private String getAverageMarkStudAndTeach(String start, String end, Integer id,
+    private String getAverageMarkStudAndTeach(int startYear, int endYear, Integer id,
                                               CallableStatement cstmt) throws SQLException {
-        cstmt.setString(1, start);
-        cstmt.setString(2, end);
+        cstmt.setInt(1, startYear);
+        cstmt.setInt(2, endYear);
         cstmt.setInt(3, id);
         cstmt.registerOutParameter(4, Types.REF_CURSOR);
         cstmt.executeQuery();
@@ -48,28 +52,30 @@ public class AverageMarkDao extends DAO<Double> {
         return null;
     }
 
-    public String calcPerfGroup(String start, String end, String groupName) {
-        try (CallableStatement cstmt = conn.prepareCall("{call calcPerfGroup(?,?,?,?)}")) {
-            return getAverageMarkGroupAndSubj(start, end, groupName, cstmt);
+    public String calcPerfGroup(int startYear, int endYear, String groupName) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call calcPerfGroup(?,?,?,?)}")) {
+            return getAverageMarkGroupAndSubj(startYear, endYear, groupName, cstmt);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
             return null;
         }
     }
 
-    public String calcPerfSubj(String start, String end, String subjName) {
-        try (CallableStatement cstmt = conn.prepareCall("{call calcPerfSubj(?,?,?,?)}")) {
-            return getAverageMarkGroupAndSubj(start, end, subjName, cstmt);
+    public String calcPerfSubj(int startYear, int endYear, String subjName) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call calcPerfSubj(?,?,?,?)}")) {
+            return getAverageMarkGroupAndSubj(startYear, endYear, subjName, cstmt);
         } catch (SQLException e) {
             System.out.println(e.getMessage());
             return null;
         }
     }
 
-    private String getAverageMarkGroupAndSubj(String start, String end, String name,
+    private String getAverageMarkGroupAndSubj(int startYear, int endYear, String name,
                                               CallableStatement cstmt) throws SQLException {
-        cstmt.setString(1, start);
-        cstmt.setString(2, end);
+        cstmt.setInt(1, startYear);
+        cstmt.setInt(2, endYear);
         cstmt.setString(3, name);
         cstmt.registerOutParameter(4, Types.REF_CURSOR);
         cstmt.executeQuery();
@@ -81,6 +87,77 @@ public class AverageMarkDao extends DAO<Double> {
         return null;
     }
 
+    // averages of every student/teacher/group/subject with marks in the range, one grouped query
+    public boolean forEachAverage(AverageMark.Scope scope, int startYear, int endYear,
+                                  Consumer<? super AverageMark> action) {
+        String procedure = averageProcedure(scope);
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call " + procedure + "(?,?,?)}")) {
+            cstmt.setInt(1, startYear);
+            cstmt.setInt(2, endYear);
+
+            try (ResultSet rs = executeCursor(cstmt, 3, fetchSize(procedure))) {
+                while (rs.next()) {
+                    action.accept(new AverageMark(
+                            rs.getInt(1),
+                            rs.getString(2),
+                            rs.getDouble(3),
+                            rs.getInt(4)
+                    ));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    private static String averageProcedure(AverageMark.Scope scope) {
+        switch (scope) {
+            case STUDENTS:
+                return "calcPerfStudAll";
+            case TEACHERS:
+                return "calcPerfTeacherAll";
+            case GROUPS:
+                return "calcPerfGroupAll";
+            default:
+                return "calcPerfSubjAll";
+        }
+    }
+
+    // prints the MARK_TOTALS rows that differ from a full recount, -1 if the check failed
+    public int verifyTotals() {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call verify_mark_totals(?)}");
+             ResultSet rs = executeCursor(cstmt, 1, fetchSize("verify_mark_totals"))) {
+            int drifted = 0;
+            while (rs.next()) {
+                drifted++;
+                // sum/count/without value/students
+                System.out.println(String.format("%s %d, year %d: stored %s/%s/%s/%s, actual %s/%s/%s/%s",
+                        rs.getString(1), rs.getInt(2), rs.getInt(3),
+                        rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+                        rs.getString(8), rs.getString(9), rs.getString(10), rs.getString(11)));
+            }
+            return drifted;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+    }
+
+    public boolean rebuildTotals() {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call rebuild_mark_totals}")) {
+            cstmt.execute();
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+
     @Override
     public ObservableList<Double> findAll() {
         return null;
@@ -97,8 +174,8 @@ public class AverageMarkDao extends DAO<Double> {
     }
 
     @Override
-    public void update(Double _old, Double _new) {
-
+    public boolean update(Double _old, Double _new) {
+        return false;
     }
 
     @Override
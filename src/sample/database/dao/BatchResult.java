@@ -0,0 +1,89 @@
+package sample.database.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Outcome of a batched write: how many rows made it and which ones didn't
+public final class BatchResult<T> {
+    private final int submitted;
+    private int saved;
+    private String abortReason;
+    private final List<Failure<T>> failures = new ArrayList<>();
+
+    public BatchResult(int submitted) {
+        this.submitted = submitted;
+    }
+
+    void addSaved(int count) {
+        saved += count;
+    }
+
+    void abort(String reason) {
+        this.abortReason = reason;
+    }
+
+    void addFailure(int index, T item, String message) {
+        failures.add(new Failure<>(index, item, message));
+    }
+
+    public int getSubmitted() {
+        return submitted;
+    }
+
+    public int getSaved() {
+        return saved;
+    }
+
+    public List<Failure<T>> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    // the whole batch was rolled back, e.g. because the connection was lost
+    public boolean isAborted() {
+        return abortReason != null;
+    }
+
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d rows saved, %d failed", saved, submitted, failures.size());
+    }
+
+    public static final class Failure<T> {
+        private final int index;
+        private final T item;
+        private final String message;
+
+        Failure(int index, T item, String message) {
+            this.index = index;
+            this.item = item;
+            this.message = message;
+        }
+
+        // position of the row in the submitted collection
+        public int getIndex() {
+            return index;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "row " + index + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package sample.database.dao;
+
+import sample.database.DBConnection;
+import sample.entity.AverageMark;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+
+// del_cascade of cascade.sql: deletes a group, student, teacher or subject with its
+// dependent rows a chunk per call, each chunk in its own transaction
+public class CascadeDao {
+    // dependent rows still in the db after a call
+    public static final class Left {
+        private final int marks;
+        private final int people;
+
+        public Left(int marks, int people) {
+            this.marks = marks;
+            this.people = people;
+        }
+
+        public int getMarks() {
+            return marks;
+        }
+
+        // students of a group, 0 for the other kinds
+        public int getPeople() {
+            return people;
+        }
+
+        public int total() {
+            return marks + people;
+        }
+
+        // nothing left, the row itself is deleted too
+        public boolean isEmpty() {
+            return total() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return marks + " marks, " + people + " people left";
+        }
+    }
+
+    public CascadeDao() throws SQLException {
+        DBConnection.getPool();
+    }
+
+    // deletes at most maxRows dependent rows of the id, 0 only counts them; null if the call failed
+    public Left deleteChunk(AverageMark.Scope scope, int id, int maxRows) {
+        try (Connection conn = DBConnection.getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_cascade(?,?,?,?,?)}")) {
+            cstmt.setString(1, scope.name());
+            cstmt.setInt(2, id);
+            cstmt.setInt(3, maxRows);
+            cstmt.registerOutParameter(4, Types.NUMERIC);
+            cstmt.registerOutParameter(5, Types.NUMERIC);
+            cstmt.execute();
+            return new Left(cstmt.getInt(4), cstmt.getInt(5));
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+}
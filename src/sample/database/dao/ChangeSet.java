@@ -0,0 +1,47 @@
+package sample.database.dao;
+
+import java.util.Collections;
+import java.util.List;
+
+// Rows inserted or changed and ids deleted after a watermark, see changes.sql.
+// A full change set holds the whole table and replaces whatever the caller had.
+public final class ChangeSet<T> {
+    private final List<T> rows;
+    private final List<Integer> deletedIds;
+    private final long watermark;
+    private final boolean full;
+
+    public ChangeSet(List<T> rows, List<Integer> deletedIds, long watermark, boolean full) {
+        this.rows = Collections.unmodifiableList(rows);
+        this.deletedIds = Collections.unmodifiableList(deletedIds);
+        this.watermark = watermark;
+        this.full = full;
+    }
+
+    public List<T> getRows() {
+        return rows;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    // pass it to the next findChangedSince
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public boolean isEmpty() {
+        return !full && rows.isEmpty() && deletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d rows, %d deleted, watermark %d",
+                full ? "full" : "delta", rows.size(), deletedIds.size(), watermark);
+    }
+}
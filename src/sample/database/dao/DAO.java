@@ -1,24 +1,199 @@
 package sample.database.dao;
 
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import sample.database.DBConnection;
 
+import java.sql.BatchUpdateException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public abstract class DAO<T> {
-    protected static Connection conn;
+    // rows per round trip when reading a cursor, the Oracle driver defaults to 10
+    private static final int DEFAULT_FETCH_SIZE = Integer.getInteger("db.fetchSize", 500);
+
+    protected DAO() throws SQLException {
+        DBConnection.getPool();
+    }
+
+    // every operation borrows its own connection, closing it returns it to the pool
+    protected static Connection getConnection() throws SQLException {
+        return DBConnection.getConnection();
+    }
 
     public abstract ObservableList<T> findAll();
     public abstract void save(T t);
     public abstract void delete(T t);
-    public abstract void update(T _old, T _new);
+    // false if the db refused the change
+    public abstract boolean update(T _old, T _new);
 
     public abstract List<Integer> countDependencies(T t);
 
+    // hands every row of findAll to action, false if the query failed. This default collects the
+    // list first; DAOs reading a single cursor override it to pass rows on as they are read (forEachRow)
+    public boolean forEach(Consumer<? super T> action) {
+        ObservableList<T> all = findAll();
+        if (all == null)
+            return false;
+        all.forEach(action);
+        return true;
+    }
+
+    // findAll as a stream. Lazy only where overridden with streamRows, such a stream
+    // holds a pooled connection until it is closed
+    public Stream<T> stream() {
+        ObservableList<T> all = findAll();
+        return all == null ? Stream.empty() : all.stream();
+    }
+
+    @FunctionalInterface
+    protected interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // fetch size for a procedure: -Ddb.fetchSize.<procedure>, then -Ddb.fetchSize
+    protected static int fetchSize(String procedure) {
+        return Integer.getInteger("db.fetchSize." + procedure, DEFAULT_FETCH_SIZE);
+    }
+
+    // executes a call whose in parameters are already bound and opens its out cursor
+    protected static ResultSet executeCursor(CallableStatement cstmt, int cursorParam,
+                                             int fetchSize) throws SQLException {
+        cstmt.registerOutParameter(cursorParam, Types.REF_CURSOR);
+        cstmt.setFetchSize(fetchSize);
+        cstmt.executeQuery();
+        ResultSet rs = cstmt.getObject(cursorParam, ResultSet.class);
+        rs.setFetchSize(fetchSize);
+        return rs;
+    }
+
+    // the procedures below take a single out cursor param, e.g. get_students(cursor)
+    protected static <R> ObservableList<R> listRows(String procedure, RowMapper<R> mapper) {
+        ObservableList<R> res = FXCollections.observableArrayList();
+        return forEachRow(procedure, mapper, res::add) ? res : null;
+    }
+
+    protected static <R> boolean forEachRow(String procedure, RowMapper<R> mapper,
+                                            Consumer<? super R> action) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call " + procedure + "(?)}");
+             ResultSet rs = executeCursor(cstmt, 1, fetchSize(procedure))) {
+            while (rs.next()) {
+                action.accept(mapper.map(rs));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    protected static <R> Stream<R> streamRows(String procedure, RowMapper<R> mapper) {
+        Connection conn = null;
+        CallableStatement cstmt = null;
+        ResultSet rs;
+        try {
+            conn = getConnection();
+            cstmt = conn.prepareCall("{call " + procedure + "(?)}");
+            rs = executeCursor(cstmt, 1, fetchSize(procedure));
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            closeQuietly(cstmt, conn);
+            return Stream.empty();
+        }
+
+        CallableStatement statement = cstmt;
+        Connection connection = conn;
+        Spliterator<R> rows = new Spliterators.AbstractSpliterator<R>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super R> action) {
+                try {
+                    if (!rs.next())
+                        return false;
+                    action.accept(mapper.map(rs));
+                    return true;
+                } catch (SQLException e) {
+                    // a half read stream must not look like a complete one
+                    throw new IllegalStateException("Reading " + procedure + " failed: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(rows, false).onClose(() -> closeQuietly(rs, statement, connection));
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null)
+                continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+
+    // the *_changed procedures of changes.sql: (since, rows cursor, deleted ids cursor, watermark, is_full)
+    protected static <R> ChangeSet<R> findChanges(String procedure, long since, RowMapper<R> mapper) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call " + procedure + "(?,?,?,?,?)}")) {
+            cstmt.setLong(1, since);
+            cstmt.registerOutParameter(3, Types.REF_CURSOR);
+            cstmt.registerOutParameter(4, Types.NUMERIC);
+            cstmt.registerOutParameter(5, Types.NUMERIC);
+
+            List<R> rows = new ArrayList<>();
+            try (ResultSet rs = executeCursor(cstmt, 2, fetchSize(procedure))) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+            List<Integer> deleted = new ArrayList<>();
+            try (ResultSet rs = cstmt.getObject(3, ResultSet.class)) {
+                while (rs.next()) {
+                    deleted.add(rs.getInt(1));
+                }
+            }
+            return new ChangeSet<>(rows, deleted, cstmt.getLong(4), cstmt.getInt(5) == 1);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    // reads a *_page_keys call: total rows in totalParam, page keys in cursorParam
+    protected static PageIndex getPageIndex(CallableStatement cstmt, int totalParam,
+                                            int cursorParam) throws SQLException {
+        int total = cstmt.getInt(totalParam);
+        try (ResultSet rs = cstmt.getObject(cursorParam, ResultSet.class)) {
+            int[] lastIds = new int[16];
+            int pages = 0;
+            while (rs.next()) {
+                if (pages == lastIds.length)
+                    lastIds = Arrays.copyOf(lastIds, pages * 2);
+                lastIds[pages++] = rs.getInt(1);
+            }
+            return new PageIndex(total, Arrays.copyOf(lastIds, pages));
+        }
+    }
+
     protected static List<Integer> getCount(CallableStatement cstmt) throws SQLException {
         try (ResultSet rs = cstmt.getObject(2, ResultSet.class)) {
             List<Integer> res = new ArrayList<>();
@@ -29,4 +204,107 @@ public abstract class DAO<T> {
             return res;
         }
     }
+
+    @FunctionalInterface
+    protected interface Binder<T> {
+        void bind(CallableStatement cstmt, T t) throws SQLException;
+    }
+
+    // Runs the call once per item as JDBC batches of chunkSize rows inside one transaction.
+    // Items rejected by the validator never reach the db. A chunk the db refuses is rolled
+    // back to its savepoint and replayed row by row, so only the offending rows are lost.
+    protected static <T> BatchResult<T> saveBatch(String call, List<T> items, int chunkSize,
+                                                  Function<T, String> validator, Binder<T> binder) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+
+        Map<Integer, String> failures = new TreeMap<>();
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            String error = validator == null ? null : validator.apply(items.get(i));
+            if (error == null)
+                valid.add(i);
+            else
+                failures.put(i, error);
+        }
+
+        int saved = 0;
+        String aborted = null;
+        if (!valid.isEmpty()) {
+            try (Connection conn = getConnection();
+                 CallableStatement cstmt = conn.prepareCall(call)) {
+                conn.setAutoCommit(false);
+                try {
+                    for (int from = 0; from < valid.size(); from += chunkSize) {
+                        List<Integer> chunk = valid.subList(from, Math.min(from + chunkSize, valid.size()));
+                        saved += executeChunk(conn, cstmt, items, chunk, binder, failures);
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                System.out.println(e.getMessage());
+                // the transaction is gone, none of the rows were stored
+                saved = 0;
+                aborted = e.getMessage();
+                for (int i : valid) {
+                    failures.putIfAbsent(i, e.getMessage());
+                }
+            }
+        }
+
+        BatchResult<T> result = new BatchResult<>(items.size());
+        result.addSaved(saved);
+        if (aborted != null)
+            result.abort(aborted);
+        failures.forEach((i, message) -> result.addFailure(i, items.get(i), message));
+        return result;
+    }
+
+    private static <T> int executeChunk(Connection conn, CallableStatement cstmt, List<T> items,
+                                        List<Integer> chunk, Binder<T> binder,
+                                        Map<Integer, String> failures) throws SQLException {
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            for (int i : chunk) {
+                binder.bind(cstmt, items.get(i));
+                cstmt.addBatch();
+            }
+            cstmt.executeBatch();
+            releaseSavepoint(conn, savepoint);
+            return chunk.size();
+        } catch (BatchUpdateException e) {
+            cstmt.clearBatch();
+            conn.rollback(savepoint);
+            releaseSavepoint(conn, savepoint);
+        }
+
+        int saved = 0;
+        for (int i : chunk) {
+            try {
+                binder.bind(cstmt, items.get(i));
+                cstmt.execute();
+                saved++;
+            } catch (SQLException e) {
+                if (isConnectionError(e))
+                    throw e;
+                failures.put(i, e.getMessage());
+            }
+        }
+        return saved;
+    }
+
+    // the Oracle driver has no releaseSavepoint, there they all go with the commit
+    private static void releaseSavepoint(Connection conn, Savepoint savepoint) throws SQLException {
+        try {
+            conn.releaseSavepoint(savepoint);
+        } catch (SQLFeatureNotSupportedException ignored) {
+        }
+    }
+
+    protected static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
 }
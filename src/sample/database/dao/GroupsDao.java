@@ -1,46 +1,54 @@
 package sample.database.dao;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
 import sample.entity.Group;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class GroupsDao extends DAO<Group> {
     public GroupsDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
     @Override
     public ObservableList<Group> findAll() {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_groups(?)}")) {
-            cstmt.registerOutParameter(1, Types.REF_CURSOR);
-            cstmt.executeQuery();
+        return listRows("get_groups", GroupsDao::mapGroup);
+    }
 
-            try (ResultSet rs = cstmt.getObject(1, ResultSet.class)) {
-                ObservableList<Group> res = FXCollections.observableArrayList();
-                while(rs.next()) {
-                    res.add(new Group(rs.getString(1)));
-                }
-                return res;
-            }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            return null;
-        }
+    @Override
+    public boolean forEach(Consumer<? super Group> action) {
+        return forEachRow("get_groups", GroupsDao::mapGroup, action);
+    }
+
+    @Override
+    public Stream<Group> stream() {
+        return streamRows("get_groups", GroupsDao::mapGroup);
+    }
+
+    // rows changed and ids deleted after watermark, everything if it is 0
+    public ChangeSet<Group> findChangedSince(long watermark) {
+        return findChanges("get_groups_changed", watermark, GroupsDao::mapGroup);
+    }
+
+    private static Group mapGroup(ResultSet rs) throws SQLException {
+        return new Group(rs.getInt(1), rs.getString(2));
     }
 
     @Override
     public void save(Group group) {
-        try (CallableStatement cstmt = conn.prepareCall("{call add_groups(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call add_groups(?)}")) {
             cstmt.setString(1, group.getName());
             cstmt.executeQuery();
+            NameIdDictionary.GROUPS.invalidate();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -48,29 +56,39 @@ public class GroupsDao extends DAO<Group> {
 
     @Override
     public void delete(Group group) {
-        try (CallableStatement cstmt = conn.prepareCall("{call del_groups(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_groups(?)}")) {
             cstmt.setString(1, group.getName());
             cstmt.executeQuery();
+            NameIdDictionary.GROUPS.remove(group.getName());
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
     @Override
-    public void update(Group _old, Group _new) {
-        try (CallableStatement cstmt = conn.prepareCall("{call upd_groups(?,?)}")) {
+    public boolean update(Group _old, Group _new) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call upd_groups(?,?)}")) {
             cstmt.setString(1, _old.getName());
             cstmt.setString(2, _new.getName());
             cstmt.executeQuery();
+            NameIdDictionary.GROUPS.rename(_old.getName(), _new.getName());
+            return true;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            return false;
         }
     }
 
     @Override
     public List<Integer> countDependencies(Group group) {
-        try (CallableStatement cstmt = conn.prepareCall("{call count_group_dependencies(?,?)}")) {
-            cstmt.setString(1, group.getName());
+        Integer id = group.getId() != null ? group.getId() : NameIdDictionary.GROUPS.idOf(group.getName());
+        if (id == null)
+            return null;
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call count_group_dependencies(?,?)}")) {
+            cstmt.setInt(1, id);
             cstmt.registerOutParameter(2, Types.REF_CURSOR);
             cstmt.executeQuery();
 
@@ -2,19 +2,24 @@ package sample.database.dao;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
+import sample.entity.Group;
 import sample.entity.Mark;
 import sample.entity.Student;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 public class MarkDao extends DAO<Mark> {
     public MarkDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
     @Override
@@ -23,22 +28,14 @@ public class MarkDao extends DAO<Mark> {
     }
 
     public ObservableList<Mark> findAllByStudent(Student student) {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_marks(?,?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_marks(?,?)}")) {
             cstmt.setInt(1, student.getId());
-            cstmt.registerOutParameter(2, Types.REF_CURSOR);
-            cstmt.executeQuery();
 
-            try (ResultSet rs = cstmt.getObject(2, ResultSet.class)) {
+            try (ResultSet rs = executeCursor(cstmt, 2, fetchSize("get_marks"))) {
                 ObservableList<Mark> res = FXCollections.observableArrayList();
                 while(rs.next()) {
-                    res.add(new Mark(
-                                    rs.getInt(1),
-                                    rs.getString(2),
-                                    rs.getString(3),
-                                    rs.getString(4),
-                                    rs.getInt(5)
-                            )
-                    );
+                    res.add(mapMark(rs));
                 }
                 return res;
             }
@@ -48,22 +45,137 @@ public class MarkDao extends DAO<Mark> {
         }
     }
 
+    // marks of the student ordered by id, starting right after afterId
+    public List<Mark> findPageByStudent(Student student, Integer afterId, int limit) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_marks_page(?,?,?,?)}")) {
+            cstmt.setInt(1, student.getId());
+            cstmt.setInt(2, afterId == null ? 0 : afterId);
+            cstmt.setInt(3, limit);
+
+            // the whole page in one round trip
+            try (ResultSet rs = executeCursor(cstmt, 4, limit)) {
+                List<Mark> res = new ArrayList<>(limit);
+                while (rs.next()) {
+                    res.add(mapMark(rs));
+                }
+                return res;
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    public PageIndex findPageIndexByStudent(Student student, int pageSize) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_marks_page_keys(?,?,?,?)}")) {
+            cstmt.setInt(1, student.getId());
+            cstmt.setInt(2, pageSize);
+            cstmt.registerOutParameter(3, Types.INTEGER);
+            cstmt.registerOutParameter(4, Types.REF_CURSOR);
+            cstmt.executeQuery();
+
+            return getPageIndex(cstmt, 3, 4);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    // Marks of every student of the group in one call: student id -> marks ordered by id, a student
+    // without marks gets an empty list. Null if the call failed or the group has more than maxMarks marks.
+    public Map<Integer, List<Mark>> findAllByGroup(Group group, int maxMarks) {
+        Integer id = group.getId() != null ? group.getId() : NameIdDictionary.GROUPS.idOf(group.getName());
+        if (id == null)
+            return null;
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_marks_by_group(?,?,?,?)}")) {
+            cstmt.setInt(1, id);
+            cstmt.setInt(2, maxMarks);
+            cstmt.registerOutParameter(3, Types.NUMERIC);
+
+            try (ResultSet rs = executeCursor(cstmt, 4, fetchSize("get_marks_by_group"))) {
+                if (cstmt.getInt(3) > maxMarks)
+                    return null;
+                Map<Integer, List<Mark>> res = new LinkedHashMap<>();
+                while (rs.next()) {
+                    int studentId = rs.getInt(1);
+                    List<Mark> marks = res.computeIfAbsent(studentId, k -> new ArrayList<>());
+                    int markId = rs.getInt(2);
+                    if (rs.wasNull())
+                        continue;
+                    Mark mark = new Mark(markId, rs.getString(3), rs.getString(4),
+                            rs.getString(5), rs.getInt(6));
+                    mark.setStudentId(studentId);
+                    marks.add(mark);
+                }
+                return res;
+            }
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    private static Mark mapMark(ResultSet rs) throws SQLException {
+        return new Mark(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getInt(5)
+        );
+    }
+
     @Override
     public void save(Mark mark) {
-        try (CallableStatement cstmt = conn.prepareCall("{call add_marks(?,?,?,?)}")) {
-            cstmt.setInt(1, mark.getStudentId());
-            cstmt.setString(2, mark.getSubjectName());
-            cstmt.setInt(3, mark.getTeacherId());
-            cstmt.setInt(4, mark.getValue());
+        // a miss reloads the dictionary over a connection of its own, so the id is looked up first
+        if (!resolveSubject(mark)) {
+            System.out.println("Unknown subject: " + mark.getSubjectName());
+            return;
+        }
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call add_marks_by_id(?,?,?,?)}")) {
+            bindNewMark(cstmt, mark);
             cstmt.executeQuery();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    // the validator runs before the batch borrows its connection
+    public BatchResult<Mark> saveAll(List<Mark> marks, int chunkSize, Function<Mark, String> validator) {
+        return saveBatch("{call add_marks_by_id(?,?,?,?)}", marks, chunkSize, m -> {
+            String error = validator == null ? null : validator.apply(m);
+            if (error == null && !resolveSubject(m))
+                error = "Unknown subject: " + m.getSubjectName();
+            return error;
+        }, MarkDao::bindNewMark);
+    }
+
+    private static void bindNewMark(CallableStatement cstmt, Mark mark) throws SQLException {
+        cstmt.setInt(1, mark.getStudentId());
+        cstmt.setInt(2, mark.getSubjectId());
+        cstmt.setInt(3, mark.getTeacherId());
+        cstmt.setInt(4, mark.getValue());
+    }
+
+    // marks built from a Subject carry its id, otherwise the name is looked up and the id kept
+    private static boolean resolveSubject(Mark mark) {
+        if (mark.getSubjectId() != null)
+            return true;
+        Integer id = NameIdDictionary.SUBJECTS.idOf(mark.getSubjectName());
+        if (id == null)
+            return false;
+        mark.setSubjectId(id);
+        return true;
+    }
+
     @Override
     public void delete(Mark mark) {
-        try (CallableStatement cstmt = conn.prepareCall("{call del_marks(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_marks(?)}")) {
             cstmt.setInt(1, mark.getId());
             cstmt.executeQuery();
         } catch (SQLException e) {
@@ -72,13 +184,16 @@ public class MarkDao extends DAO<Mark> {
     }
 
     @Override
-    public void update(Mark _old, Mark _new) {
-        try (CallableStatement cstmt = conn.prepareCall("{call upd_marks(?,?)}")) {
+    public boolean update(Mark _old, Mark _new) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call upd_marks(?,?)}")) {
             cstmt.setInt(1, _old.getId());
             cstmt.setInt(2, _new.getValue());
             cstmt.executeQuery();
+            return true;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            return false;
         }
     }
 
@@ -0,0 +1,59 @@
+package sample.database.dao;
+
+import sample.database.DBConnection;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Bulk reads for the in-memory analytics: marks as bare keys, no entity objects per row
+public class MarkFactDao {
+    @FunctionalInterface
+    public interface FactSink {
+        void accept(int id, int studentId, int subjectId, int teacherId, int groupId, int year, int value);
+    }
+
+    @FunctionalInterface
+    public interface NameSink {
+        void accept(char kind, int id, String name);
+    }
+
+    public MarkFactDao() throws SQLException {
+        DBConnection.getPool();
+    }
+
+    // marks with id > afterId in id order, false if the query failed
+    public boolean forEachFact(int afterId, FactSink sink) {
+        try (Connection conn = DBConnection.getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_mark_facts(?,?)}")) {
+            cstmt.setInt(1, afterId);
+
+            try (ResultSet rs = DAO.executeCursor(cstmt, 2, DAO.fetchSize("get_mark_facts"))) {
+                while (rs.next()) {
+                    sink.accept(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                            rs.getInt(5), rs.getInt(6), rs.getInt(7));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+
+    // kind is S (student), T (teacher), G (group) or J (subject)
+    public boolean forEachName(NameSink sink) {
+        try (Connection conn = DBConnection.getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_mark_names(?)}");
+             ResultSet rs = DAO.executeCursor(cstmt, 1, DAO.fetchSize("get_mark_names"))) {
+            while (rs.next()) {
+                sink.accept(rs.getString(1).charAt(0), rs.getInt(2), rs.getString(3));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package sample.database.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Name <-> id map of a small reference table, so write paths can send ids instead of
+// making the procedures look the names up. Filled from the table's get_* procedure
+// (ID, NAME) on first use and again on a miss, at most once per second.
+// The owning DAO keeps it in step with its own adds, renames and deletes.
+final class NameIdDictionary {
+    static final NameIdDictionary GROUPS = new NameIdDictionary("get_groups");
+    static final NameIdDictionary SUBJECTS = new NameIdDictionary("get_subjects");
+
+    private static final long MISS_RELOAD_INTERVAL_MS = 1000;
+
+    private final String procedure;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private boolean loaded;
+    private long loadedAt;
+
+    private NameIdDictionary(String procedure) {
+        this.procedure = procedure;
+    }
+
+    synchronized Integer idOf(String name) {
+        if (name == null)
+            return null;
+        Integer id = ids.get(name);
+        if (id == null && reloadAllowed()) {
+            reload();
+            id = ids.get(name);
+        }
+        return id;
+    }
+
+    synchronized String nameOf(Integer id) {
+        if (id == null)
+            return null;
+        String name = names.get(id);
+        if (name == null && reloadAllowed()) {
+            reload();
+            name = names.get(id);
+        }
+        return name;
+    }
+
+    synchronized void put(Integer id, String name) {
+        String oldName = names.put(id, name);
+        if (oldName != null && !oldName.equals(name))
+            ids.remove(oldName);
+        Integer oldId = ids.put(name, id);
+        if (oldId != null && !oldId.equals(id))
+            names.remove(oldId);
+    }
+
+    synchronized void rename(String oldName, String newName) {
+        Integer id = ids.remove(oldName);
+        if (id != null)
+            put(id, newName);
+    }
+
+    synchronized void remove(String name) {
+        Integer id = ids.remove(name);
+        if (id != null)
+            names.remove(id);
+    }
+
+    // the id of a new row is not known here, the next lookup of it reloads
+    synchronized void invalidate() {
+        loaded = false;
+    }
+
+    private boolean reloadAllowed() {
+        return !loaded || System.currentTimeMillis() - loadedAt >= MISS_RELOAD_INTERVAL_MS;
+    }
+
+    private void reload() {
+        Map<String, Integer> freshIds = new HashMap<>();
+        boolean ok = DAO.forEachRow(procedure, rs -> Map.entry(rs.getString(2), rs.getInt(1)),
+                row -> freshIds.put(row.getKey(), row.getValue()));
+        loadedAt = System.currentTimeMillis();
+        if (!ok)
+            return;
+
+        ids.clear();
+        names.clear();
+        freshIds.forEach((name, id) -> put(id, name));
+        loaded = true;
+    }
+}
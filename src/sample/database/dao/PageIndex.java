@@ -0,0 +1,29 @@
+package sample.database.dao;
+
+// Row count and the id of the last row of every full page, so any page
+// can be fetched with a keyset query ("id > afterId") without OFFSET
+public final class PageIndex {
+    public static final PageIndex EMPTY = new PageIndex(0, new int[0]);
+
+    private final int total;
+    private final int[] lastIds;
+
+    public PageIndex(int total, int[] lastIds) {
+        this.total = total;
+        this.lastIds = lastIds;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    // true if id falls into one of the full pages, not into the last one or after it
+    public boolean covers(int id) {
+        return lastIds.length > 0 && id <= lastIds[lastIds.length - 1];
+    }
+
+    // key to pass to findPage for the given page, null for the first one
+    public Integer afterId(int page) {
+        return page == 0 ? null : lastIds[page - 1];
+    }
+}
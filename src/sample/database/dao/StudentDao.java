@@ -1,39 +1,57 @@
 package sample.database.dao;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
 import sample.entity.Student;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class StudentDao extends DAO<Student> {
     public StudentDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
     @Override
     public ObservableList<Student> findAll() {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_students(?)}")) {
-            cstmt.registerOutParameter(1, Types.REF_CURSOR);
-            cstmt.executeQuery();
+        return listRows("get_students", StudentDao::mapStudent);
+    }
+
+    @Override
+    public boolean forEach(Consumer<? super Student> action) {
+        return forEachRow("get_students", StudentDao::mapStudent, action);
+    }
+
+    @Override
+    public Stream<Student> stream() {
+        return streamRows("get_students", StudentDao::mapStudent);
+    }
+
+    public ChangeSet<Student> findChangedSince(long watermark) {
+        return findChanges("get_students_changed", watermark, StudentDao::mapStudent);
+    }
+
+    // students ordered by id, starting right after afterId
+    public List<Student> findPage(Integer afterId, int limit) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_students_page(?,?,?)}")) {
+            cstmt.setInt(1, afterId == null ? 0 : afterId);
+            cstmt.setInt(2, limit);
 
-            try (ResultSet rs = cstmt.getObject(1, ResultSet.class)) {
-                ObservableList<Student> res = FXCollections.observableArrayList();
+            // the whole page in one round trip
+            try (ResultSet rs = executeCursor(cstmt, 3, limit)) {
+                List<Student> res = new ArrayList<>(limit);
                 while (rs.next()) {
-                    res.add(new Student(
-                                rs.getInt(1),
-                                rs.getString(2),
-                                rs.getString(3),
-                                rs.getString(4),
-                                rs.getString(5)
-                            )
-                    );
+                    res.add(mapStudent(rs));
                 }
                 return res;
             }
@@ -43,22 +61,75 @@ public class StudentDao extends DAO<Student> {
         }
     }
 
+    public PageIndex findPageIndex(int pageSize) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_students_page_keys(?,?,?)}")) {
+            cstmt.setInt(1, pageSize);
+            cstmt.registerOutParameter(2, Types.INTEGER);
+            cstmt.registerOutParameter(3, Types.REF_CURSOR);
+            cstmt.executeQuery();
+
+            return getPageIndex(cstmt, 2, 3);
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            return null;
+        }
+    }
+
+    private static Student mapStudent(ResultSet rs) throws SQLException {
+        return new Student(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getString(5)
+        );
+    }
+
     @Override
     public void save(Student student) {
-        try (CallableStatement cstmt = conn.prepareCall("{call add_students(?,?,?,?)}")) {
-            cstmt.setString(1, student.getFirstName());
-            cstmt.setString(2, student.getLastName());
-            cstmt.setString(3, student.getFatherName());
-            cstmt.setString(4, student.getGroupName());
+        // a miss reloads the dictionary over a connection of its own, so the id is looked up first
+        Integer groupId = NameIdDictionary.GROUPS.idOf(student.getGroupName());
+        if (groupId == null) {
+            System.out.println("Unknown group: " + student.getGroupName());
+            return;
+        }
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call add_students_by_id(?,?,?,?)}")) {
+            bindNewStudent(cstmt, student, groupId);
             cstmt.executeQuery();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    public BatchResult<Student> saveAll(List<Student> students, int chunkSize,
+                                        Function<Student, String> validator) {
+        // the validator runs before the batch borrows its connection
+        Map<Student, Integer> groupIds = new IdentityHashMap<>();
+        return saveBatch("{call add_students_by_id(?,?,?,?)}", students, chunkSize, s -> {
+            String error = validator == null ? null : validator.apply(s);
+            if (error != null)
+                return error;
+            Integer groupId = NameIdDictionary.GROUPS.idOf(s.getGroupName());
+            if (groupId == null)
+                return "Unknown group: " + s.getGroupName();
+            groupIds.put(s, groupId);
+            return null;
+        }, (cstmt, s) -> bindNewStudent(cstmt, s, groupIds.get(s)));
+    }
+
+    private static void bindNewStudent(CallableStatement cstmt, Student student, int groupId) throws SQLException {
+        cstmt.setString(1, student.getFirstName());
+        cstmt.setString(2, student.getLastName());
+        cstmt.setString(3, student.getFatherName());
+        cstmt.setInt(4, groupId);
+    }
+
     @Override
     public void delete(Student student) {
-        try (CallableStatement cstmt = conn.prepareCall("{call del_students(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_students(?)}")) {
             cstmt.setInt(1, student.getId());
             cstmt.executeQuery();
         } catch (SQLException e) {
@@ -67,22 +138,31 @@ public class StudentDao extends DAO<Student> {
     }
 
     @Override
-    public void update(Student _old, Student _new) {
-        try (CallableStatement cstmt = conn.prepareCall("{call upd_students(?,?,?,?,?)}")) {
+    public boolean update(Student _old, Student _new) {
+        Integer groupId = NameIdDictionary.GROUPS.idOf(_new.getGroupName());
+        if (groupId == null) {
+            System.out.println("Unknown group: " + _new.getGroupName());
+            return false;
+        }
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call upd_students_by_id(?,?,?,?,?)}")) {
             cstmt.setInt(1, _old.getId());
             cstmt.setString(2, _new.getFirstName());
             cstmt.setString(3, _new.getLastName());
             cstmt.setString(4, _new.getFatherName());
-            cstmt.setString(5, _new.getGroupName());
+            cstmt.setInt(5, groupId);
             cstmt.executeQuery();
+            return true;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            return false;
         }
     }
 
     @Override
     public List<Integer> countDependencies(Student student) {
-        try (CallableStatement cstmt = conn.prepareCall("{call count_stud_dependencies(?,?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call count_stud_dependencies(?,?)}")) {
             cstmt.setInt(1, student.getId());
             cstmt.registerOutParameter(2, Types.REF_CURSOR);
             cstmt.executeQuery();
@@ -1,46 +1,53 @@
 package sample.database.dao;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
 import sample.entity.Subject;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class SubjectDao extends DAO<Subject> {
     public SubjectDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
     @Override
     public ObservableList<Subject> findAll() {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_subjects(?)}")) {
-            cstmt.registerOutParameter(1, Types.REF_CURSOR);
-            cstmt.executeQuery();
+        return listRows("get_subjects", SubjectDao::mapSubject);
+    }
 
-            try (ResultSet rs = cstmt.getObject(1, ResultSet.class)) {
-                ObservableList<Subject> res = FXCollections.observableArrayList();
-                while(rs.next()) {
-                    res.add(new Subject(rs.getString(1)));
-                }
-                return res;
-            }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            return null;
-        }
+    @Override
+    public boolean forEach(Consumer<? super Subject> action) {
+        return forEachRow("get_subjects", SubjectDao::mapSubject, action);
+    }
+
+    @Override
+    public Stream<Subject> stream() {
+        return streamRows("get_subjects", SubjectDao::mapSubject);
+    }
+
+    public ChangeSet<Subject> findChangedSince(long watermark) {
+        return findChanges("get_subjects_changed", watermark, SubjectDao::mapSubject);
+    }
+
+    private static Subject mapSubject(ResultSet rs) throws SQLException {
+        return new Subject(rs.getInt(1), rs.getString(2));
     }
 
     @Override
     public void save(Subject subject) {
-        try (CallableStatement cstmt = conn.prepareCall("{call add_subjects(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call add_subjects(?)}")) {
             cstmt.setString(1, subject.getName());
             cstmt.executeQuery();
+            NameIdDictionary.SUBJECTS.invalidate();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
@@ -48,29 +55,39 @@ public class SubjectDao extends DAO<Subject> {
 
     @Override
     public void delete(Subject subject) {
-        try (CallableStatement cstmt = conn.prepareCall("{call del_subjects(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_subjects(?)}")) {
             cstmt.setString(1, subject.getName());
             cstmt.executeQuery();
+            NameIdDictionary.SUBJECTS.remove(subject.getName());
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
     @Override
-    public void update(Subject _old, Subject _new) {
-        try (CallableStatement cstmt = conn.prepareCall("{call upd_subjects(?,?)}")) {
+    public boolean update(Subject _old, Subject _new) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call upd_subjects(?,?)}")) {
             cstmt.setString(1, _old.getName());
             cstmt.setString(2, _new.getName());
             cstmt.executeQuery();
+            NameIdDictionary.SUBJECTS.rename(_old.getName(), _new.getName());
+            return true;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            return false;
         }
     }
 
     @Override
     public List<Integer> countDependencies(Subject subject) {
-        try (CallableStatement cstmt = conn.prepareCall("{call count_subj_dependencies(?,?)}")) {
-            cstmt.setString(1, subject.getName());
+        Integer id = subject.getId() != null ? subject.getId() : NameIdDictionary.SUBJECTS.idOf(subject.getName());
+        if (id == null)
+            return null;
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call count_subj_dependencies(?,?)}")) {
+            cstmt.setInt(1, id);
             cstmt.registerOutParameter(2, Types.REF_CURSOR);
             cstmt.executeQuery();
 
@@ -1,61 +1,78 @@
 package sample.database.dao;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import sample.database.DBConnection;
 import sample.entity.Teacher;
 
 import java.sql.CallableStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class TeacherDao extends DAO<Teacher> {
     public TeacherDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        super();
     }
 
     @Override
     public ObservableList<Teacher> findAll() {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_teachers(?)}")) {
-            cstmt.registerOutParameter(1, Types.REF_CURSOR);
-            cstmt.executeQuery();
+        return listRows("get_teachers", TeacherDao::mapTeacher);
+    }
 
-            try (ResultSet rs = cstmt.getObject(1, ResultSet.class)) {
-                ObservableList<Teacher> res = FXCollections.observableArrayList();
-                while(rs.next()) {
-                    res.add(new Teacher(
-                                    rs.getInt(1),
-                                    rs.getString(2),
-                                    rs.getString(3),
-                                    rs.getString(4)
-                            )
-                    );
-                }
-                return res;
-            }
-        } catch (SQLException e) {
-            System.out.println(e.getMessage());
-            return null;
-        }
+    @Override
+    public boolean forEach(Consumer<? super Teacher> action) {
+        return forEachRow("get_teachers", TeacherDao::mapTeacher, action);
+    }
+
+    @Override
+    public Stream<Teacher> stream() {
+        return streamRows("get_teachers", TeacherDao::mapTeacher);
+    }
+
+    public ChangeSet<Teacher> findChangedSince(long watermark) {
+        return findChanges("get_teachers_changed", watermark, TeacherDao::mapTeacher);
+    }
+
+    private static Teacher mapTeacher(ResultSet rs) throws SQLException {
+        return new Teacher(
+                rs.getInt(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4)
+        );
     }
 
     @Override
     public void save(Teacher teacher) {
-        try (CallableStatement cstmt = conn.prepareCall("{call add_teachers(?,?,?)}")) {
-            cstmt.setString(1, teacher.getFirstName());
-            cstmt.setString(2, teacher.getLastName());
-            cstmt.setString(3, teacher.getFatherName());
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call add_teachers(?,?,?)}")) {
+            bindNewTeacher(cstmt, teacher);
             cstmt.executeQuery();
         } catch (SQLException e) {
             System.out.println(e.getMessage());
         }
     }
 
+    public BatchResult<Teacher> saveAll(List<Teacher> teachers, int chunkSize,
+                                        Function<Teacher, String> validator) {
+        return saveBatch("{call add_teachers(?,?,?)}", teachers, chunkSize, validator,
+                TeacherDao::bindNewTeacher);
+    }
+
+    private static void bindNewTeacher(CallableStatement cstmt, Teacher teacher) throws SQLException {
+        cstmt.setString(1, teacher.getFirstName());
+        cstmt.setString(2, teacher.getLastName());
+        cstmt.setString(3, teacher.getFatherName());
+    }
+
     @Override
     public void delete(Teacher teacher) {
-        try (CallableStatement cstmt = conn.prepareCall("{call del_teachers(?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call del_teachers(?)}")) {
             cstmt.setInt(1, teacher.getId());
             cstmt.executeQuery();
         } catch (SQLException e) {
@@ -64,21 +81,25 @@ public class TeacherDao extends DAO<Teacher> {
     }
 
     @Override
-    public void update(Teacher _old, Teacher _new) {
-        try (CallableStatement cstmt = conn.prepareCall("{call upd_teachers(?,?,?,?)}")) {
+    public boolean update(Teacher _old, Teacher _new) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call upd_teachers(?,?,?,?)}")) {
             cstmt.setInt(1, _old.getId());
             cstmt.setString(2, _new.getFirstName());
             cstmt.setString(3, _new.getLastName());
             cstmt.setString(4, _new.getFatherName());
             cstmt.executeQuery();
+            return true;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
+            return false;
         }
     }
 
     @Override
     public List<Integer> countDependencies(Teacher teacher) {
-        try (CallableStatement cstmt = conn.prepareCall("{call count_teach_dependencies(?,?)}")) {
+        try (Connection conn = getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call count_teach_dependencies(?,?)}")) {
             cstmt.setInt(1, teacher.getId());
             cstmt.registerOutParameter(2, Types.REF_CURSOR);
             cstmt.executeQuery();
@@ -5,14 +5,13 @@ import sample.database.DBConnection;
 import java.sql.*;
 
 public class UserDao {
-    private static Connection conn;
-
     public UserDao() throws SQLException {
-        conn = DBConnection.getInstance();
+        DBConnection.getPool();
     }
 
     public boolean selectUserFromDb(String login, String password) {
-        try (CallableStatement cstmt = conn.prepareCall("{call get_user(?,?,?)}")) {
+        try (Connection conn = DBConnection.getConnection();
+             CallableStatement cstmt = conn.prepareCall("{call get_user(?,?,?)}")) {
             cstmt.registerOutParameter(1, Types.REF_CURSOR);
             cstmt.setString(2, login);
             cstmt.setString(3, password);
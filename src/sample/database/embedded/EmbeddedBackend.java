@@ -0,0 +1,101 @@
+package sample.database.embedded;
+
+import sample.database.Backend;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// EmbeddedDatabase in this process, no DB server needed. With a file the data is read from it
+// on start and written back every saveMs while something changed and on close, without one
+// it lives only in memory.
+//   -Ddb.embedded.file=dekanat.db   snapshot file (none)
+//   -Ddb.embedded.saveMs=5000       how often changes are saved
+//   -Ddb.embedded.generate=0        fill an empty database with that many generated students
+public final class EmbeddedBackend implements Backend {
+    private final EmbeddedDatabase db;
+    private final Path file;
+    private final ScheduledExecutorService saver;
+
+    public EmbeddedBackend(EmbeddedDatabase db, Path file, long saveMs) {
+        this.db = db;
+        this.file = file;
+        if (file == null) {
+            this.saver = null;
+            return;
+        }
+        this.saver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-embedded-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        saver.scheduleWithFixedDelay(this::saveIfDirty, saveMs, saveMs, TimeUnit.MILLISECONDS);
+    }
+
+    // memory only, e.g. over a generated database in benchmarks
+    public EmbeddedBackend(EmbeddedDatabase db) {
+        this(db, null, 0);
+    }
+
+    public static EmbeddedBackend fromSystemProperties() {
+        EmbeddedDatabase db = new EmbeddedDatabase();
+        String fileName = System.getProperty("db.embedded.file");
+        Path file = fileName == null ? null : Paths.get(fileName);
+        if (file != null && Files.exists(file)) {
+            try {
+                db.load(file);
+            } catch (IOException e) {
+                // the broken file is left as it is, nothing is saved over it
+                throw new IllegalStateException("Cannot read " + file + ": " + e.getMessage(), e);
+            }
+        }
+
+        int generate = Integer.getInteger("db.embedded.generate", 0);
+        if (generate > 0 && db.isEmpty())
+            db.fill(generate, 10, System.nanoTime());
+
+        return new EmbeddedBackend(db, file, Long.getLong("db.embedded.saveMs", 5_000));
+    }
+
+    public EmbeddedDatabase getDatabase() {
+        return db;
+    }
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    @Override
+    public Connection open() {
+        return db.open();
+    }
+
+    private void saveIfDirty() {
+        if (!db.isDirty())
+            return;
+        try {
+            db.save(file);
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (saver == null)
+            return;
+        saver.shutdown();
+        try {
+            saver.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveIfDirty();
+    }
+}
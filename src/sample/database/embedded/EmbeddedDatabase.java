@@ -0,0 +1,1243 @@
+package sample.database.embedded;
+
+import sample.database.ConnectionFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+// Embedded engine: the stored procedures from src/resources over in-memory tables,
+// served through JDBC proxies so DAOs and services run unchanged.
+// Transactions are kept per connection as undo logs: commit, rollback and savepoints work as in
+// Oracle, a failed call is undone on its own and procedures whose scripts COMMIT commit here too.
+// There are no row locks and transactions are not isolated: other connections see uncommitted
+// rows (read uncommitted), and a rollback puts back the values its transaction found, over what
+// another connection committed to the same rows meanwhile. Snapshots are taken only while no
+// transaction has uncommitted changes.
+// Procedures without a counterpart here fail with PLS-00201.
+// The tables can be saved to and loaded from a snapshot file, see EmbeddedBackend.
+public final class EmbeddedDatabase implements ConnectionFactory {
+    @FunctionalInterface
+    private interface Procedure {
+        void call(Call call) throws SQLException;
+    }
+
+    private static final class Person {
+        final int id;
+        final char type;
+        String firstName;
+        String lastName;
+        String fatherName;
+        int groupId;
+
+        Person(int id, char type, String firstName, String lastName, String fatherName, int groupId) {
+            this.id = id;
+            this.type = type;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.fatherName = fatherName;
+            this.groupId = groupId;
+        }
+
+        String fullName() {
+            return lastName + " " + firstName + " " + fatherName;
+        }
+    }
+
+    private static final class MarkRow {
+        final int id;
+        final int studentId;
+        final int subjectId;
+        final int teacherId;
+        int value;
+
+        MarkRow(int id, int studentId, int subjectId, int teacherId, int value) {
+            this.id = id;
+            this.studentId = studentId;
+            this.subjectId = subjectId;
+            this.teacherId = teacherId;
+            this.value = value;
+        }
+    }
+
+    private final TreeMap<Integer, Person> people = new TreeMap<>();
+    private final TreeMap<Integer, String> groups = new TreeMap<>();
+    private final TreeMap<Integer, String> subjects = new TreeMap<>();
+    private final TreeMap<Integer, MarkRow> marks = new TreeMap<>();
+    // the index on MARKS (STUDENT_ID) from groups.sql
+    private final Map<Integer, TreeMap<Integer, MarkRow>> marksByStudent = new HashMap<>();
+    private static final TreeMap<Integer, MarkRow> EMPTY = new TreeMap<>();
+
+    // group name -> admission year, the ADMISSION_YEAR column
+    private final Map<String, Integer> years = new HashMap<>();
+    private final Map<String, String> users = new HashMap<>();
+    private final Map<String, Procedure> procedures = new HashMap<>();
+    // the procedures whose scripts end with COMMIT, they commit the caller's transaction
+    private static final Set<String> COMMITTING = new HashSet<>(Arrays.asList(
+            "del_students", "upd_students_by_id", "del_teachers", "upd_teachers", "add_groups", "del_groups",
+            "upd_groups", "add_subjects", "del_subjects", "upd_subjects", "upd_marks", "del_cascade",
+            "rebuild_mark_totals"));
+    private int lastId;
+    // MODSEQ and TOMBSTONES of changes.sql: row id -> its last change and change -> row id.
+    // Ids are unique across all tables here, so one log serves every table.
+    private final Map<Integer, Long> modSeq = new HashMap<>();
+    private final TreeMap<Long, Integer> changes = new TreeMap<>();
+    private final TreeMap<Long, Integer> tombstones = new TreeMap<>();
+    private long changeSeq;
+    // CHANGE_HORIZON, older watermarks get whole tables
+    private long horizon;
+    // undo log of the transaction the running call belongs to, null outside calls
+    private List<Runnable> undo;
+    // changed since the last save
+    private boolean dirty;
+    // transactions of the open connections
+    private final Set<Transaction> transactions = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public EmbeddedDatabase() {
+        users.put("user1", "pwd");
+        registerStudents();
+        registerTeachers();
+        registerGroups();
+        registerSubjects();
+        registerMarks();
+        registerAverages();
+        registerAnalytics();
+        registerChanges();
+        registerCascade();
+    }
+
+    // Replaces all data: 20 subjects, groups "ГР-NNN-<year>" of 25 students over four admission
+    // years, a teacher per 50 students and marksPerStudent marks each. Ids restart from 1 and subjects
+    // and groups come first, so a name keeps its id between fills (DAOs cache name -> id).
+    public synchronized void fill(int students, int marksPerStudent, long seed) {
+        people.clear();
+        groups.clear();
+        subjects.clear();
+        marks.clear();
+        marksByStudent.clear();
+        forgetChanges();
+        lastId = 0;
+        dirty = true;
+
+        Random random = new Random(seed);
+        int[] subjectIds = new int[20];
+        for (int i = 0; i < subjectIds.length; i++)
+            subjectIds[i] = insertNamed(subjects, "Предмет " + i);
+        int groupCount = Math.max(1, students / 25);
+        int[] groupIds = new int[groupCount];
+        for (int i = 0; i < groupCount; i++)
+            groupIds[i] = insertNamed(groups, String.format("ГР-%03d-%d", i, 2016 + i % 4));
+        int[] teacherIds = new int[Math.max(1, students / 50)];
+        for (int i = 0; i < teacherIds.length; i++)
+            teacherIds[i] = insertPerson('T', "Имя" + i, "Преподаватель" + i, "Отчество" + i, 0);
+        for (int i = 0; i < students; i++) {
+            int studentId = insertPerson('S', "Имя" + i, "Студент" + i, "Отчество" + i,
+                    groupIds[i % groupCount]);
+            for (int j = 0; j < marksPerStudent; j++) {
+                insertMark(studentId, subjectIds[random.nextInt(subjectIds.length)],
+                        teacherIds[random.nextInt(teacherIds.length)], 2 + random.nextInt(4));
+            }
+        }
+    }
+
+    public synchronized int lastId() {
+        return lastId;
+    }
+
+    public synchronized int markCount() {
+        return marks.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return groups.isEmpty() && subjects.isEmpty() && people.isEmpty();
+    }
+
+    // false while a transaction has uncommitted changes, the snapshot would keep them
+    public synchronized boolean isDirty() {
+        return dirty && !uncommitted();
+    }
+
+    private boolean uncommitted() {
+        for (Transaction tx : transactions) {
+            if (!tx.undo.isEmpty())
+                return true;
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- snapshot
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Writes all tables to file, fails while a transaction has uncommitted changes. They are serialized under the lock, the file is written
+    // after it to a temporary file and moved over the old one, so a crash leaves the old snapshot.
+    public void save(Path file) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        synchronized (this) {
+            if (uncommitted())
+                throw new IOException("Not saved to " + file + ": a transaction has uncommitted changes");
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(lastId);
+            writeNamed(out, groups);
+            writeNamed(out, subjects);
+            out.writeInt(people.size());
+            for (Person p : people.values()) {
+                out.writeInt(p.id);
+                out.writeChar(p.type);
+                writeString(out, p.firstName);
+                writeString(out, p.lastName);
+                writeString(out, p.fatherName);
+                out.writeInt(p.groupId);
+            }
+            out.writeInt(marks.size());
+            for (MarkRow m : marks.values()) {
+                out.writeInt(m.id);
+                out.writeInt(m.studentId);
+                out.writeInt(m.subjectId);
+                out.writeInt(m.teacherId);
+                out.writeInt(m.value);
+            }
+            out.writeInt(users.size());
+            for (Map.Entry<String, String> e : users.entrySet()) {
+                writeString(out, e.getKey());
+                writeString(out, e.getValue());
+            }
+            out.flush();
+            dirty = false;
+        }
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null)
+            Files.createDirectories(dir);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, bytes.toByteArray());
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // replaces all tables with the snapshot in file
+    public synchronized void load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            int version = data.readInt();
+            if (version != SNAPSHOT_VERSION)
+                throw new IOException(file + ": unknown snapshot version " + version);
+
+            people.clear();
+            groups.clear();
+            subjects.clear();
+            marks.clear();
+            marksByStudent.clear();
+            users.clear();
+            forgetChanges();
+            lastId = data.readInt();
+            readNamed(data, groups);
+            readNamed(data, subjects);
+            for (int i = data.readInt(); i > 0; i--) {
+                int id = data.readInt();
+                people.put(id, new Person(id, data.readChar(), readString(data), readString(data),
+                        readString(data), data.readInt()));
+            }
+            for (int i = data.readInt(); i > 0; i--) {
+                MarkRow m = new MarkRow(data.readInt(), data.readInt(), data.readInt(), data.readInt(),
+                        data.readInt());
+                marks.put(m.id, m);
+                marksByStudent.computeIfAbsent(m.studentId, k -> new TreeMap<>()).put(m.id, m);
+            }
+            for (int i = data.readInt(); i > 0; i--)
+                users.put(readString(data), readString(data));
+            dirty = false;
+        }
+    }
+
+    private static void writeNamed(DataOutputStream out, TreeMap<Integer, String> table) throws IOException {
+        out.writeInt(table.size());
+        for (Map.Entry<Integer, String> e : table.entrySet()) {
+            out.writeInt(e.getKey());
+            writeString(out, e.getValue());
+        }
+    }
+
+    private static void readNamed(DataInputStream in, TreeMap<Integer, String> table) throws IOException {
+        for (int i = in.readInt(); i > 0; i--)
+            table.put(in.readInt(), readString(in));
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null)
+            out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public Connection open() {
+        ConnectionHandler handler = new ConnectionHandler();
+        synchronized (this) {
+            transactions.add(handler.tx);
+        }
+        return proxy(Connection.class, handler);
+    }
+
+    // ---------------------------------------------------------------- procedures
+
+    private void registerStudents() {
+        procedures.put("get_students", c -> c.cursor(1, studentRows(id -> true, Integer.MAX_VALUE)));
+        procedures.put("get_students_page", c -> {
+            int afterId = c.intArg(1);
+            c.cursor(3, studentRows(id -> id > afterId, c.intArg(2)));
+        });
+        procedures.put("get_students_page_keys", c -> {
+            List<Object[]> ids = studentRows(id -> true, Integer.MAX_VALUE);
+            c.number(2, ids.size());
+            c.cursor(3, everyNth(ids, c.intArg(1)));
+        });
+        procedures.put("add_students_by_id", c -> {
+            requireKey(groups.containsKey(c.intArg(4)), "GROUP_ID");
+            insertPerson('S', c.stringArg(1), c.stringArg(2), c.stringArg(3), c.intArg(4));
+        });
+        procedures.put("upd_students_by_id", c -> {
+            Person p = people.get(c.intArg(1));
+            if (p == null || p.type != 'S')
+                return;
+            requireKey(groups.containsKey(c.intArg(5)), "GROUP_ID");
+            updatePerson(p, c.stringArg(2), c.stringArg(3), c.stringArg(4), c.intArg(5));
+        });
+        procedures.put("del_students", c -> {
+            int id = c.intArg(1);
+            for (MarkRow m : new ArrayList<>(marksOf(id).values()))
+                removeMark(m);
+            removePerson(id);
+        });
+        procedures.put("count_stud_dependencies", c -> {
+            int id = c.intArg(1);
+            c.cursor(2, row(marksOf(id).size()));
+        });
+    }
+
+    private void registerTeachers() {
+        procedures.put("get_teachers", c -> c.cursor(1, teacherRows()));
+        procedures.put("add_teachers", c ->
+                insertPerson('T', c.stringArg(1), c.stringArg(2), c.stringArg(3), 0));
+        procedures.put("upd_teachers", c -> {
+            Person p = people.get(c.intArg(1));
+            if (p == null || p.type != 'T')
+                return;
+            updatePerson(p, c.stringArg(2), c.stringArg(3), c.stringArg(4), p.groupId);
+        });
+        procedures.put("del_teachers", c -> {
+            int id = c.intArg(1);
+            removeMarks(m -> m.teacherId == id);
+            removePerson(id);
+        });
+        procedures.put("count_teach_dependencies", c -> {
+            int id = c.intArg(1);
+            c.cursor(2, row(marks.values().stream().filter(m -> m.teacherId == id).count()));
+        });
+    }
+
+    private void registerGroups() {
+        registerNamed("group", groups);
+        procedures.put("del_groups", c -> {
+            Integer id = idOf(groups, c.stringArg(1));
+            if (id == null)
+                throw new SQLException("ORA-01403: no data found", "02000", 1403);
+            removeMarks(m -> people.get(m.studentId).groupId == id);
+            List<Integer> students = new ArrayList<>();
+            for (Person p : people.values()) {
+                if (p.type == 'S' && p.groupId == id)
+                    students.add(p.id);
+            }
+            students.forEach(this::removePerson);
+            removeNamed(groups, id);
+        });
+        // MARK_TOTALS are not kept here, the marks of the group's students are summed up
+        procedures.put("count_group_dependencies", c -> {
+            int id = c.intArg(1);
+            long students = 0;
+            long n = 0;
+            for (Person p : people.values()) {
+                if (p.type == 'S' && p.groupId == id) {
+                    students++;
+                    n += marksOf(p.id).size();
+                }
+            }
+            c.cursor(2, row(students, n));
+        });
+    }
+
+    private void registerSubjects() {
+        registerNamed("subject", subjects);
+        procedures.put("del_subjects", c -> {
+            Integer id = idOf(subjects, c.stringArg(1));
+            if (id == null)
+                return;
+            removeMarks(m -> m.subjectId == id);
+            removeNamed(subjects, id);
+        });
+        procedures.put("count_subj_dependencies", c -> {
+            int id = c.intArg(1);
+            c.cursor(2, row(marks.values().stream().filter(m -> m.subjectId == id).count()));
+        });
+    }
+
+    // get_, add_ and upd_ of groups and subjects only differ in their table
+    private void registerNamed(String kind, TreeMap<Integer, String> table) {
+        procedures.put("get_" + kind + "s", c -> c.cursor(1, namedRows(table)));
+        procedures.put("add_" + kind + "s", c -> {
+            if (idOf(table, c.stringArg(1)) == null)
+                insertNamed(table, c.stringArg(1));
+        });
+        procedures.put("upd_" + kind + "s", c -> {
+            Integer id = idOf(table, c.stringArg(1));
+            if (id != null) {
+                String oldName = table.put(id, c.stringArg(2));
+                touch(id);
+                onUndo(() -> table.put(id, oldName));
+            }
+        });
+    }
+
+    // del_cascade of cascade.sql, the kind is an AverageMark.Scope name
+    private void registerCascade() {
+        procedures.put("del_cascade", c -> {
+            String kind = c.stringArg(1);
+            int id = c.intArg(2);
+            int budget = c.intArg(3);
+            boolean group = "GROUPS".equals(kind);
+            Predicate<MarkRow> owned;
+            if (group)
+                owned = m -> people.get(m.studentId).groupId == id;
+            else if ("STUDENTS".equals(kind))
+                owned = m -> m.studentId == id;
+            else if ("TEACHERS".equals(kind))
+                owned = m -> m.teacherId == id;
+            else if ("SUBJECTS".equals(kind))
+                owned = m -> m.subjectId == id;
+            else
+                throw new SQLException("ORA-20301: Unknown kind: " + kind, "72000", 20301);
+            IntPredicate student = personId -> {
+                Person p = people.get(personId);
+                return p.type == 'S' && p.groupId == id;
+            };
+
+            if (budget > 0) {
+                List<MarkRow> chunk = new ArrayList<>();
+                for (MarkRow m : marks.values()) {
+                    if (chunk.size() == budget)
+                        break;
+                    if (owned.test(m))
+                        chunk.add(m);
+                }
+                for (MarkRow m : chunk)
+                    removeMark(m);
+                budget -= chunk.size();
+                if (group && budget > 0) {
+                    List<Integer> students = new ArrayList<>();
+                    for (Integer personId : people.keySet()) {
+                        if (students.size() == budget)
+                            break;
+                        if (student.test(personId))
+                            students.add(personId);
+                    }
+                    students.forEach(this::removePerson);
+                }
+            }
+
+            long marksLeft = marks.values().stream().filter(owned).count();
+            long peopleLeft = group ? people.keySet().stream().filter(student::test).count() : 0;
+            if (marksLeft == 0 && peopleLeft == 0) {
+                if (group)
+                    removeNamed(groups, id);
+                else if ("SUBJECTS".equals(kind))
+                    removeNamed(subjects, id);
+                else
+                    removePerson(id);
+            }
+            c.number(4, marksLeft);
+            c.number(5, peopleLeft);
+        });
+    }
+
+    private void registerChanges() {
+        registerChanged("get_groups_changed", () -> namedRows(groups),
+                id -> groups.containsKey(id) ? row(id, groups.get(id)) : Collections.emptyList());
+        registerChanged("get_subjects_changed", () -> namedRows(subjects),
+                id -> subjects.containsKey(id) ? row(id, subjects.get(id)) : Collections.emptyList());
+        registerChanged("get_teachers_changed", this::teacherRows, id -> {
+            Person p = people.get(id);
+            return p == null || p.type != 'T' ? Collections.emptyList()
+                    : row(p.id, p.firstName, p.lastName, p.fatherName);
+        });
+        // a renamed group changes the group name of its students
+        registerChanged("get_students_changed", () -> studentRows(id -> true, Integer.MAX_VALUE), id -> {
+            if (groups.containsKey(id))
+                return studentRows(studentId -> people.get(studentId).groupId == id, Integer.MAX_VALUE);
+            Person p = people.get(id);
+            return p == null || p.type != 'S' ? Collections.emptyList() : studentRows(studentId -> studentId == id, 1);
+        });
+    }
+
+    // (since, rows cursor, deleted ids cursor, watermark, is_full); rowsOf gives the rows of
+    // this table a change of id touched, deleted ids of other tables are not found by the caller
+    private void registerChanged(String procedure, Supplier<List<Object[]>> all,
+                                 IntFunction<List<Object[]>> rowsOf) {
+        procedures.put(procedure, c -> {
+            long since = c.longArg(1);
+            boolean full = since <= 0 || since < horizon;
+            List<Object[]> rows;
+            List<Object[]> deleted = new ArrayList<>();
+            if (full) {
+                rows = all.get();
+            } else {
+                Map<Object, Object[]> changed = new LinkedHashMap<>();
+                for (int id : changes.tailMap(since, false).values()) {
+                    for (Object[] r : rowsOf.apply(id))
+                        changed.put(r[0], r);
+                }
+                rows = new ArrayList<>(changed.values());
+                for (int id : tombstones.tailMap(since, false).values())
+                    deleted.add(new Object[]{id});
+            }
+            c.cursor(2, rows);
+            c.cursor(3, deleted);
+            c.number(4, ++changeSeq);
+            c.number(5, full ? 1 : 0);
+        });
+    }
+
+    private void registerMarks() {
+        procedures.put("get_marks", c -> c.cursor(2, markRows(c.intArg(1), 0, Integer.MAX_VALUE)));
+        procedures.put("get_marks_page", c -> c.cursor(4, markRows(c.intArg(1), c.intArg(2), c.intArg(3))));
+        procedures.put("get_marks_page_keys", c -> {
+            List<Object[]> ids = markRows(c.intArg(1), 0, Integer.MAX_VALUE);
+            c.number(3, ids.size());
+            c.cursor(4, everyNth(ids, c.intArg(2)));
+        });
+        // MARK_TOTALS are not kept here, the group's marks are counted first
+        procedures.put("get_marks_by_group", c -> {
+            int groupId = c.intArg(1);
+            List<Object[]> rows = new ArrayList<>();
+            long total = 0;
+            for (Person p : people.values()) {
+                if (p.type != 'S' || p.groupId != groupId)
+                    continue;
+                List<Object[]> own = markRows(p.id, 0, Integer.MAX_VALUE);
+                total += own.size();
+                if (own.isEmpty())
+                    rows.add(new Object[]{p.id, null, null, null, null, null});
+                for (Object[] m : own) {
+                    Object[] row = new Object[m.length + 1];
+                    row[0] = p.id;
+                    System.arraycopy(m, 0, row, 1, m.length);
+                    rows.add(row);
+                }
+            }
+            c.number(3, total);
+            c.cursor(4, total <= c.intArg(2) ? rows : Collections.emptyList());
+        });
+        procedures.put("add_marks_by_id", c -> {
+            Person student = people.get(c.intArg(1));
+            Person teacher = people.get(c.intArg(3));
+            requireKey(student != null && student.type == 'S', "STUDENT_ID");
+            requireKey(subjects.containsKey(c.intArg(2)), "SUBJECT_ID");
+            requireKey(teacher != null && teacher.type == 'T', "TEACHER_ID");
+            insertMark(c.intArg(1), c.intArg(2), c.intArg(3), c.intArg(4));
+        });
+        procedures.put("upd_marks", c -> {
+            MarkRow m = marks.get(c.intArg(1));
+            if (m != null) {
+                int oldValue = m.value;
+                m.value = c.intArg(2);
+                onUndo(() -> m.value = oldValue);
+            }
+        });
+        procedures.put("del_marks", c -> {
+            MarkRow m = marks.get(c.intArg(1));
+            if (m != null)
+                removeMark(m);
+        });
+    }
+
+    // calcPerf* read MARK_TOTALS in Oracle, here they scan the marks.
+    // No totals are stored that could drift, so the check finds nothing and the rebuild does nothing
+    private void registerAverages() {
+        procedures.put("calcPerfStud", c -> {
+            int id = c.intArg(3);
+            c.cursor(4, row(average(c, m -> m.studentId == id)));
+        });
+        procedures.put("calcPerfTeacher", c -> {
+            int id = c.intArg(3);
+            c.cursor(4, row(average(c, m -> m.teacherId == id)));
+        });
+        procedures.put("calcPerfGroup", c -> {
+            Integer id = idOf(groups, c.stringArg(3));
+            c.cursor(4, row(average(c, m -> id != null && people.get(m.studentId).groupId == id)));
+        });
+        procedures.put("calcPerfSubj", c -> {
+            Integer id = idOf(subjects, c.stringArg(3));
+            c.cursor(4, row(average(c, m -> id != null && m.subjectId == id)));
+        });
+        procedures.put("calcPerfStudAll", c -> c.cursor(3, averages(c, 'S')));
+        procedures.put("calcPerfTeacherAll", c -> c.cursor(3, averages(c, 'T')));
+        procedures.put("calcPerfGroupAll", c -> c.cursor(3, averages(c, 'G')));
+        procedures.put("calcPerfSubjAll", c -> c.cursor(3, averages(c, 'J')));
+        procedures.put("verify_mark_totals", c -> c.cursor(1, Collections.emptyList()));
+        procedures.put("rebuild_mark_totals", c -> { });
+    }
+
+    private void registerAnalytics() {
+        procedures.put("get_mark_facts", c -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (MarkRow m : marks.tailMap(c.intArg(1), false).values()) {
+                int groupId = people.get(m.studentId).groupId;
+                rows.add(new Object[]{m.id, m.studentId, m.subjectId, m.teacherId, groupId,
+                        yearOf(groupId), m.value});
+            }
+            c.cursor(2, rows);
+        });
+        procedures.put("get_mark_names", c -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Person p : people.values())
+                rows.add(new Object[]{String.valueOf(p.type), p.id, p.fullName()});
+            groups.forEach((id, name) -> rows.add(new Object[]{"G", id, name}));
+            subjects.forEach((id, name) -> rows.add(new Object[]{"J", id, name}));
+            c.cursor(1, rows);
+        });
+        procedures.put("get_user", c -> {
+            String password = users.get(c.stringArg(2));
+            c.cursor(1, password != null && password.equals(c.stringArg(3))
+                    ? row(c.stringArg(2), password)
+                    : Collections.emptyList());
+        });
+    }
+
+    // ---------------------------------------------------------------- tables
+
+    private int insertPerson(char type, String firstName, String lastName, String fatherName, int groupId) {
+        int id = ++lastId;
+        people.put(id, new Person(id, type, firstName, lastName, fatherName, groupId));
+        touch(id);
+        onUndo(() -> people.remove(id));
+        return id;
+    }
+
+    private int insertNamed(TreeMap<Integer, String> table, String name) {
+        int id = ++lastId;
+        table.put(id, name);
+        touch(id);
+        onUndo(() -> table.remove(id));
+        return id;
+    }
+
+    private void insertMark(int studentId, int subjectId, int teacherId, int value) {
+        int id = ++lastId;
+        MarkRow mark = new MarkRow(id, studentId, subjectId, teacherId, value);
+        marks.put(id, mark);
+        marksByStudent.computeIfAbsent(studentId, k -> new TreeMap<>()).put(id, mark);
+        onUndo(() -> {
+            marks.remove(id);
+            marksOf(studentId).remove(id);
+        });
+    }
+
+    private void updatePerson(Person p, String firstName, String lastName, String fatherName, int groupId) {
+        String oldFirstName = p.firstName;
+        String oldLastName = p.lastName;
+        String oldFatherName = p.fatherName;
+        int oldGroupId = p.groupId;
+        p.firstName = firstName;
+        p.lastName = lastName;
+        p.fatherName = fatherName;
+        p.groupId = groupId;
+        touch(p.id);
+        onUndo(() -> {
+            p.firstName = oldFirstName;
+            p.lastName = oldLastName;
+            p.fatherName = oldFatherName;
+            p.groupId = oldGroupId;
+        });
+    }
+
+    private void removePerson(int id) {
+        Person p = people.remove(id);
+        if (p == null)
+            return;
+        TreeMap<Integer, MarkRow> own = marksByStudent.remove(id);
+        tombstone(id);
+        onUndo(() -> {
+            people.put(id, p);
+            if (own != null)
+                marksByStudent.put(id, own);
+        });
+    }
+
+    private void removeNamed(TreeMap<Integer, String> table, int id) {
+        String name = table.remove(id);
+        if (name == null)
+            return;
+        tombstone(id);
+        onUndo(() -> table.put(id, name));
+    }
+
+    private void removeMark(MarkRow m) {
+        marks.remove(m.id);
+        marksOf(m.studentId).remove(m.id);
+        onUndo(() -> {
+            marks.put(m.id, m);
+            marksByStudent.computeIfAbsent(m.studentId, k -> new TreeMap<>()).put(m.id, m);
+        });
+    }
+
+    // the MODSEQ triggers; a rolled back insert or update leaves its change behind,
+    // the row is read as it is then or skipped if it is gone
+    private void touch(int id) {
+        Long old = modSeq.put(id, ++changeSeq);
+        if (old != null)
+            changes.remove(old);
+        changes.put(changeSeq, id);
+    }
+
+    // a rolled back delete takes its tombstone back and shows the row as changed again
+    private void tombstone(int id) {
+        Long old = modSeq.remove(id);
+        if (old != null)
+            changes.remove(old);
+        long seq = ++changeSeq;
+        tombstones.put(seq, id);
+        onUndo(() -> {
+            tombstones.remove(seq);
+            touch(id);
+        });
+    }
+
+    // after fill and load nothing before the new horizon can be patched
+    private void forgetChanges() {
+        modSeq.clear();
+        changes.clear();
+        tombstones.clear();
+        horizon = ++changeSeq;
+    }
+
+    private TreeMap<Integer, MarkRow> marksOf(int studentId) {
+        return marksByStudent.getOrDefault(studentId, EMPTY);
+    }
+
+    private void removeMarks(Predicate<MarkRow> filter) {
+        List<MarkRow> removed = new ArrayList<>();
+        for (MarkRow m : marks.values()) {
+            if (filter.test(m))
+                removed.add(m);
+        }
+        removed.forEach(this::removeMark);
+    }
+
+    private void onUndo(Runnable action) {
+        if (undo != null)
+            undo.add(action);
+    }
+
+    private static List<Object[]> namedRows(TreeMap<Integer, String> table) {
+        List<Object[]> rows = new ArrayList<>();
+        table.forEach((id, name) -> rows.add(new Object[]{id, name}));
+        return rows;
+    }
+
+    private List<Object[]> teacherRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (Person p : people.values()) {
+            if (p.type == 'T')
+                rows.add(new Object[]{p.id, p.firstName, p.lastName, p.fatherName});
+        }
+        return rows;
+    }
+
+    private List<Object[]> studentRows(IntPredicate filter, int limit) {
+        List<Object[]> rows = new ArrayList<>();
+        for (Person p : people.values()) {
+            if (rows.size() == limit)
+                break;
+            if (p.type == 'S' && filter.test(p.id) && groups.containsKey(p.groupId))
+                rows.add(new Object[]{p.id, p.firstName, p.lastName, p.fatherName, groups.get(p.groupId)});
+        }
+        return rows;
+    }
+
+    private List<Object[]> markRows(int studentId, int afterId, int limit) {
+        List<Object[]> rows = new ArrayList<>();
+        for (MarkRow m : marksOf(studentId).tailMap(afterId, false).values()) {
+            if (rows.size() == limit)
+                break;
+            Person teacher = people.get(m.teacherId);
+            if (teacher != null && subjects.containsKey(m.subjectId)) {
+                rows.add(new Object[]{m.id, subjects.get(m.subjectId), teacher.firstName,
+                        teacher.lastName, m.value});
+            }
+        }
+        return rows;
+    }
+
+    // the ids closing each full page, as ROW_NUMBER() ... MOD(rn, page_size) = 0
+    private static List<Object[]> everyNth(List<Object[]> rows, int n) {
+        List<Object[]> res = new ArrayList<>();
+        for (int i = n - 1; i < rows.size(); i += n)
+            res.add(new Object[]{rows.get(i)[0]});
+        return res;
+    }
+
+    private boolean inYears(Call c, MarkRow m) {
+        int year = yearOf(people.get(m.studentId).groupId);
+        return year >= c.intArg(1) && year <= c.intArg(2);
+    }
+
+    private Double average(Call c, Predicate<MarkRow> filter) {
+        long sum = 0;
+        long count = 0;
+        for (MarkRow m : marks.values()) {
+            if (filter.test(m) && inYears(c, m)) {
+                sum += m.value;
+                count++;
+            }
+        }
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    // id, name, average, count per student (S), teacher (T), group (G) or subject (J)
+    private List<Object[]> averages(Call c, char kind) {
+        Map<Integer, long[]> sums = new LinkedHashMap<>();
+        for (MarkRow m : marks.values()) {
+            if (!inYears(c, m))
+                continue;
+            int key;
+            switch (kind) {
+                case 'S': key = m.studentId; break;
+                case 'T': key = m.teacherId; break;
+                case 'G': key = people.get(m.studentId).groupId; break;
+                default: key = m.subjectId; break;
+            }
+            long[] sum = sums.computeIfAbsent(key, k -> new long[2]);
+            sum[0] += m.value;
+            sum[1]++;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        sums.forEach((id, sum) -> {
+            String name = kind == 'G' ? groups.get(id)
+                    : kind == 'J' ? subjects.get(id)
+                    : people.get(id).fullName();
+            rows.add(new Object[]{id, name, (double) sum[0] / sum[1], sum[1]});
+        });
+        return rows;
+    }
+
+    private int yearOf(int groupId) {
+        return years.computeIfAbsent(groups.get(groupId), EmbeddedDatabase::admissionYear);
+    }
+
+    // as groups_admission_year: the digits from the 8th character of the name, 0 if there are none
+    private static int admissionYear(String groupName) {
+        if (groupName == null || groupName.length() < 8)
+            return 0;
+        String tail = groupName.substring(7).trim();
+        return tail.matches("[0-9]{1,4}") ? Integer.parseInt(tail) : 0;
+    }
+
+    private static Integer idOf(TreeMap<Integer, String> table, String name) {
+        for (Map.Entry<Integer, String> e : table.entrySet()) {
+            if (e.getValue().equals(name))
+                return e.getKey();
+        }
+        return null;
+    }
+
+    private static void requireKey(boolean present, String column) throws SQLException {
+        if (!present)
+            throw new SQLException("ORA-02291: integrity constraint violated - parent key not found (" + column + ")",
+                    "23000", 2291);
+    }
+
+    private static List<Object[]> row(Object... values) {
+        return Collections.singletonList(values);
+    }
+
+    // ---------------------------------------------------------------- JDBC
+
+    private static final class Call {
+        // 1-based like JDBC parameters
+        final Object[] in;
+        final Map<Integer, Object> out = new HashMap<>();
+
+        Call(Object[] in) {
+            this.in = in;
+        }
+
+        int intArg(int index) {
+            return ((Number) in[index]).intValue();
+        }
+
+        long longArg(int index) {
+            return ((Number) in[index]).longValue();
+        }
+
+        String stringArg(int index) {
+            return (String) in[index];
+        }
+
+        void cursor(int index, List<Object[]> rows) {
+            out.put(index, rows);
+        }
+
+        void number(int index, long value) {
+            out.put(index, value);
+        }
+    }
+
+    // the undo log of a connection's open transaction, a savepoint is a position in it
+    private static final class Transaction {
+        final List<Runnable> undo = new ArrayList<>();
+        final Map<Savepoint, Integer> savepoints = new HashMap<>();
+
+        void commit() {
+            undo.clear();
+            savepoints.clear();
+        }
+    }
+
+    private Map<Integer, Object> run(String procedure, Object[] params) throws SQLException {
+        Procedure p = procedures.get(procedure);
+        if (p == null)
+            throw new SQLException("PLS-00201: identifier '" + procedure + "' must be declared", "65000", 6550);
+        Call call = new Call(params.clone());
+        p.call(call);
+        if (procedure.startsWith("add_") || procedure.startsWith("upd_") || procedure.startsWith("del_"))
+            dirty = true;
+        return call.out;
+    }
+
+    // as in Oracle a failed call is undone on its own, the transaction around it stays open
+    private synchronized Map<Integer, Object> execute(String procedure, Object[] params, Transaction tx,
+                                                      boolean autoCommit) throws SQLException {
+        int start = tx.undo.size();
+        undo = tx.undo;
+        try {
+            Map<Integer, Object> out = run(procedure, params);
+            if (autoCommit || COMMITTING.contains(procedure))
+                tx.commit();
+            return out;
+        } catch (SQLException | RuntimeException e) {
+            rollback(tx, start);
+            throw e;
+        } finally {
+            undo = null;
+        }
+    }
+
+    // the calls before a failed one stay done, the caller rolls them back if it wants to
+    private synchronized int[] executeBatch(String procedure, List<Object[]> batch, Transaction tx,
+                                            boolean autoCommit) throws SQLException {
+        int[] counts = new int[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                execute(procedure, batch.get(i), tx, autoCommit);
+            } catch (SQLException e) {
+                throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(),
+                        Arrays.copyOf(counts, i), e);
+            }
+            counts[i] = Statement.SUCCESS_NO_INFO;
+        }
+        return counts;
+    }
+
+    // undoes the transaction back to position, savepoints set after it are gone
+    private synchronized void rollback(Transaction tx, int position) {
+        // a snapshot taken meanwhile holds the undone changes
+        if (tx.undo.size() > position)
+            dirty = true;
+        for (int i = tx.undo.size() - 1; i >= position; i--)
+            tx.undo.remove(i).run();
+        tx.savepoints.values().removeIf(at -> at > position);
+    }
+
+    private synchronized void commit(Transaction tx) {
+        tx.commit();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    // equals/hashCode/toString of a proxy, null if method is not one of them
+    private static Object objectMethod(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals": return proxy == args[0];
+            case "hashCode": return System.identityHashCode(proxy);
+            case "toString": return "Embedded" + method.getDeclaringClass().getSimpleName();
+            default: return null;
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Transaction tx = new Transaction();
+        private boolean closed;
+        private boolean autoCommit = true;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler(this, (String) args[0]));
+                case "isValid":
+                    return !closed;
+                case "isClosed":
+                    return closed;
+                case "close":
+                    // an open transaction is rolled back, not committed
+                    if (!closed) {
+                        rollback(tx, 0);
+                        synchronized (EmbeddedDatabase.this) {
+                            transactions.remove(tx);
+                        }
+                    }
+                    closed = true;
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    // switching auto-commit on commits the open transaction
+                    if ((Boolean) args[0] && !autoCommit)
+                        commit(tx);
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "setSavepoint":
+                    if (autoCommit)
+                        throw new SQLException("Cannot set a savepoint in auto-commit mode");
+                    Savepoint savepoint = proxy(Savepoint.class, (p, m, a) -> objectMethod(p, m, a));
+                    synchronized (EmbeddedDatabase.this) {
+                        tx.savepoints.put(savepoint, tx.undo.size());
+                    }
+                    return savepoint;
+                case "rollback":
+                    if (args == null)
+                        rollback(tx, 0);
+                    else
+                        rollback(tx, position((Savepoint) args[0]));
+                    return null;
+                case "releaseSavepoint":
+                    synchronized (EmbeddedDatabase.this) {
+                        position((Savepoint) args[0]);
+                        tx.savepoints.remove(args[0]);
+                    }
+                    return null;
+                case "commit":
+                    commit(tx);
+                    return null;
+                case "clearWarnings":
+                    return null;
+                default:
+                    Object res = objectMethod(proxy, method, args);
+                    if (res == null)
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                    return res;
+            }
+        }
+
+        private int position(Savepoint savepoint) throws SQLException {
+            synchronized (EmbeddedDatabase.this) {
+                Integer at = tx.savepoints.get(savepoint);
+                if (at == null)
+                    throw new SQLException("ORA-01086: savepoint never established in this session or is invalid",
+                            "3B001", 1086);
+                return at;
+            }
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final String procedure;
+        private final Object[] params;
+        private final List<Object[]> batch = new ArrayList<>();
+        private Map<Integer, Object> out = Collections.emptyMap();
+        private boolean closed;
+
+        StatementHandler(ConnectionHandler connection, String sql) {
+            this.connection = connection;
+            // "{call name(?,?)}" or "{call name}"
+            String call = sql.substring(sql.indexOf("call ") + 5).replace("}", "").trim();
+            int paren = call.indexOf('(');
+            this.procedure = paren < 0 ? call : call.substring(0, paren).trim();
+            this.params = new Object[(int) sql.chars().filter(ch -> ch == '?').count() + 1];
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "setInt":
+                case "setLong":
+                case "setDouble":
+                case "setString":
+                case "setObject":
+                    params[(Integer) args[0]] = args[1];
+                    return null;
+                case "setNull":
+                    params[(Integer) args[0]] = null;
+                    return null;
+                case "clearParameters":
+                    Arrays.fill(params, null);
+                    return null;
+                case "registerOutParameter":
+                case "setFetchSize":
+                case "setQueryTimeout":
+                case "clearWarnings":
+                    return null;
+                case "execute":
+                    out = execute(procedure, params, connection.tx, connection.autoCommit);
+                    return false;
+                case "executeQuery":
+                    out = execute(procedure, params, connection.tx, connection.autoCommit);
+                    return cursor(Collections.emptyList());
+                case "executeUpdate":
+                    out = execute(procedure, params, connection.tx, connection.autoCommit);
+                    return 0;
+                case "addBatch":
+                    batch.add(params.clone());
+                    return null;
+                case "clearBatch":
+                    batch.clear();
+                    return null;
+                case "executeBatch":
+                    try {
+                        return executeBatch(procedure, batch, connection.tx, connection.autoCommit);
+                    } finally {
+                        batch.clear();
+                    }
+                case "getObject":
+                    return outCursor((Integer) args[0]);
+                case "getInt":
+                    Object n = out.get(args[0]);
+                    return n == null ? 0 : ((Number) n).intValue();
+                case "getLong":
+                    Object l = out.get(args[0]);
+                    return l == null ? 0L : ((Number) l).longValue();
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    Object res = objectMethod(proxy, method, args);
+                    if (res == null)
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                    return res;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private ResultSet outCursor(int index) throws SQLException {
+            Object rows = out.get(index);
+            if (!(rows instanceof List))
+                throw new SQLException("Parameter " + index + " of " + procedure + " is not a cursor");
+            return cursor((List<Object[]>) rows);
+        }
+    }
+
+    private static ResultSet cursor(List<Object[]> rows) {
+        return proxy(ResultSet.class, new CursorHandler(rows));
+    }
+
+    private static final class CursorHandler implements InvocationHandler {
+        private final List<Object[]> rows;
+        private int position = -1;
+        private boolean wasNull;
+        private boolean closed;
+
+        CursorHandler(List<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    if (closed)
+                        throw new SQLException("Closed Resultset: next");
+                    return ++position < rows.size();
+                case "getInt":
+                    Number i = (Number) value(args[0]);
+                    return i == null ? 0 : i.intValue();
+                case "getLong":
+                    Number l = (Number) value(args[0]);
+                    return l == null ? 0L : l.longValue();
+                case "getDouble":
+                    Number d = (Number) value(args[0]);
+                    return d == null ? 0.0 : d.doubleValue();
+                case "getString":
+                    Object s = value(args[0]);
+                    return s == null ? null : s.toString();
+                case "getObject":
+                    return value(args[0]);
+                case "wasNull":
+                    return wasNull;
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "setFetchSize":
+                    return null;
+                default:
+                    Object res = objectMethod(proxy, method, args);
+                    if (res == null)
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                    return res;
+            }
+        }
+
+        private Object value(Object column) throws SQLException {
+            if (!(column instanceof Integer))
+                throw new SQLFeatureNotSupportedException("columns by label");
+            if (position < 0 || position >= rows.size())
+                throw new SQLException("Exhausted Resultset");
+            Object v = rows.get(position)[(Integer) column - 1];
+            wasNull = v == null;
+            return v;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package sample.database.metrics;
+
+import java.util.Optional;
+
+// The action a db call is made for, e.g. "Controller.addMark", for the slow-call log.
+// Work handed to the db threads captures it on the submitting thread and runs with it;
+// calls made without it are attributed to the first caller outside the db and service layers.
+public final class CallContext {
+    private static final ThreadLocal<String> action = new ThreadLocal<>();
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    // the action of the current thread or its call site, null when the slow-call log is off
+    public static String capture() {
+        String current = action.get();
+        if (current != null || !SlowCallLog.isEnabled())
+            return current;
+        return callSite();
+    }
+
+    // runs task with action as the current one, action may be null
+    public static void run(String name, Runnable task) {
+        String previous = action.get();
+        action.set(name);
+        try {
+            task.run();
+        } finally {
+            action.set(previous);
+        }
+    }
+
+    static String current() {
+        String current = action.get();
+        return current != null ? current : callSite();
+    }
+
+    // the first frame of our own code above the db, service and analytics layers,
+    // lambda$addMark$3 is shown as addMark
+    private static String callSite() {
+        Optional<StackWalker.StackFrame> frame = walker.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("sample.")
+                        && !f.getClassName().startsWith("sample.database.")
+                        && !f.getClassName().startsWith("sample.service.")
+                        && !f.getClassName().startsWith("sample.analytics."))
+                .findFirst());
+        if (!frame.isPresent())
+            return Thread.currentThread().getName();
+        String className = frame.get().getClassName();
+        String method = frame.get().getMethodName();
+        if (method.startsWith("lambda$")) {
+            int end = method.indexOf('$', 7);
+            method = method.substring(7, end < 0 ? method.length() : end);
+        }
+        return className.substring(className.lastIndexOf('.') + 1) + "." + method;
+    }
+
+    private CallContext() {
+
+    }
+}
@@ -0,0 +1,102 @@
+package sample.database.metrics;
+
+import sample.database.ConnectionPool;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Counters of every stored procedure call and of the pool, published as MBeans in the
+// sample.database domain (jconsole, VisualVM, any JMX agent). Statements handed out by the
+// pool are wrapped here, so DAOs need no changes. With -Ddb.metrics=false and the slow-call
+// log off (-Ddb.slowLog.thresholdMs=0) statements are handed out as they are.
+public final class DbMetrics {
+    private static final boolean ENABLED = !"false".equals(System.getProperty("db.metrics"));
+    private static final String DOMAIN = "sample.database";
+
+    private static final Map<String, ProcedureMetrics> procedures = new ConcurrentHashMap<>();
+    private static final PoolMetrics pool = new PoolMetrics();
+
+    static {
+        register(pool, "type=ConnectionPool");
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static PoolMetrics pool() {
+        return pool;
+    }
+
+    public static void attach(ConnectionPool connectionPool) {
+        pool.attach(connectionPool);
+    }
+
+    public static ProcedureMetrics procedure(String name) {
+        ProcedureMetrics metrics = procedures.get(name);
+        if (metrics != null)
+            return metrics;
+        ProcedureMetrics created = new ProcedureMetrics(name);
+        metrics = procedures.putIfAbsent(name, created);
+        if (metrics != null)
+            return metrics;
+        register(created, "type=Procedure,name=" + name);
+        return created;
+    }
+
+    // the call goes through the returned statement, its cursors are wrapped as they are opened
+    public static CallableStatement instrument(CallableStatement statement, String sql) {
+        if (!ENABLED && !SlowCallLog.isEnabled())
+            return statement;
+        return (CallableStatement) Proxy.newProxyInstance(CallableStatement.class.getClassLoader(),
+                new Class<?>[]{CallableStatement.class},
+                new InstrumentedStatement(statement, procedure(procedureName(sql))));
+    }
+
+    // "{call get_marks(?,?)}" -> get_marks, only characters that are valid in an ObjectName
+    static String procedureName(String sql) {
+        String s = sql.trim();
+        int call = s.toLowerCase().indexOf("call ");
+        if (call >= 0)
+            s = s.substring(call + 5);
+        int end = 0;
+        while (end < s.length() && (Character.isLetterOrDigit(s.charAt(end)) || s.charAt(end) == '_'
+                || s.charAt(end) == '.' || s.charAt(end) == '$'))
+            end++;
+        return end == 0 ? "unknown" : s.substring(0, end);
+    }
+
+    // one line per procedure, slowest p95 first, and the pool
+    public static String report() {
+        List<ProcedureMetrics> all = new ArrayList<>(procedures.values());
+        all.sort(Comparator.comparingDouble(ProcedureMetrics::getExecuteP95Ms).reversed());
+        StringBuilder sb = new StringBuilder();
+        for (ProcedureMetrics m : all)
+            sb.append(m).append('\n');
+        return sb.append(pool).toString();
+    }
+
+    private static void register(Object bean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            if (!server.isRegistered(name))
+                server.registerMBean(bean, name);
+        } catch (JMException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private DbMetrics() {
+
+    }
+}
@@ -0,0 +1,177 @@
+package sample.database.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+// Times execute* calls and wraps the out cursors, everything else goes straight through.
+// Binds are remembered for the slow-call log, a call is logged once its cursor is closed
+// (or at the next execute or close of the statement when it opened none).
+final class InstrumentedStatement implements InvocationHandler {
+    private final CallableStatement statement;
+    private final ProcedureMetrics metrics;
+    private Object[] binds = new Object[8];
+    private int bindCount;
+    private int batch;
+    // the last call, until it is logged or known to be fast
+    private Call pending;
+
+    InstrumentedStatement(CallableStatement statement, ProcedureMetrics metrics) {
+        this.statement = statement;
+        this.metrics = metrics;
+    }
+
+    private final class Call {
+        final Object[] binds;
+        final int batch;
+        final long executeNanos;
+        final Throwable error;
+
+        Call(int batch, long executeNanos, Throwable error) {
+            this.binds = Arrays.copyOf(InstrumentedStatement.this.binds, bindCount + 1);
+            this.batch = batch;
+            this.executeNanos = executeNanos;
+            this.error = error;
+        }
+
+        void finish(long fetchNanos, long rows, Throwable fetchError) {
+            if (SlowCallLog.isSlow(executeNanos, fetchNanos)) {
+                SlowCallLog.record(metrics.getProcedure(), binds, batch, executeNanos, fetchNanos, rows,
+                        error != null ? error : fetchError);
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "close":
+                finishPending();
+                break;
+            case "clearParameters":
+                Arrays.fill(binds, null);
+                break;
+            case "addBatch":
+                batch++;
+                break;
+            case "clearBatch":
+                batch = 0;
+                break;
+            case "registerOutParameter":
+                bind((Integer) args[0], SlowCallLog.OUT);
+                break;
+            default:
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer)
+                    bind((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                break;
+        }
+
+        boolean execute = name.startsWith("execute");
+        if (execute)
+            finishPending();
+        long start = execute ? System.nanoTime() : 0;
+        try {
+            Object result = method.invoke(statement, args);
+            if (execute)
+                executed(System.nanoTime() - start, null);
+            // executeQuery of a call returns an empty set, the rows come from the out cursor
+            if (!execute && result instanceof ResultSet)
+                return cursor((ResultSet) result);
+            return result;
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (execute)
+                executed(System.nanoTime() - start, cause);
+            if (cause instanceof SQLException)
+                metrics.failed((SQLException) cause);
+            throw cause;
+        }
+    }
+
+    private void bind(int index, Object value) {
+        if (index >= binds.length)
+            binds = Arrays.copyOf(binds, Math.max(index + 1, binds.length * 2));
+        binds[index] = value;
+        bindCount = Math.max(bindCount, index);
+    }
+
+    private void executed(long nanos, Throwable error) {
+        metrics.executed(nanos);
+        if (SlowCallLog.isEnabled())
+            pending = new Call(batch, nanos, error);
+        batch = 0;
+    }
+
+    private void finishPending() {
+        if (pending != null) {
+            pending.finish(0, 0, null);
+            pending = null;
+        }
+    }
+
+    private ResultSet cursor(ResultSet rs) {
+        Call call = pending;
+        pending = null;
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new Cursor(rs, call));
+    }
+
+    // counts rows and measures the time from opening the cursor to closing it
+    private final class Cursor implements InvocationHandler {
+        private final ResultSet rs;
+        private final Call call;
+        private final long openedAt = System.nanoTime();
+        private long rows;
+        private Throwable error;
+        private boolean closed;
+
+        Cursor(ResultSet rs, Call call) {
+            this.rs = rs;
+            this.call = call;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        long nanos = System.nanoTime() - openedAt;
+                        metrics.fetched(rows, nanos);
+                        if (call != null)
+                            call.finish(nanos, rows, error);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            try {
+                Object result = method.invoke(rs, args);
+                if ("next".equals(method.getName()) && Boolean.TRUE.equals(result))
+                    rows++;
+                return result;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException) {
+                    metrics.failed((SQLException) cause);
+                    error = cause;
+                }
+                throw cause;
+            }
+        }
+    }
+}
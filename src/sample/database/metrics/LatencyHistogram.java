@@ -0,0 +1,85 @@
+package sample.database.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of durations in microseconds: 16 buckets per power of two, so a
+// percentile is off by at most 1/16 (about 6%). Recording is lock-free; reading sums the
+// buckets, so percentiles taken while calls are recorded may miss the newest of them.
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        buckets.incrementAndGet(index(micros));
+        count.increment();
+        totalMicros.add(micros);
+        if (micros > maxMicros.get())
+            maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMs() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / 1e3 / n;
+    }
+
+    public double getMaxMs() {
+        return maxMicros.get() / 1e3;
+    }
+
+    // q in (0, 1], e.g. 0.95; the upper bound of the bucket holding that rank, 0 if empty
+    public double percentileMs(double q) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(upperBound(i), maxMicros.get()) / 1e3;
+        }
+        return getMaxMs();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            buckets.set(i, 0);
+        count.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    // values below 16 get a bucket each, above that 16 per power of two
+    private static int index(long micros) {
+        if (micros < SUB)
+            return (int) micros;
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BITS;
+        return (shift + 1) * SUB + (int) ((micros >>> shift) & (SUB - 1));
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB)
+            return index;
+        int shift = index / SUB - 1;
+        long lower = (long) (SUB + index % SUB) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,112 @@
+package sample.database.metrics;
+
+import sample.database.ConnectionPool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Borrow counters of the shared pool; sizes and statement cache figures are read from the pool itself
+public final class PoolMetrics implements PoolMetricsMXBean {
+    private final LongAdder timeouts = new LongAdder();
+    private final LatencyHistogram wait = new LatencyHistogram();
+    private volatile ConnectionPool pool;
+
+    PoolMetrics() {
+
+    }
+
+    void attach(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public void borrowed(long waitNanos) {
+        wait.recordNanos(waitNanos);
+    }
+
+    public void timedOut() {
+        timeouts.increment();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getActiveCount();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getIdleCount();
+    }
+
+    @Override
+    public int getMaxConnections() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getConfig().getMaxSize();
+    }
+
+    @Override
+    public long getBorrows() {
+        return wait.getCount();
+    }
+
+    @Override
+    public long getBorrowTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public double getWaitMeanMs() {
+        return wait.getMeanMs();
+    }
+
+    @Override
+    public double getWaitP50Ms() {
+        return wait.percentileMs(0.50);
+    }
+
+    @Override
+    public double getWaitP95Ms() {
+        return wait.percentileMs(0.95);
+    }
+
+    @Override
+    public double getWaitP99Ms() {
+        return wait.percentileMs(0.99);
+    }
+
+    @Override
+    public double getWaitMaxMs() {
+        return wait.getMaxMs();
+    }
+
+    @Override
+    public long getStatementCacheHits() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getStatementCacheStats().getHits();
+    }
+
+    @Override
+    public long getStatementCacheMisses() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getStatementCacheStats().getMisses();
+    }
+
+    @Override
+    public double getStatementCacheHitRate() {
+        ConnectionPool p = pool;
+        return p == null ? 0 : p.getStatementCacheStats().getHitRate();
+    }
+
+    @Override
+    public void reset() {
+        timeouts.reset();
+        wait.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pool: active=%d idle=%d borrows=%d timeouts=%d wait p50/p95/p99=%.1f/%.1f/%.1f ms",
+                getActiveConnections(), getIdleConnections(), getBorrows(), getBorrowTimeouts(),
+                getWaitP50Ms(), getWaitP95Ms(), getWaitP99Ms());
+    }
+}
@@ -0,0 +1,22 @@
+package sample.database.metrics;
+
+// sample.database:type=ConnectionPool; wait is the time borrow() takes to hand out a connection
+public interface PoolMetricsMXBean {
+    int getActiveConnections();
+    int getIdleConnections();
+    int getMaxConnections();
+
+    long getBorrows();
+    long getBorrowTimeouts();
+    double getWaitMeanMs();
+    double getWaitP50Ms();
+    double getWaitP95Ms();
+    double getWaitP99Ms();
+    double getWaitMaxMs();
+
+    long getStatementCacheHits();
+    long getStatementCacheMisses();
+    double getStatementCacheHitRate();
+
+    void reset();
+}
@@ -0,0 +1,134 @@
+package sample.database.metrics;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters of one stored procedure, shared by all connections
+public final class ProcedureMetrics implements ProcedureMetricsMXBean {
+    private final String procedure;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsBySqlState = new ConcurrentHashMap<>();
+    private final LatencyHistogram execute = new LatencyHistogram();
+    private final LatencyHistogram fetch = new LatencyHistogram();
+
+    ProcedureMetrics(String procedure) {
+        this.procedure = procedure;
+    }
+
+    void executed(long nanos) {
+        calls.increment();
+        execute.recordNanos(nanos);
+    }
+
+    void fetched(long rowCount, long nanos) {
+        rows.add(rowCount);
+        fetch.recordNanos(nanos);
+    }
+
+    void failed(SQLException e) {
+        errors.increment();
+        String state = e.getSQLState() == null ? "unknown" : e.getSQLState();
+        errorsBySqlState.computeIfAbsent(state, s -> new LongAdder()).increment();
+    }
+
+    @Override
+    public String getProcedure() {
+        return procedure;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsBySqlState() {
+        Map<String, Long> res = new TreeMap<>();
+        errorsBySqlState.forEach((state, n) -> res.put(state, n.sum()));
+        return res;
+    }
+
+    @Override
+    public double getExecuteMeanMs() {
+        return execute.getMeanMs();
+    }
+
+    @Override
+    public double getExecuteP50Ms() {
+        return execute.percentileMs(0.50);
+    }
+
+    @Override
+    public double getExecuteP95Ms() {
+        return execute.percentileMs(0.95);
+    }
+
+    @Override
+    public double getExecuteP99Ms() {
+        return execute.percentileMs(0.99);
+    }
+
+    @Override
+    public double getExecuteMaxMs() {
+        return execute.getMaxMs();
+    }
+
+    @Override
+    public double getFetchMeanMs() {
+        return fetch.getMeanMs();
+    }
+
+    @Override
+    public double getFetchP50Ms() {
+        return fetch.percentileMs(0.50);
+    }
+
+    @Override
+    public double getFetchP95Ms() {
+        return fetch.percentileMs(0.95);
+    }
+
+    @Override
+    public double getFetchP99Ms() {
+        return fetch.percentileMs(0.99);
+    }
+
+    @Override
+    public double getFetchMaxMs() {
+        return fetch.getMaxMs();
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        rows.reset();
+        errors.reset();
+        errorsBySqlState.clear();
+        execute.reset();
+        fetch.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: calls=%d rows=%d errors=%d execute p50/p95/p99=%.1f/%.1f/%.1f ms"
+                        + " fetch p50/p95/p99=%.1f/%.1f/%.1f ms",
+                procedure, getCalls(), getRows(), getErrors(),
+                getExecuteP50Ms(), getExecuteP95Ms(), getExecuteP99Ms(),
+                getFetchP50Ms(), getFetchP95Ms(), getFetchP99Ms());
+    }
+}
@@ -0,0 +1,27 @@
+package sample.database.metrics;
+
+import java.util.Map;
+
+// sample.database:type=Procedure,name=<procedure>; times in ms since the start or the last reset.
+// Execute is the call itself, fetch is reading its cursor until it is closed.
+public interface ProcedureMetricsMXBean {
+    String getProcedure();
+    long getCalls();
+    long getRows();
+    long getErrors();
+    Map<String, Long> getErrorsBySqlState();
+
+    double getExecuteMeanMs();
+    double getExecuteP50Ms();
+    double getExecuteP95Ms();
+    double getExecuteP99Ms();
+    double getExecuteMaxMs();
+
+    double getFetchMeanMs();
+    double getFetchP50Ms();
+    double getFetchP95Ms();
+    double getFetchP99Ms();
+    double getFetchMaxMs();
+
+    void reset();
+}
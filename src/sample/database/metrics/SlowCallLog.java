@@ -0,0 +1,164 @@
+package sample.database.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Procedure calls whose execute plus cursor fetch took longer than the threshold, one line each:
+//   2026-10-18T09:30:12.345 get_marks action=Controller.reloadMarks total=812.4ms execute=790.1ms fetch=22.3ms rows=25 binds=[17, <out>]
+// The calling thread only formats the line, a background thread writes it to a rolling file.
+//   -Ddb.slowLog.thresholdMs=1000     0 turns the log off
+//   -Ddb.slowLog.file=logs/slow-calls.log
+//   -Ddb.slowLog.maxBytes=10485760    then the file is rolled to .1, .2, ...
+//   -Ddb.slowLog.files=5              rolled files kept
+//   -Ddb.slowLog.mask=get_user        procedures whose bind values are never written
+public final class SlowCallLog {
+    private static final long THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("db.slowLog.thresholdMs", 1_000));
+    private static final Path FILE = Paths.get(System.getProperty("db.slowLog.file", "logs/slow-calls.log"));
+    private static final long MAX_BYTES = Long.getLong("db.slowLog.maxBytes", 10L * 1024 * 1024);
+    private static final int FILES = Integer.getInteger("db.slowLog.files", 5);
+    private static final Set<String> MASKED =
+            new HashSet<>(Arrays.asList(System.getProperty("db.slowLog.mask", "get_user").split(",")));
+
+    // a marker for out parameters in the bind list
+    static final Object OUT = new Object() {
+        @Override
+        public String toString() {
+            return "<out>";
+        }
+    };
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private static final BlockingQueue<String> queue = new ArrayBlockingQueue<>(10_000);
+    private static final AtomicLong dropped = new AtomicLong();
+    private static Thread writer;
+
+    public static boolean isEnabled() {
+        return THRESHOLD_NANOS > 0;
+    }
+
+    static boolean isSlow(long executeNanos, long fetchNanos) {
+        return isEnabled() && executeNanos + fetchNanos >= THRESHOLD_NANOS;
+    }
+
+    // binds are 1-based like the parameters, batch > 0 is the number of rows of an executeBatch
+    static void record(String procedure, Object[] binds, int batch, long executeNanos, long fetchNanos,
+                       long rows, Throwable error) {
+        StringBuilder line = new StringBuilder(160)
+                .append(TIME.format(LocalDateTime.now())).append(' ').append(procedure)
+                .append(" action=").append(CallContext.current())
+                .append(String.format(Locale.ROOT, " total=%.1fms execute=%.1fms fetch=%.1fms rows=%d",
+                        (executeNanos + fetchNanos) / 1e6, executeNanos / 1e6, fetchNanos / 1e6, rows));
+        if (batch > 0)
+            line.append(" batch=").append(batch);
+        line.append(" binds=").append(formatBinds(procedure, binds));
+        if (error != null)
+            line.append(" error=").append(error.getMessage());
+        if (!queue.offer(line.toString()))
+            dropped.incrementAndGet();
+        startWriter();
+    }
+
+    private static String formatBinds(String procedure, Object[] binds) {
+        StringBuilder sb = new StringBuilder("[");
+        boolean masked = MASKED.contains(procedure);
+        for (int i = 1; i < binds.length; i++) {
+            if (i > 1)
+                sb.append(", ");
+            Object value = binds[i];
+            if (value == OUT || value == null)
+                sb.append(value);
+            else if (masked)
+                sb.append("***");
+            else if (value instanceof String)
+                sb.append('\'').append(value).append('\'');
+            else
+                sb.append(value);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static synchronized void startWriter() {
+        if (writer != null)
+            return;
+        writer = new Thread(SlowCallLog::drain, "db-slow-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static void drain() {
+        BufferedWriter out = null;
+        long size = 0;
+        while (true) {
+            try {
+                String line = queue.take();
+                if (out == null) {
+                    out = open();
+                    size = Files.size(FILE);
+                }
+                long lost = dropped.getAndSet(0);
+                if (lost > 0)
+                    line = TIME.format(LocalDateTime.now()) + " " + lost + " slow calls were not logged, the queue was full\n" + line;
+                out.write(line);
+                out.newLine();
+                size += line.length() + 1;
+                // write whatever is queued, then flush once
+                if (queue.isEmpty())
+                    out.flush();
+                if (size >= MAX_BYTES) {
+                    out.close();
+                    out = null;
+                    roll();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                System.out.println("Slow call log: " + e.getMessage());
+                out = null;
+            }
+        }
+    }
+
+    private static BufferedWriter open() throws IOException {
+        Path dir = FILE.toAbsolutePath().getParent();
+        if (dir != null)
+            Files.createDirectories(dir);
+        return Files.newBufferedWriter(FILE, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    // slow-calls.log -> .1 -> .2 ..., the oldest beyond FILES is deleted
+    private static void roll() throws IOException {
+        Files.deleteIfExists(rolled(FILES));
+        for (int i = FILES - 1; i >= 1; i--) {
+            if (Files.exists(rolled(i)))
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(FILE, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path rolled(int n) {
+        return FILE.resolveSibling(FILE.getFileName() + "." + n);
+    }
+
+    private SlowCallLog() {
+
+    }
+}
@@ -0,0 +1,61 @@
+package sample.entity;
+
+// average mark and number of marks of one student, teacher, group or subject
+public final class AverageMark {
+    public enum Scope {
+        STUDENTS, TEACHERS, GROUPS, SUBJECTS
+    }
+
+    private Integer id;
+    private String name;
+    private Double average;
+    private Integer count;
+
+    public AverageMark() {
+
+    }
+
+    public AverageMark(Integer id, String name, Double average, Integer count) {
+        this.id = id;
+        this.name = name;
+        this.average = average;
+        this.count = count;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getAverage() {
+        return average;
+    }
+
+    public void setAverage(Double average) {
+        this.average = average;
+    }
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + average;
+    }
+}
@@ -1,13 +1,18 @@
 package sample.entity;
 
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+
 public final class Mark {
     private Integer id;
     private String subjectName;
     private String teacherName;
     private String teacherLastName;
     private Integer value;
+    private ObjectProperty<Integer> valueProperty;
 
     private Integer studentId;
+    private Integer subjectId;
     private Integer teacherId;
 
     public Mark() {
@@ -66,11 +71,21 @@ public final class Mark {
     }
 
     public Integer getValue() {
-        return value;
+        return valueProperty == null ? value : valueProperty.get();
     }
 
     public void setValue(Integer value) {
-        this.value = value;
+        if (valueProperty == null)
+            this.value = value;
+        else
+            valueProperty.set(value);
+    }
+
+    // the value cell listens to it, so setValue redraws just that cell
+    public ObjectProperty<Integer> valueProperty() {
+        if (valueProperty == null)
+            valueProperty = new SimpleObjectProperty<>(this, "value", value);
+        return valueProperty;
     }
 
     public Integer getStudentId() {
@@ -81,6 +96,14 @@ public final class Mark {
         this.studentId = studentId;
     }
 
+    public Integer getSubjectId() {
+        return subjectId;
+    }
+
+    public void setSubjectId(Integer subjectId) {
+        this.subjectId = subjectId;
+    }
+
     public Integer getTeacherId() {
         return teacherId;
     }
@@ -1,11 +1,18 @@
 package sample.entity;
 
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
 public final class Student {
     private Integer id;
     private String firstName;
+    private StringProperty firstNameProperty;
     private String lastName;
+    private StringProperty lastNameProperty;
     private String fatherName;
+    private StringProperty fatherNameProperty;
     private String groupName;
+    private StringProperty groupNameProperty;
 
     public Student() {
 
@@ -35,39 +42,77 @@ public final class Student {
     }
 
     public String getLastName() {
-        return lastName;
+        return lastNameProperty == null ? lastName : lastNameProperty.get();
     }
 
     public void setLastName(String lastName) {
-        this.lastName = lastName;
+        if (lastNameProperty == null)
+            this.lastName = lastName;
+        else
+            lastNameProperty.set(lastName);
+    }
+
+    // created on first use: rows that never reach a table stay plain objects,
+    // a table cell bound to it is redrawn as soon as the value is set
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null)
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        return lastNameProperty;
     }
 
     public String getFirstName() {
-        return firstName;
+        return firstNameProperty == null ? firstName : firstNameProperty.get();
     }
 
     public void setFirstName(String firstName) {
-        this.firstName = firstName;
+        if (firstNameProperty == null)
+            this.firstName = firstName;
+        else
+            firstNameProperty.set(firstName);
+    }
+
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null)
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        return firstNameProperty;
     }
 
     public String getFatherName() {
-        return fatherName;
+        return fatherNameProperty == null ? fatherName : fatherNameProperty.get();
     }
 
     public void setFatherName(String fatherName) {
-        this.fatherName = fatherName;
+        if (fatherNameProperty == null)
+            this.fatherName = fatherName;
+        else
+            fatherNameProperty.set(fatherName);
+    }
+
+    public StringProperty fatherNameProperty() {
+        if (fatherNameProperty == null)
+            fatherNameProperty = new SimpleStringProperty(this, "fatherName", fatherName);
+        return fatherNameProperty;
     }
 
     public String getGroupName() {
-        return groupName;
+        return groupNameProperty == null ? groupName : groupNameProperty.get();
     }
 
     public void setGroupName(String groupName) {
-        this.groupName = groupName;
+        if (groupNameProperty == null)
+            this.groupName = groupName;
+        else
+            groupNameProperty.set(groupName);
+    }
+
+    public StringProperty groupNameProperty() {
+        if (groupNameProperty == null)
+            groupNameProperty = new SimpleStringProperty(this, "groupName", groupName);
+        return groupNameProperty;
     }
 
     @Override
     public String toString() {
-        return firstName + " " + lastName;
+        return getFirstName() + " " + getLastName();
     }
 }
@@ -1,7 +1,12 @@
 package sample.entity;
 
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
 public final class Subject {
+    private Integer id;
     private String name;
+    private StringProperty nameProperty;
 
     public Subject() {
 
@@ -11,16 +16,38 @@ public final class Subject {
         this.name = name;
     }
 
+    public Subject(Integer id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
     public String getName() {
-        return name;
+        return nameProperty == null ? name : nameProperty.get();
     }
 
     public void setName(String name) {
-        this.name = name;
+        if (nameProperty == null)
+            this.name = name;
+        else
+            nameProperty.set(name);
+    }
+
+    public StringProperty nameProperty() {
+        if (nameProperty == null)
+            nameProperty = new SimpleStringProperty(this, "name", name);
+        return nameProperty;
     }
 
     @Override
     public String toString() {
-        return name;
+        return getName();
     }
 }
@@ -1,10 +1,16 @@
 package sample.entity;
 
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
 public final class Teacher {
     private Integer id;
     private String firstName;
+    private StringProperty firstNameProperty;
     private String lastName;
+    private StringProperty lastNameProperty;
     private String fatherName;
+    private StringProperty fatherNameProperty;
 
     public Teacher() {
 
@@ -32,31 +38,58 @@ public final class Teacher {
     }
 
     public String getFirstName() {
-        return firstName;
+        return firstNameProperty == null ? firstName : firstNameProperty.get();
     }
 
     public void setFirstName(String firstName) {
-        this.firstName = firstName;
+        if (firstNameProperty == null)
+            this.firstName = firstName;
+        else
+            firstNameProperty.set(firstName);
+    }
+
+    public StringProperty firstNameProperty() {
+        if (firstNameProperty == null)
+            firstNameProperty = new SimpleStringProperty(this, "firstName", firstName);
+        return firstNameProperty;
     }
 
     public String getLastName() {
-        return lastName;
+        return lastNameProperty == null ? lastName : lastNameProperty.get();
     }
 
     public void setLastName(String lastName) {
-        this.lastName = lastName;
+        if (lastNameProperty == null)
+            this.lastName = lastName;
+        else
+            lastNameProperty.set(lastName);
+    }
+
+    public StringProperty lastNameProperty() {
+        if (lastNameProperty == null)
+            lastNameProperty = new SimpleStringProperty(this, "lastName", lastName);
+        return lastNameProperty;
     }
 
     public String getFatherName() {
-        return fatherName;
+        return fatherNameProperty == null ? fatherName : fatherNameProperty.get();
     }
 
     public void setFatherName(String fatherName) {
-        this.fatherName = fatherName;
+        if (fatherNameProperty == null)
+            this.fatherName = fatherName;
+        else
+            fatherNameProperty.set(fatherName);
+    }
+
+    public StringProperty fatherNameProperty() {
+        if (fatherNameProperty == null)
+            fatherNameProperty = new SimpleStringProperty(this, "fatherName", fatherName);
+        return fatherNameProperty;
     }
 
     @Override
     public String toString() {
-        return firstName + " " + lastName;
+        return getFirstName() + " " + getLastName();
     }
 }
@@ -0,0 +1,241 @@
+package sample.importer;
+
+import sample.database.dao.*;
+import sample.entity.*;
+import sample.service.*;
+import sample.service.impl.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Streams students, teachers or marks from a CSV/TSV file with a header row into the db.
+// Rows go in batches; after every batch the number of consumed records is saved
+// to <file>.checkpoint, so a run that stopped on a db failure continues where it was.
+//
+// students: last name, first name, father name, group
+// teachers: last name, first name, father name
+// marks:    student last/first/father name, group, subject, teacher last/first/father name, value
+public final class CsvImporter {
+    private final StudentService studentService;
+    private final TeacherService teacherService;
+    private final GroupService groupService;
+    private final SubjectService subjectService;
+    private final MarkService markService;
+    private final int chunkSize;
+
+    public CsvImporter(StudentService studentService, TeacherService teacherService,
+                       GroupService groupService, SubjectService subjectService,
+                       MarkService markService, int chunkSize) {
+        this.studentService = studentService;
+        this.teacherService = teacherService;
+        this.groupService = groupService;
+        this.subjectService = subjectService;
+        this.markService = markService;
+        this.chunkSize = chunkSize;
+    }
+
+    public ImportReport importStudents(Path file, char delimiter) throws IOException {
+        Map<String, String> groups = loadGroups();
+        Set<String> existing = new HashSet<>();
+        requireLoaded(studentService.forEach(s ->
+                existing.add(key(s.getLastName(), s.getFirstName(), s.getFatherName(), s.getGroupName()))),
+                "students");
+
+        // rows already in the db or earlier in the file are skipped
+        return run(file, delimiter, row -> {
+            checkColumns(row, 4);
+            String group = resolve(groups, normalize(row[3]), row[3], "group");
+            if (!existing.add(key(row[0], row[1], row[2], group)))
+                return null;
+            return new Student(row[1].trim(), row[0].trim(), row[2].trim(), group);
+        }, chunk -> studentService.addAll(chunk, chunkSize));
+    }
+
+    public ImportReport importTeachers(Path file, char delimiter) throws IOException {
+        Set<String> existing = new HashSet<>(loadTeachers().keySet());
+
+        return run(file, delimiter, row -> {
+            checkColumns(row, 3);
+            if (!existing.add(key(row[0], row[1], row[2])))
+                return null;
+            return new Teacher(row[1].trim(), row[0].trim(), row[2].trim());
+        }, chunk -> teacherService.addAll(chunk, chunkSize));
+    }
+
+    public ImportReport importMarks(Path file, char delimiter) throws IOException {
+        Map<String, Subject> subjects = new HashMap<>();
+        requireLoaded(subjectService.forEach(s -> subjects.put(normalize(s.getName()), s)), "subjects");
+        Map<String, Integer> students = new HashMap<>();
+        requireLoaded(studentService.forEach(s ->
+                students.put(key(s.getLastName(), s.getFirstName(), s.getFatherName(), s.getGroupName()), s.getId())),
+                "students");
+        Map<String, Integer> teachers = loadTeachers();
+
+        return run(file, delimiter, row -> {
+            checkColumns(row, 9);
+            Integer studentId = resolve(students, key(row[0], row[1], row[2], row[3]),
+                    row[0] + " " + row[1] + " " + row[2], "student");
+            Subject subject = resolve(subjects, normalize(row[4]), row[4], "subject");
+            Integer teacherId = resolve(teachers, key(row[5], row[6], row[7]),
+                    row[5] + " " + row[6] + " " + row[7], "teacher");
+            Integer value;
+            try {
+                value = Integer.valueOf(row[8].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Mark is not a number: " + row[8]);
+            }
+            Mark mark = new Mark(studentId, subject.getName(), teacherId, value);
+            mark.setSubjectId(subject.getId());
+            return mark;
+        }, chunk -> markService.addAll(chunk, chunkSize));
+    }
+
+    private <T> ImportReport run(Path file, char delimiter, Function<String[], T> mapper,
+                                 Function<List<T>, BatchResult<T>> writer) throws IOException {
+        Path checkpoint = Paths.get(file + ".checkpoint");
+        long done = Files.exists(checkpoint)
+                ? Long.parseLong(new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8).trim())
+                : 0;
+        ImportReport report = new ImportReport(file, done);
+
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file, StandardCharsets.UTF_8), delimiter)) {
+            reader.next(); // header
+            reader.skip(done);
+
+            List<T> chunk = new ArrayList<>(chunkSize);
+            List<Long> records = new ArrayList<>(chunkSize);
+            String[] row;
+            while ((row = reader.next()) != null) {
+                long record = reader.getRecordNumber() - 1;
+                report.rowRead();
+                try {
+                    T item = mapper.apply(row);
+                    if (item == null)
+                        report.rowSkipped();
+                    else {
+                        chunk.add(item);
+                        records.add(record);
+                    }
+                } catch (IllegalArgumentException e) {
+                    report.rowFailed(record, e.getMessage());
+                }
+
+                if (chunk.size() == chunkSize) {
+                    flush(chunk, records, writer, report, record, checkpoint);
+                }
+            }
+            if (!chunk.isEmpty())
+                flush(chunk, records, writer, report, reader.getRecordNumber() - 1, checkpoint);
+        }
+        Files.deleteIfExists(checkpoint);
+        return report;
+    }
+
+    private <T> void flush(List<T> chunk, List<Long> records, Function<List<T>, BatchResult<T>> writer,
+                           ImportReport report, long lastRecord, Path checkpoint) throws IOException {
+        if (!chunk.isEmpty()) {
+            BatchResult<T> result = writer.apply(chunk);
+            if (result.isAborted()) {
+                throw new IOException("Import stopped at record " + records.get(0) + ": "
+                        + result.getAbortReason() + ". Run it again to continue.");
+            }
+            report.rowsSaved(result.getSaved());
+            for (BatchResult.Failure<T> failure : result.getFailures()) {
+                report.rowFailed(records.get(failure.getIndex()), failure.getMessage());
+            }
+            chunk.clear();
+            records.clear();
+        }
+        Files.write(checkpoint, String.valueOf(lastRecord).getBytes(StandardCharsets.UTF_8));
+        System.out.println(report);
+    }
+
+    private Map<String, String> loadGroups() throws IOException {
+        Map<String, String> groups = new HashMap<>();
+        requireLoaded(groupService.forEach(g -> groups.put(normalize(g.getName()), g.getName())), "groups");
+        return groups;
+    }
+
+    private Map<String, Integer> loadTeachers() throws IOException {
+        Map<String, Integer> teachers = new HashMap<>();
+        requireLoaded(teacherService.forEach(t ->
+                teachers.put(key(t.getLastName(), t.getFirstName(), t.getFatherName()), t.getId())),
+                "teachers");
+        return teachers;
+    }
+
+    // lookups are filled row by row straight from the cursor, no intermediate lists
+    private static void requireLoaded(boolean loaded, String what) throws IOException {
+        if (!loaded)
+            throw new IOException("Could not load " + what + " from the db");
+    }
+
+    private static <V> V resolve(Map<String, V> lookup, String key, String name, String what) {
+        V value = lookup.get(key);
+        if (value == null)
+            throw new IllegalArgumentException("Unknown " + what + ": " + name);
+        return value;
+    }
+
+    private static void checkColumns(String[] row, int expected) {
+        if (row.length < expected)
+            throw new IllegalArgumentException("Expected " + expected + " columns, got " + row.length);
+    }
+
+    private static String key(String... parts) {
+        StringBuilder key = new StringBuilder();
+        for (String part : parts) {
+            key.append(normalize(part)).append('|');
+        }
+        return key.toString();
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: CsvImporter students|teachers|marks <file.csv|file.tsv>");
+            return;
+        }
+        Path file = Paths.get(args[1]);
+        char delimiter = file.toString().endsWith(".tsv") ? '\t' : ',';
+
+        CsvImporter importer = new CsvImporter(
+                new StudentServiceImpl(new StudentDao()),
+                new TeacherServiceImpl(new TeacherDao()),
+                new GroupServiceImpl(new GroupsDao()),
+                new SubjectServiceImpl(new SubjectDao()),
+                new MarkServiceImpl(new MarkDao()),
+                Integer.getInteger("db.batch.size", 500));
+
+        ImportReport report;
+        switch (args[0]) {
+            case "students":
+                report = importer.importStudents(file, delimiter);
+                break;
+            case "teachers":
+                report = importer.importTeachers(file, delimiter);
+                break;
+            case "marks":
+                report = importer.importMarks(file, delimiter);
+                break;
+            default:
+                System.out.println("Unknown import type: " + args[0]);
+                return;
+        }
+        System.out.println("Done. " + report);
+    }
+}
@@ -0,0 +1,99 @@
+package sample.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads one record at a time, so memory doesn't depend on the file size.
+// Understands quoted fields with "" escapes and line breaks inside quotes.
+public final class CsvReader implements Closeable {
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final char delimiter;
+    private final char[] buffer = new char[8192];
+    private int position;
+    private int limit;
+    private long recordNumber;
+
+    public CsvReader(Reader in, char delimiter) {
+        this.in = in;
+        this.delimiter = delimiter;
+    }
+
+    // number of records read so far
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    // null at the end of the input
+    public String[] next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == EOF)
+            return null;
+        if (recordNumber == 0 && c == '\uFEFF')
+            c = read();
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == EOF)
+                    throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r' || c == EOF) {
+                fields.add(field.toString());
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+        recordNumber++;
+        return fields.toArray(new String[0]);
+    }
+
+    // skips the given number of records, e.g. the ones imported before a restart
+    public void skip(long records) throws IOException {
+        for (long i = 0; i < records && next() != null; i++) {
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position++];
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,73 @@
+package sample.importer;
+
+import java.nio.file.Path;
+
+// Counters of one import run, printed as progress after every chunk
+public final class ImportReport {
+    private final Path file;
+    private final long resumedAt;
+    private final long startedAt = System.nanoTime();
+    private long read;
+    private long saved;
+    private long skipped;
+    private long failed;
+
+    ImportReport(Path file, long resumedAt) {
+        this.file = file;
+        this.resumedAt = resumedAt;
+    }
+
+    void rowRead() {
+        read++;
+    }
+
+    void rowsSaved(long count) {
+        saved += count;
+    }
+
+    void rowSkipped() {
+        skipped++;
+    }
+
+    void rowFailed(long record, String message) {
+        failed++;
+        System.out.println(file.getFileName() + ", record " + record + ": " + message);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // records already imported by an earlier, interrupted run
+    public long getResumedAt() {
+        return resumedAt;
+    }
+
+    public long getRead() {
+        return read;
+    }
+
+    public long getSaved() {
+        return saved;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        return seconds == 0 ? 0 : read / seconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: read %d, saved %d, skipped %d, failed %d (%.0f rows/s)%s",
+                file.getFileName(), read, saved, skipped, failed, getRowsPerSecond(),
+                resumedAt > 0 ? ", resumed after record " + resumedAt : "");
+    }
+}
@@ -0,0 +1,449 @@
+package sample.search;
+
+import sample.database.dao.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Search-as-you-type over names of people. Every word of the names goes into a prefix trie;
+// the distinct words also go into a trigram index, which finds the words close to a misspelled
+// one. Case and ё/е are folded. Kept current with apply(ChangeSet) like TrackedList;
+// thread safe, filled on the db executor and searched on the FX thread.
+public final class NameIndex<T> {
+    // trigram similarity (shared / all distinct trigrams of both words) of a close word, as in pg_trgm
+    private static final double MIN_SIMILARITY = 0.3;
+
+    private final Function<T, Integer> idOf;
+    private final Function<T, String[]> namesOf;
+
+    // rows live in slots, the trie holds slots; freed slots are reused
+    private final List<T> rows = new ArrayList<>();
+    private final List<String[]> words = new ArrayList<>();
+    private final Map<Integer, Integer> slotOf = new HashMap<>();
+    private final IntList freeSlots = new IntList();
+    private final Node root = new Node();
+
+    // distinct words of all rows, how many trigrams each has and the words of each trigram
+    private final List<String> vocabulary = new ArrayList<>();
+    private int[] trigramCounts = new int[16];
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final IntList freeWords = new IntList();
+    private final Map<Long, IntList> trigrams = new HashMap<>();
+
+    private long watermark;
+    private long version;
+
+    // scratch space of search: rows already taken, words already looked at
+    private int[] seen = new int[0];
+    private int stamp;
+    private int[] seenWords = new int[0];
+    private int[] shared = new int[0];
+    private final IntList touched = new IntList();
+
+    public NameIndex(Function<T, Integer> idOf, Function<T, String[]> namesOf) {
+        this.idOf = idOf;
+        this.namesOf = namesOf;
+    }
+
+    // 0 until the first full change set
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    public synchronized int size() {
+        return slotOf.size();
+    }
+
+    // grows with every applied change set, the watermark can stay the same across several
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // a full set replaces everything, deltas before the first full one and stale sets are dropped
+    public synchronized void apply(ChangeSet<T> changes) {
+        if (changes == null || changes.getWatermark() < watermark)
+            return;
+        if (!changes.isFull() && watermark == 0)
+            return;
+        watermark = changes.getWatermark();
+        version++;
+        if (changes.isFull())
+            clear();
+        for (T row : changes.getRows())
+            put(row);
+        for (int id : changes.getDeletedIds())
+            remove(id);
+    }
+
+    public synchronized void putAll(Collection<? extends T> all) {
+        all.forEach(this::put);
+    }
+
+    // replaces the row with the same id
+    public synchronized void put(T row) {
+        Integer id = idOf.apply(row);
+        if (id == null)
+            return;
+        remove(id);
+
+        int slot;
+        if (freeSlots.size > 0) {
+            slot = freeSlots.removeLast();
+        } else {
+            slot = rows.size();
+            rows.add(null);
+            words.add(null);
+        }
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String name : namesOf.apply(row))
+            Collections.addAll(distinct, split(name));
+        String[] folded = distinct.toArray(new String[0]);
+        rows.set(slot, row);
+        words.set(slot, folded);
+        slotOf.put(id, slot);
+
+        for (String word : folded) {
+            Node node = root.insert(word);
+            if (node.slots == null)
+                node.slots = new IntList();
+            if (node.slots.size == 0)
+                addWord(word);
+            node.slots.add(slot);
+        }
+    }
+
+    public synchronized void remove(int id) {
+        Integer slot = slotOf.remove(id);
+        if (slot == null)
+            return;
+        // the nodes of a word no row has any more are dropped, search takes a word
+        // no node is found for as misspelled
+        for (String word : words.get(slot)) {
+            Node node = root.find(word);
+            if (node != null && node.slots != null && node.slots.removeValue(slot) && node.slots.size == 0) {
+                removeWord(word);
+                root.prune(word, 0);
+            }
+        }
+        rows.set(slot, null);
+        words.set(slot, null);
+        freeSlots.add(slot);
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+        words.clear();
+        slotOf.clear();
+        freeSlots.size = 0;
+        root.clear();
+        vocabulary.clear();
+        wordIds.clear();
+        freeWords.size = 0;
+        trigrams.clear();
+    }
+
+    private void addWord(String word) {
+        int wordId;
+        if (freeWords.size > 0) {
+            wordId = freeWords.removeLast();
+            vocabulary.set(wordId, word);
+        } else {
+            wordId = vocabulary.size();
+            vocabulary.add(word);
+            if (wordId == trigramCounts.length)
+                trigramCounts = Arrays.copyOf(trigramCounts, wordId * 2);
+        }
+        wordIds.put(word, wordId);
+        long[] own = trigramsOf(word);
+        trigramCounts[wordId] = own.length;
+        for (long trigram : own)
+            trigrams.computeIfAbsent(trigram, k -> new IntList()).add(wordId);
+    }
+
+    private void removeWord(String word) {
+        Integer wordId = wordIds.remove(word);
+        if (wordId == null)
+            return;
+        for (long trigram : trigramsOf(word)) {
+            IntList list = trigrams.get(trigram);
+            if (list != null && list.removeValue(wordId) && list.size == 0)
+                trigrams.remove(trigram);
+        }
+        vocabulary.set(wordId, null);
+        freeWords.add(wordId);
+    }
+
+    // Rows with a word starting with each word of the query, in alphabetical order of the longest
+    // one. If they are fewer than limit, rows follow where one query word is misspelled: the word
+    // no name starts with (or the only one) matches names close to it, the others still as prefixes.
+    public synchronized List<T> search(String query, int limit) {
+        String[] tokens = split(query);
+        if (tokens.length == 0 || limit <= 0)
+            return Collections.emptyList();
+        if (seen.length < rows.size())
+            seen = new int[rows.size() * 3 / 2 + 16];
+        stamp++;
+
+        List<T> result = new ArrayList<>();
+        String longest = tokens[0];
+        String misspelled = null;
+        for (String token : tokens) {
+            if (token.length() > longest.length())
+                longest = token;
+            if (root.find(token) == null && (misspelled == null || token.length() > misspelled.length()))
+                misspelled = token;
+        }
+        if (misspelled == null) {
+            collect(root.find(longest), tokens, limit, result);
+            if (result.size() == limit || tokens.length > 1)
+                return result;
+            misspelled = tokens[0];
+        }
+
+        List<String> others = new ArrayList<>(Arrays.asList(tokens));
+        others.remove(misspelled);
+        String[] rest = others.toArray(new String[0]);
+        for (String word : closeWords(misspelled)) {
+            IntList slots = root.find(word).slots;
+            for (int i = 0; i < slots.size; i++) {
+                int slot = slots.values[i];
+                if (seen[slot] == stamp || !startsAll(words.get(slot), rest))
+                    continue;
+                seen[slot] = stamp;
+                result.add(rows.get(slot));
+                if (result.size() == limit)
+                    return result;
+            }
+        }
+        return result;
+    }
+
+    private boolean collect(Node node, String[] tokens, int limit, List<T> result) {
+        if (node.slots != null) {
+            for (int i = 0; i < node.slots.size; i++) {
+                int slot = node.slots.values[i];
+                if (seen[slot] == stamp || !startsAll(words.get(slot), tokens))
+                    continue;
+                seen[slot] = stamp;
+                result.add(rows.get(slot));
+                if (result.size() == limit)
+                    return true;
+            }
+        }
+        for (int i = 0; i < node.size; i++) {
+            if (collect(node.children[i], tokens, limit, result))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean startsAll(String[] rowWords, String[] tokens) {
+        for (String token : tokens) {
+            boolean found = false;
+            for (String word : rowWords) {
+                if (word.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    // Words of the index close to token, the closest first. A close word shares at least
+    // MIN_SIMILARITY of the token's trigrams, so it is on one of the lists of the rarest ones:
+    // those lists give the candidates, the lists of common trigrams ("ов ", "ова") only
+    // add to the shared counts of words already found.
+    private List<String> closeWords(String token) {
+        long[] query = trigramsOf(token);
+        IntList[] lists = new IntList[query.length];
+        for (int i = 0; i < query.length; i++)
+            lists[i] = trigrams.get(query[i]);
+        Arrays.sort(lists, (a, b) -> Integer.compare(sizeOf(a), sizeOf(b)));
+        if (seenWords.length < vocabulary.size()) {
+            seenWords = new int[vocabulary.size() * 3 / 2 + 16];
+            shared = new int[seenWords.length];
+        }
+
+        int probes = query.length - Math.max(1, (int) Math.ceil(query.length * MIN_SIMILARITY)) + 1;
+        touched.size = 0;
+        for (int k = 0; k < query.length; k++) {
+            IntList list = lists[k];
+            for (int i = 0; list != null && i < list.size; i++) {
+                int wordId = list.values[i];
+                if (seenWords[wordId] == stamp) {
+                    shared[wordId]++;
+                } else if (k < probes) {
+                    seenWords[wordId] = stamp;
+                    shared[wordId] = 1;
+                    touched.add(wordId);
+                }
+            }
+        }
+
+        // similarity in the high half, word id in the low one: sorting puts the closest first
+        long[] found = new long[touched.size];
+        int n = 0;
+        for (int i = 0; i < touched.size; i++) {
+            int wordId = touched.values[i];
+            int common = shared[wordId];
+            double similarity = (double) common / (query.length + trigramCounts[wordId] - common);
+            if (similarity >= MIN_SIMILARITY)
+                found[n++] = ((long) -(int) (similarity * 1_000_000) << 32) | wordId;
+        }
+        Arrays.sort(found, 0, n);
+        List<String> res = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            res.add(vocabulary.get((int) found[i]));
+        return res;
+    }
+
+    private static int sizeOf(IntList list) {
+        return list == null ? 0 : list.size;
+    }
+
+    // lower case, ё as е, split into words of letters and digits
+    static String[] split(String text) {
+        if (text == null)
+            return new String[0];
+        String folded = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        List<String> res = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                res.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return res.toArray(new String[0]);
+    }
+
+    // distinct trigrams of the word padded like in pg_trgm (two spaces in front, one after), sorted
+    private static long[] trigramsOf(String word) {
+        long[] res = new long[word.length() + 1];
+        long a = ' ';
+        long b = ' ';
+        for (int i = 0; i <= word.length(); i++) {
+            long c = i < word.length() ? word.charAt(i) : ' ';
+            res[i] = (a << 32) | (b << 16) | c;
+            a = b;
+            b = c;
+        }
+        Arrays.sort(res);
+        int distinct = 0;
+        for (long trigram : res) {
+            if (distinct == 0 || trigram != res[distinct - 1])
+                res[distinct++] = trigram;
+        }
+        return Arrays.copyOf(res, distinct);
+    }
+
+    // children are kept sorted by their char, so a walk goes in alphabetical order
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int size;
+        // rows with a word that ends here
+        IntList slots;
+
+        Node find(String word) {
+            Node node = this;
+            for (int i = 0; i < word.length() && node != null; i++)
+                node = node.child(word.charAt(i));
+            return node;
+        }
+
+        Node insert(String word) {
+            Node node = this;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                Node next = node.child(c);
+                if (next == null)
+                    next = node.addChild(c);
+                node = next;
+            }
+            return node;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, 0, size, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        // removes the nodes on the path of word, from its end up, that lead to no row; true if this one does not
+        boolean prune(String word, int depth) {
+            if (depth < word.length()) {
+                int i = Arrays.binarySearch(keys, 0, size, word.charAt(depth));
+                if (i >= 0 && children[i].prune(word, depth + 1)) {
+                    System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                    System.arraycopy(children, i + 1, children, i, size - i - 1);
+                    children[--size] = null;
+                }
+            }
+            return size == 0 && (slots == null || slots.size == 0);
+        }
+
+        Node addChild(char c) {
+            int i = -Arrays.binarySearch(keys, 0, size, c) - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(2, size * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(children, i, children, i + 1, size - i);
+            Node node = new Node();
+            keys[i] = c;
+            children[i] = node;
+            size++;
+            return node;
+        }
+
+        void clear() {
+            keys = new char[0];
+            children = new Node[0];
+            size = 0;
+            slots = null;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[2];
+        int size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int removeLast() {
+            return values[--size];
+        }
+
+        // keeps the order, the trie lists rows in the order they were added
+        boolean removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    System.arraycopy(values, i + 1, values, i, size - i - 1);
+                    size--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package sample.service;
 
+import sample.entity.AverageMark;
+
+import java.util.function.Consumer;
+
 public interface AverageMarkService {
-    String calcPerfStud(String start, String end, Integer id);
-    String calcPerfTeach(String start, String end, Integer id);
-    String calcPerfGroup(String start, String end, String name);
-    String calcPerfSubj(String start, String end, String name);
+    String calcPerfStud(int startYear, int endYear, Integer id);
+    String calcPerfTeach(int startYear, int endYear, Integer id);
+    String calcPerfGroup(int startYear, int endYear, String name);
+    String calcPerfSubj(int startYear, int endYear, String name);
+    boolean forEachAverage(AverageMark.Scope scope, int startYear, int endYear,
+                           Consumer<? super AverageMark> action);
 }
@@ -0,0 +1,20 @@
+package sample.service;
+
+import sample.database.dao.CascadeDao;
+import sample.entity.AverageMark;
+
+public interface CascadeService {
+    @FunctionalInterface
+    interface Progress {
+        void deleted(int done, int total);
+    }
+
+    // deletes the row at once if nothing depends on it, otherwise only counts its dependent rows;
+    // null if the call failed
+    CascadeDao.Left deleteIfFree(AverageMark.Scope scope, int id);
+
+    // Deletes the dependent rows chunk by chunk, then the row. dependents are the rows counted
+    // by deleteIfFree. Stops between chunks when the thread is interrupted: the chunks already
+    // deleted stay deleted and the row stays. False if it stopped or a chunk failed.
+    boolean deleteAll(AverageMark.Scope scope, int id, CascadeDao.Left dependents, Progress progress);
+}
@@ -1,15 +1,19 @@
 package sample.service;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.ChangeSet;
 import sample.entity.Group;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface GroupService {
     ObservableList<Group> findAll();
+    boolean forEach(Consumer<? super Group> action);
+    ChangeSet<Group> findChangedSince(long watermark);
     void add(Group group);
     void delete(Group group);
-    void update(Group _old, Group _new);
+    boolean update(Group _old, Group _new);
 
     List<Integer> countDependencies(Group group);
 }
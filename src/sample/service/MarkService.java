@@ -1,12 +1,25 @@
 package sample.service;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.PageIndex;
+import sample.entity.Group;
 import sample.entity.Mark;
 import sample.entity.Student;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface MarkService {
     ObservableList<Mark> findAllByStudent(Student student);
+    List<Mark> findPageByStudent(Student student, Integer afterId, int limit);
+    PageIndex findPageIndexByStudent(Student student, int pageSize);
+    // student id -> marks ordered by id; null if the group has more than maxMarks marks
+    Map<Integer, List<Mark>> findAllByGroup(Group group, int maxMarks);
     void add(Mark mark);
+    BatchResult<Mark> addAll(Collection<Mark> marks);
+    BatchResult<Mark> addAll(Collection<Mark> marks, int chunkSize);
     void delete(Mark mark);
-    void update(Mark _old, Mark _new);
+    boolean update(Mark _old, Mark _new);
 }
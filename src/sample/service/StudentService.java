@@ -1,15 +1,26 @@
 package sample.service;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.ChangeSet;
+import sample.database.dao.PageIndex;
 import sample.entity.Student;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StudentService {
     ObservableList<Student> findAll();
+    boolean forEach(Consumer<? super Student> action);
+    ChangeSet<Student> findChangedSince(long watermark);
+    List<Student> findPage(Integer afterId, int limit);
+    PageIndex findPageIndex(int pageSize);
     void add(Student student);
+    BatchResult<Student> addAll(Collection<Student> students);
+    BatchResult<Student> addAll(Collection<Student> students, int chunkSize);
     void delete(Student student);
-    void update(Student _old, Student _new);
+    boolean update(Student _old, Student _new);
 
     List<Integer> countDependencies(Student student);
 }
@@ -1,15 +1,19 @@
 package sample.service;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.ChangeSet;
 import sample.entity.Subject;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface SubjectService {
     ObservableList<Subject> findAll();
+    boolean forEach(Consumer<? super Subject> action);
+    ChangeSet<Subject> findChangedSince(long watermark);
     void add(Subject subject);
     void delete(Subject subject);
-    void update(Subject _old, Subject _new);
+    boolean update(Subject _old, Subject _new);
 
     List<Integer> countDependencies(Subject subject);
 }
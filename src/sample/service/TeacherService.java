@@ -1,15 +1,23 @@
 package sample.service;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.ChangeSet;
 import sample.entity.Teacher;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TeacherService {
     ObservableList<Teacher> findAll();
+    boolean forEach(Consumer<? super Teacher> action);
+    ChangeSet<Teacher> findChangedSince(long watermark);
     void add(Teacher teacher);
+    BatchResult<Teacher> addAll(Collection<Teacher> teachers);
+    BatchResult<Teacher> addAll(Collection<Teacher> teachers, int chunkSize);
     void delete(Teacher teacher);
-    void update(Teacher _old, Teacher _new);
+    boolean update(Teacher _old, Teacher _new);
 
     List<Integer> countDependencies(Teacher teacher);
 }
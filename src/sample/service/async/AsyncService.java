@@ -0,0 +1,61 @@
+package sample.service.async;
+
+import sample.database.metrics.CallContext;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Runs calls of any service interface on the db executor and hands back a CompletableFuture.
+// Continuations that touch the UI go through DbExecutor.FX, e.g.
+//   groups.supply(GroupService::findAll).thenAcceptAsync(table::setItems, DbExecutor.FX)
+public final class AsyncService<S> {
+    private final S service;
+    private final ExecutorService executor;
+    private final InFlight inFlight;
+
+    public AsyncService(S service, ExecutorService executor, InFlight inFlight) {
+        this.service = service;
+        this.executor = executor;
+        this.inFlight = inFlight;
+    }
+
+    public <R> CompletableFuture<R> supply(Function<S, R> call) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        // the controller action behind the call, for the slow-call log
+        String action = CallContext.capture();
+        Future<?> task = executor.submit(() -> CallContext.run(action, () -> {
+            try {
+                result.complete(call.apply(service));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }));
+        // cancelling the future interrupts the worker, e.g. while it waits for a pooled connection
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled())
+                task.cancel(true);
+        });
+        inFlight.track(result);
+        return result;
+    }
+
+    public CompletableFuture<Void> run(Consumer<S> call) {
+        return supply(s -> {
+            call.accept(s);
+            return null;
+        });
+    }
+
+    // for exceptionally(): prints the failure, cancelled requests are not an error
+    public static <T> T logError(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (!(cause instanceof CancellationException))
+            System.out.println(cause.getMessage());
+        return null;
+    }
+}
@@ -0,0 +1,42 @@
+package sample.service.async;
+
+import javafx.application.Platform;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Threads that talk to the db, so the FX Application Thread never waits on JDBC
+public final class DbExecutor {
+    // runs continuations on the FX Application Thread
+    public static final Executor FX = Platform::runLater;
+
+    private static ExecutorService executor;
+
+    public static synchronized ExecutorService get() {
+        if (executor == null)
+            executor = create();
+        return executor;
+    }
+
+    // virtual threads where the JDK has them, otherwise a small pool of daemon threads
+    private static ExecutorService create() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(Integer.getInteger("db.pool.maxSize", 4), r -> {
+                Thread thread = new Thread(r, "db-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private DbExecutor() {
+
+    }
+}
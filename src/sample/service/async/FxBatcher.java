@@ -0,0 +1,35 @@
+package sample.service.async;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Collects rows read on a worker thread and appends them to an FX list chunk by chunk,
+// so a long cursor shows up in a table while it is still being read.
+// Call flush() when the producer is done.
+public final class FxBatcher<T> implements Consumer<T> {
+    private final List<? super T> target;
+    private final int chunkSize;
+    private List<T> chunk;
+
+    public FxBatcher(List<? super T> target, int chunkSize) {
+        this.target = target;
+        this.chunkSize = chunkSize;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    @Override
+    public void accept(T item) {
+        chunk.add(item);
+        if (chunk.size() >= chunkSize)
+            flush();
+    }
+
+    public void flush() {
+        if (chunk.isEmpty())
+            return;
+        List<T> ready = chunk;
+        chunk = new ArrayList<>(chunkSize);
+        DbExecutor.FX.execute(() -> target.addAll(ready));
+    }
+}
@@ -0,0 +1,41 @@
+package sample.service.async;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Requests that haven't finished yet, the count is published on the FX thread for bindings
+public final class InFlight {
+    private final Set<CompletableFuture<?>> running = ConcurrentHashMap.newKeySet();
+    private final ReadOnlyIntegerWrapper count = new ReadOnlyIntegerWrapper();
+
+    void track(CompletableFuture<?> future) {
+        running.add(future);
+        publish();
+        future.whenComplete((r, e) -> {
+            running.remove(future);
+            publish();
+        });
+    }
+
+    public ReadOnlyIntegerProperty countProperty() {
+        return count.getReadOnlyProperty();
+    }
+
+    public void cancelAll() {
+        for (CompletableFuture<?> future : running) {
+            future.cancel(true);
+        }
+    }
+
+    private void publish() {
+        if (Platform.isFxApplicationThread())
+            count.set(running.size());
+        else
+            Platform.runLater(() -> count.set(running.size()));
+    }
+}
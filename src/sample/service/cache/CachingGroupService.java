@@ -0,0 +1,78 @@
+package sample.service.cache;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import sample.database.dao.ChangeSet;
+import sample.entity.Group;
+import sample.service.GroupService;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// GroupService that answers findAll and findChangedSince from memory until a write goes through it
+public class CachingGroupService implements GroupService {
+    private final GroupService delegate;
+    private final ListCache<Group> cache;
+
+    public CachingGroupService(GroupService delegate) {
+        this(delegate, ListCache.fromSystemProperties());
+    }
+
+    public CachingGroupService(GroupService delegate, ListCache<Group> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public ListCache.Stats getStats() {
+        return cache.getStats();
+    }
+
+    // a copy, callers put it into tables and may change it
+    @Override
+    public ObservableList<Group> findAll() {
+        List<Group> rows = cache.get(delegate::findAll);
+        return rows == null ? null : FXCollections.observableArrayList(rows);
+    }
+
+    @Override
+    public boolean forEach(Consumer<? super Group> action) {
+        List<Group> rows = cache.getIfPresent();
+        if (rows == null)
+            return delegate.forEach(action);
+        rows.forEach(action);
+        return true;
+    }
+
+    // the whole table from memory like findAll, a delta is empty while nothing was written through here
+    @Override
+    public ChangeSet<Group> findChangedSince(long watermark) {
+        if (watermark <= 0)
+            return cache.getFull(() -> delegate.findChangedSince(0));
+        return cache.getChanges(watermark, delegate::findChangedSince);
+    }
+
+    @Override
+    public void add(Group group) {
+        delegate.add(group);
+        cache.invalidate();
+    }
+
+    @Override
+    public void delete(Group group) {
+        delegate.delete(group);
+        cache.invalidate();
+    }
+
+    @Override
+    public boolean update(Group _old, Group _new) {
+        boolean updated = delegate.update(_old, _new);
+        cache.invalidate();
+        return updated;
+    }
+
+    // depends on other tables, never cached
+    @Override
+    public List<Integer> countDependencies(Group group) {
+        return delegate.countDependencies(group);
+    }
+}
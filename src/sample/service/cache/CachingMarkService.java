@@ -0,0 +1,254 @@
+package sample.service.cache;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.PageIndex;
+import sample.entity.Group;
+import sample.entity.Mark;
+import sample.entity.Student;
+import sample.service.MarkService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// MarkService that reads the marks of a student's whole group in one call the first time one of
+// its students is asked for, so the other students of the group are then answered from memory.
+// Keeps at most maxMarks marks, the least recently read students are dropped first. A write drops
+// the student it touched, the next read of that student alone goes to the db.
+public class CachingMarkService implements MarkService {
+    private static final class Entry {
+        final String group;
+        final List<Mark> marks;
+        final long loadedAt;
+
+        Entry(String group, List<Mark> marks) {
+            this.group = group;
+            this.marks = Collections.unmodifiableList(new ArrayList<>(marks));
+            this.loadedAt = System.currentTimeMillis();
+        }
+
+        // a student without marks still takes a place
+        int weight() {
+            return Math.max(1, marks.size());
+        }
+    }
+
+    private final MarkService delegate;
+    private final int maxMarks;
+    private final long ttlMs;
+    private final Map<Integer, Entry> students = new LinkedHashMap<>(16, 0.75f, true);
+    // group name -> how many of its students are kept
+    private final Map<String, Integer> groups = new HashMap<>();
+    private int weight;
+    private long version;
+
+    // -Ddb.cache.marks (20000, 0 turns caching off), entries live for -Ddb.cache.ttlMs
+    public CachingMarkService(MarkService delegate) {
+        this(delegate, Integer.getInteger("db.cache.marks", 20_000), Long.getLong("db.cache.ttlMs", 600_000));
+    }
+
+    public CachingMarkService(MarkService delegate, int maxMarks, long ttlMs) {
+        this.delegate = delegate;
+        this.maxMarks = maxMarks;
+        this.ttlMs = ttlMs;
+    }
+
+    // a copy, the table may change it
+    @Override
+    public ObservableList<Mark> findAllByStudent(Student student) {
+        List<Mark> marks = marksOf(student);
+        return marks == null ? delegate.findAllByStudent(student) : FXCollections.observableArrayList(marks);
+    }
+
+    @Override
+    public List<Mark> findPageByStudent(Student student, Integer afterId, int limit) {
+        List<Mark> marks = cached(student.getId());
+        if (marks == null)
+            return delegate.findPageByStudent(student, afterId, limit);
+
+        int from = afterId == null ? 0 : firstAfter(marks, afterId);
+        return new ArrayList<>(marks.subList(from, Math.min(marks.size(), from + limit)));
+    }
+
+    // the index is where a student is first read, so this is the call that loads the group
+    @Override
+    public PageIndex findPageIndexByStudent(Student student, int pageSize) {
+        List<Mark> marks = marksOf(student);
+        if (marks == null)
+            return delegate.findPageIndexByStudent(student, pageSize);
+
+        int[] lastIds = new int[marks.size() / pageSize];
+        for (int page = 0; page < lastIds.length; page++)
+            lastIds[page] = marks.get((page + 1) * pageSize - 1).getId();
+        return new PageIndex(marks.size(), lastIds);
+    }
+
+    @Override
+    public Map<Integer, List<Mark>> findAllByGroup(Group group, int maxMarks) {
+        return delegate.findAllByGroup(group, maxMarks);
+    }
+
+    @Override
+    public void add(Mark mark) {
+        delegate.add(mark);
+        invalidate(mark);
+    }
+
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks) {
+        BatchResult<Mark> result = delegate.addAll(marks);
+        marks.forEach(this::invalidate);
+        return result;
+    }
+
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks, int chunkSize) {
+        BatchResult<Mark> result = delegate.addAll(marks, chunkSize);
+        marks.forEach(this::invalidate);
+        return result;
+    }
+
+    @Override
+    public void delete(Mark mark) {
+        delegate.delete(mark);
+        invalidate(mark);
+    }
+
+    @Override
+    public boolean update(Mark _old, Mark _new) {
+        boolean updated = delegate.update(_old, _new);
+        invalidate(_old);
+        return updated;
+    }
+
+    // marks changed past this service: a cascade delete, a teacher or a subject renamed
+    public synchronized void clear() {
+        version++;
+        students.clear();
+        groups.clear();
+        weight = 0;
+    }
+
+    // the student's marks ordered by id, read with the group on a miss; null if they can't be kept
+    private List<Mark> marksOf(Student student) {
+        List<Mark> marks = cached(student.getId());
+        if (marks != null || maxMarks <= 0 || ttlMs <= 0 || student.getGroupName() == null)
+            return marks;
+
+        long loadVersion;
+        boolean groupKept;
+        synchronized (this) {
+            loadVersion = version;
+            groupKept = groups.containsKey(student.getGroupName());
+        }
+        // the rest of the group is still here, only this student was dropped by a write
+        if (groupKept) {
+            marks = delegate.findAllByStudent(student);
+            if (marks == null)
+                return null;
+            // get_marks has no order, pages are cut by id
+            marks = new ArrayList<>(marks);
+            marks.sort(Comparator.comparing(Mark::getId));
+            store(loadVersion, student.getGroupName(), Collections.singletonMap(student.getId(), marks),
+                    student.getId());
+            return marks;
+        }
+
+        Map<Integer, List<Mark>> group = delegate.findAllByGroup(new Group(student.getGroupName()), maxMarks);
+        if (group == null)
+            return null;
+        store(loadVersion, student.getGroupName(), group, student.getId());
+        return group.get(student.getId());
+    }
+
+    private synchronized List<Mark> cached(Integer studentId) {
+        Entry entry = students.get(studentId);
+        if (entry == null)
+            return null;
+        if (System.currentTimeMillis() - entry.loadedAt >= ttlMs) {
+            remove(studentId);
+            return null;
+        }
+        return entry.marks;
+    }
+
+    // nothing is stored if a write came in while the marks were read
+    private synchronized void store(long loadVersion, String group, Map<Integer, List<Mark>> marks,
+                                    Integer requested) {
+        if (loadVersion != version)
+            return;
+        for (Map.Entry<Integer, List<Mark>> e : marks.entrySet()) {
+            if (!e.getKey().equals(requested))
+                put(e.getKey(), new Entry(group, e.getValue()));
+        }
+        // the student asked for goes in last, it is the last one to be dropped
+        if (marks.containsKey(requested))
+            put(requested, new Entry(group, marks.get(requested)));
+    }
+
+    private void put(Integer studentId, Entry entry) {
+        if (entry.weight() > maxMarks)
+            return;
+        remove(studentId);
+        students.put(studentId, entry);
+        groups.merge(entry.group, 1, Integer::sum);
+        weight += entry.weight();
+
+        for (Iterator<Entry> it = students.values().iterator(); weight > maxMarks && it.hasNext(); ) {
+            Entry eldest = it.next();
+            it.remove();
+            forget(eldest);
+        }
+    }
+
+    private void remove(Integer studentId) {
+        Entry entry = students.remove(studentId);
+        if (entry != null)
+            forget(entry);
+    }
+
+    private void forget(Entry entry) {
+        weight -= entry.weight();
+        groups.computeIfPresent(entry.group, (name, n) -> n == 1 ? null : n - 1);
+    }
+
+    // marks shown in the table carry no student id, their student is looked up by the mark's id
+    private synchronized void invalidate(Mark mark) {
+        version++;
+        if (mark.getStudentId() != null) {
+            remove(mark.getStudentId());
+            return;
+        }
+        Set<Integer> owners = new HashSet<>();
+        for (Map.Entry<Integer, Entry> e : students.entrySet()) {
+            for (Mark m : e.getValue().marks) {
+                if (m.getId() != null && m.getId().equals(mark.getId()))
+                    owners.add(e.getKey());
+            }
+        }
+        owners.forEach(this::remove);
+    }
+
+    private static int firstAfter(List<Mark> marks, int afterId) {
+        int lo = 0;
+        int hi = marks.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (marks.get(mid).getId() <= afterId)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,78 @@
+package sample.service.cache;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import sample.database.dao.ChangeSet;
+import sample.entity.Subject;
+import sample.service.SubjectService;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// SubjectService that answers findAll and findChangedSince from memory until a write goes through it
+public class CachingSubjectService implements SubjectService {
+    private final SubjectService delegate;
+    private final ListCache<Subject> cache;
+
+    public CachingSubjectService(SubjectService delegate) {
+        this(delegate, ListCache.fromSystemProperties());
+    }
+
+    public CachingSubjectService(SubjectService delegate, ListCache<Subject> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public ListCache.Stats getStats() {
+        return cache.getStats();
+    }
+
+    // a copy, callers put it into tables and may change it
+    @Override
+    public ObservableList<Subject> findAll() {
+        List<Subject> rows = cache.get(delegate::findAll);
+        return rows == null ? null : FXCollections.observableArrayList(rows);
+    }
+
+    @Override
+    public boolean forEach(Consumer<? super Subject> action) {
+        List<Subject> rows = cache.getIfPresent();
+        if (rows == null)
+            return delegate.forEach(action);
+        rows.forEach(action);
+        return true;
+    }
+
+    // the whole table from memory like findAll, a delta is empty while nothing was written through here
+    @Override
+    public ChangeSet<Subject> findChangedSince(long watermark) {
+        if (watermark <= 0)
+            return cache.getFull(() -> delegate.findChangedSince(0));
+        return cache.getChanges(watermark, delegate::findChangedSince);
+    }
+
+    @Override
+    public void add(Subject subject) {
+        delegate.add(subject);
+        cache.invalidate();
+    }
+
+    @Override
+    public void delete(Subject subject) {
+        delegate.delete(subject);
+        cache.invalidate();
+    }
+
+    @Override
+    public boolean update(Subject _old, Subject _new) {
+        boolean updated = delegate.update(_old, _new);
+        cache.invalidate();
+        return updated;
+    }
+
+    // depends on other tables, never cached
+    @Override
+    public List<Integer> countDependencies(Subject subject) {
+        return delegate.countDependencies(subject);
+    }
+}
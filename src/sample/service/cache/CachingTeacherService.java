@@ -0,0 +1,94 @@
+package sample.service.cache;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.ChangeSet;
+import sample.entity.Teacher;
+import sample.service.TeacherService;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+// TeacherService that answers findAll and findChangedSince from memory until a write goes through it
+public class CachingTeacherService implements TeacherService {
+    private final TeacherService delegate;
+    private final ListCache<Teacher> cache;
+
+    public CachingTeacherService(TeacherService delegate) {
+        this(delegate, ListCache.fromSystemProperties());
+    }
+
+    public CachingTeacherService(TeacherService delegate, ListCache<Teacher> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public ListCache.Stats getStats() {
+        return cache.getStats();
+    }
+
+    // a copy, callers put it into tables and may change it
+    @Override
+    public ObservableList<Teacher> findAll() {
+        List<Teacher> rows = cache.get(delegate::findAll);
+        return rows == null ? null : FXCollections.observableArrayList(rows);
+    }
+
+    @Override
+    public boolean forEach(Consumer<? super Teacher> action) {
+        List<Teacher> rows = cache.getIfPresent();
+        if (rows == null)
+            return delegate.forEach(action);
+        rows.forEach(action);
+        return true;
+    }
+
+    // the whole table from memory like findAll, a delta is empty while nothing was written through here
+    @Override
+    public ChangeSet<Teacher> findChangedSince(long watermark) {
+        if (watermark <= 0)
+            return cache.getFull(() -> delegate.findChangedSince(0));
+        return cache.getChanges(watermark, delegate::findChangedSince);
+    }
+
+    @Override
+    public void add(Teacher teacher) {
+        delegate.add(teacher);
+        cache.invalidate();
+    }
+
+    @Override
+    public BatchResult<Teacher> addAll(Collection<Teacher> teachers) {
+        BatchResult<Teacher> result = delegate.addAll(teachers);
+        cache.invalidate();
+        return result;
+    }
+
+    @Override
+    public BatchResult<Teacher> addAll(Collection<Teacher> teachers, int chunkSize) {
+        BatchResult<Teacher> result = delegate.addAll(teachers, chunkSize);
+        cache.invalidate();
+        return result;
+    }
+
+    @Override
+    public void delete(Teacher teacher) {
+        delegate.delete(teacher);
+        cache.invalidate();
+    }
+
+    @Override
+    public boolean update(Teacher _old, Teacher _new) {
+        boolean updated = delegate.update(_old, _new);
+        cache.invalidate();
+        return updated;
+    }
+
+    // depends on other tables, never cached
+    @Override
+    public List<Integer> countDependencies(Teacher teacher) {
+        return delegate.countDependencies(teacher);
+    }
+}
@@ -0,0 +1,186 @@
+package sample.service.cache;
+
+import sample.database.dao.ChangeSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+// Holds the result of a findAll or of a full findChangedSince for ttlMs. Tables with more than
+// maxRows rows are not kept. A load that was running while invalidate() was called is not stored,
+// so a write can never be followed by a stale read.
+public final class ListCache<T> {
+    private final long ttlMs;
+    private final int maxRows;
+    private final Stats stats = new Stats();
+    private List<T> rows;
+    private long loadedAt;
+    private long version;
+    // watermark of the full change set the rows came from, 0 if they came from findAll
+    private long watermark;
+    // watermark of the last read with no write through this cache since, and when it was taken
+    private long currentFrom;
+    private long currentAt;
+
+    public ListCache(long ttlMs, int maxRows) {
+        this.ttlMs = ttlMs;
+        this.maxRows = maxRows;
+    }
+
+    // -Ddb.cache.ttlMs (600000, 0 turns caching off) and -Ddb.cache.maxRows (10000)
+    public static <T> ListCache<T> fromSystemProperties() {
+        return new ListCache<>(Long.getLong("db.cache.ttlMs", 600_000),
+                Integer.getInteger("db.cache.maxRows", 10_000));
+    }
+
+    // cached rows or the loader's result, null if the loader failed
+    public List<T> get(Supplier<List<T>> loader) {
+        long loadVersion;
+        synchronized (this) {
+            List<T> cached = getIfPresent();
+            if (cached != null)
+                return cached;
+            loadVersion = version;
+        }
+
+        stats.misses.increment();
+        List<T> loaded = loader.get();
+        if (loaded == null)
+            return null;
+
+        List<T> snapshot = Collections.unmodifiableList(new ArrayList<>(loaded));
+        synchronized (this) {
+            if (loadVersion == version && ttlMs > 0 && snapshot.size() <= maxRows) {
+                rows = snapshot;
+                watermark = 0;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+        return snapshot;
+    }
+
+    // the whole table as a full change set, from the cached rows of an earlier one or from loader;
+    // null if the loader failed
+    public ChangeSet<T> getFull(Supplier<ChangeSet<T>> loader) {
+        long loadVersion;
+        synchronized (this) {
+            if (watermark > 0) {
+                List<T> cached = getIfPresent();
+                if (cached != null)
+                    return new ChangeSet<>(cached, Collections.emptyList(), watermark, true);
+            }
+            loadVersion = version;
+        }
+
+        stats.misses.increment();
+        ChangeSet<T> loaded = loader.get();
+        if (loaded == null)
+            return null;
+
+        synchronized (this) {
+            if (loadVersion == version && ttlMs > 0) {
+                long now = System.currentTimeMillis();
+                if (loaded.getRows().size() <= maxRows) {
+                    rows = loaded.getRows();
+                    watermark = loaded.getWatermark();
+                    loadedAt = now;
+                }
+                currentFrom = loaded.getWatermark();
+                currentAt = now;
+            }
+        }
+        return loaded;
+    }
+
+    // An empty change set if nothing was written through this cache since a read at or before
+    // since, for up to ttlMs; otherwise the loader's, null if it failed. Writes of other clients
+    // show up after ttlMs, as with findAll.
+    public ChangeSet<T> getChanges(long since, LongFunction<ChangeSet<T>> loader) {
+        long loadVersion;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (currentAt > 0 && since >= currentFrom && now - currentAt < ttlMs) {
+                stats.hits.increment();
+                return new ChangeSet<>(Collections.emptyList(), Collections.emptyList(), since, false);
+            }
+            loadVersion = version;
+        }
+
+        stats.misses.increment();
+        ChangeSet<T> loaded = loader.apply(since);
+        if (loaded == null)
+            return null;
+
+        synchronized (this) {
+            if (loadVersion == version && ttlMs > 0) {
+                currentFrom = loaded.getWatermark();
+                currentAt = System.currentTimeMillis();
+            }
+        }
+        return loaded;
+    }
+
+    // cached rows without loading them, counts as a hit when present
+    public synchronized List<T> getIfPresent() {
+        if (rows == null)
+            return null;
+        if (System.currentTimeMillis() - loadedAt >= ttlMs) {
+            rows = null;
+            stats.expirations.increment();
+            return null;
+        }
+        stats.hits.increment();
+        return rows;
+    }
+
+    public synchronized void invalidate() {
+        version++;
+        currentAt = 0;
+        if (rows != null) {
+            rows = null;
+            stats.invalidations.increment();
+        }
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+        private final LongAdder expirations = new LongAdder();
+
+        public long getHits() {
+            return hits.sum();
+        }
+
+        public long getMisses() {
+            return misses.sum();
+        }
+
+        public long getInvalidations() {
+            return invalidations.sum();
+        }
+
+        public long getExpirations() {
+            return expirations.sum();
+        }
+
+        public double getHitRate() {
+            long hits = getHits();
+            long total = hits + getMisses();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d misses=%d invalidations=%d expirations=%d hit rate=%.2f",
+                    getHits(), getMisses(), getInvalidations(), getExpirations(), getHitRate());
+        }
+    }
+}
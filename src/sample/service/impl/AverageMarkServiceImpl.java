@@ -1,8 +1,11 @@
 package sample.service.impl;
 
 import sample.database.dao.AverageMarkDao;
+import sample.entity.AverageMark;
 import sample.service.AverageMarkService;
 
+import java.util.function.Consumer;
+
 public class AverageMarkServiceImpl implements AverageMarkService {
     private AverageMarkDao dao;
 
@@ -11,22 +14,28 @@ public class AverageMarkServiceImpl implements AverageMarkService {
     }
 
     @Override
-    public String calcPerfStud(String start, String end, Integer id) {
-        return dao.calcPerfStud(start, end, id);
+    public String calcPerfStud(int startYear, int endYear, Integer id) {
+        return dao.calcPerfStud(startYear, endYear, id);
+    }
+
+    @Override
+    public String calcPerfTeach(int startYear, int endYear, Integer id) {
+        return dao.calcPerfTeacher(startYear, endYear, id);
     }
 
     @Override
-    public String calcPerfTeach(String start, String end, Integer id) {
-        return dao.calcPerfTeacher(start, end, id);
+    public String calcPerfGroup(int startYear, int endYear, String name) {
+        return dao.calcPerfGroup(startYear, endYear, name);
     }
 
     @Override
-    public String calcPerfGroup(String start, String end, String name) {
-        return dao.calcPerfGroup(start, end, name);
+    public String calcPerfSubj(int startYear, int endYear, String name) {
+        return dao.calcPerfSubj(startYear, endYear, name);
     }
 
     @Override
-    public String calcPerfSubj(String start, String end, String name) {
-        return dao.calcPerfSubj(start, end, name);
+    public boolean forEachAverage(AverageMark.Scope scope, int startYear, int endYear,
+                                  Consumer<? super AverageMark> action) {
+        return dao.forEachAverage(scope, startYear, endYear, action);
     }
 }
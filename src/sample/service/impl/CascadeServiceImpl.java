@@ -0,0 +1,46 @@
+package sample.service.impl;
+
+import sample.database.dao.CascadeDao;
+import sample.entity.AverageMark;
+import sample.service.CascadeService;
+
+public class CascadeServiceImpl implements CascadeService {
+    // rows per transaction, -Ddb.delete.chunkSize
+    private static final int CHUNK_SIZE = Integer.getInteger("db.delete.chunkSize", 5000);
+
+    private CascadeDao dao;
+
+    public CascadeServiceImpl(CascadeDao dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public CascadeDao.Left deleteIfFree(AverageMark.Scope scope, int id) {
+        return dao.deleteChunk(scope, id, 0);
+    }
+
+    @Override
+    public boolean deleteAll(AverageMark.Scope scope, int id, CascadeDao.Left dependents, Progress progress) {
+        int total = dependents.total();
+        CascadeDao.Left before = dependents;
+        CascadeDao.Left left;
+        // one more call even with nothing left, it deletes the row itself
+        do {
+            if (Thread.currentThread().isInterrupted())
+                return false;
+            left = dao.deleteChunk(scope, id, CHUNK_SIZE);
+            if (left == null)
+                return false;
+            // a chunk that deleted nothing would be repeated forever, e.g. when the counts drifted
+            if (!left.isEmpty() && left.getMarks() == before.getMarks() && left.getPeople() == before.getPeople()) {
+                System.out.println("Delete of " + scope + " " + id + " makes no progress: " + left);
+                return false;
+            }
+            before = left;
+            // rows added meanwhile can make the total grow
+            total = Math.max(total, left.total());
+            progress.deleted(total - left.total(), total);
+        } while (!left.isEmpty());
+        return true;
+    }
+}
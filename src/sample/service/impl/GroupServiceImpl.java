@@ -1,15 +1,16 @@
 package sample.service.impl;
 
 import javafx.collections.ObservableList;
-import sample.database.dao.DAO;
+import sample.database.dao.ChangeSet;
 import sample.database.dao.GroupsDao;
 import sample.entity.Group;
 import sample.service.GroupService;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class GroupServiceImpl implements GroupService {
-    private DAO dao;
+    private GroupsDao dao;
 
     public GroupServiceImpl(GroupsDao dao) {
         this.dao = dao;
@@ -20,6 +21,16 @@ public class GroupServiceImpl implements GroupService {
         return dao.findAll();
     }
 
+    @Override
+    public boolean forEach(Consumer<? super Group> action) {
+        return dao.forEach(action);
+    }
+
+    @Override
+    public ChangeSet<Group> findChangedSince(long watermark) {
+        return dao.findChangedSince(watermark);
+    }
+
     @Override
     public void add(Group group) {
         dao.save(group);
@@ -31,8 +42,8 @@ public class GroupServiceImpl implements GroupService {
     }
 
     @Override
-    public void update(Group _old, Group _new) {
-        dao.update(_old, _new);
+    public boolean update(Group _old, Group _new) {
+        return dao.update(_old, _new);
     }
 
     @Override
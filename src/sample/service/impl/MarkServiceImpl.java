@@ -1,12 +1,25 @@
 package sample.service.impl;
 
 import javafx.collections.ObservableList;
+import sample.database.dao.BatchResult;
+import sample.database.dao.PageIndex;
 import sample.database.dao.MarkDao;
+import sample.entity.Group;
 import sample.entity.Mark;
 import sample.entity.Student;
 import sample.service.MarkService;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public class MarkServiceImpl implements MarkService {
+    // same bounds as the check_mark_value trigger
+    private static final int MIN_VALUE = 2;
+    private static final int MAX_VALUE = 5;
+    private static final int BATCH_SIZE = Integer.getInteger("db.batch.size", 500);
+
     private MarkDao dao;
 
     public MarkServiceImpl(MarkDao dao) {
@@ -18,18 +31,56 @@ public class MarkServiceImpl implements MarkService {
         return dao.findAllByStudent(student);
     }
 
+    @Override
+    public List<Mark> findPageByStudent(Student student, Integer afterId, int limit) {
+        return dao.findPageByStudent(student, afterId, limit);
+    }
+
+    @Override
+    public PageIndex findPageIndexByStudent(Student student, int pageSize) {
+        return dao.findPageIndexByStudent(student, pageSize);
+    }
+
+    @Override
+    public Map<Integer, List<Mark>> findAllByGroup(Group group, int maxMarks) {
+        return dao.findAllByGroup(group, maxMarks);
+    }
+
     @Override
     public void add(Mark mark) {
         dao.save(mark);
     }
 
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks) {
+        return addAll(marks, BATCH_SIZE);
+    }
+
+    @Override
+    public BatchResult<Mark> addAll(Collection<Mark> marks, int chunkSize) {
+        return dao.saveAll(new ArrayList<>(marks), chunkSize, MarkServiceImpl::validate);
+    }
+
+    // rejects what the db would reject, so a bad row costs no round trip
+    private static String validate(Mark mark) {
+        if (mark.getStudentId() == null)
+            return "Student is not set";
+        if (mark.getTeacherId() == null)
+            return "Teacher is not set";
+        if (mark.getSubjectName() == null || mark.getSubjectName().isEmpty())
+            return "Subject is not set";
+        if (mark.getValue() == null || mark.getValue() < MIN_VALUE || mark.getValue() > MAX_VALUE)
+            return "Value is not in [" + MIN_VALUE + ".." + MAX_VALUE + "]";
+        return null;
+    }
+
     @Override
     public void delete(Mark mark) {
         dao.delete(mark);
     }
 
     @Override
-    public void update(Mark _old, Mark _new) {
-        dao.update(_old, _new);
+    public boolean update(Mark _old, Mark _new) {
+        return dao.update(_old, _new);
     }
 }
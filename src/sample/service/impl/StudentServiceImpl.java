@@ -1,15 +1,22 @@
 package sample.service.impl;
 
 import javafx.collections.ObservableList;
-import sample.database.dao.DAO;
+import sample.database.dao.BatchResult;
+import sample.database.dao.ChangeSet;
+import sample.database.dao.PageIndex;
 import sample.database.dao.StudentDao;
 import sample.entity.Student;
 import sample.service.StudentService;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class StudentServiceImpl implements StudentService {
-    private DAO dao;
+    private static final int BATCH_SIZE = Integer.getInteger("db.batch.size", 500);
+
+    private StudentDao dao;
 
     public StudentServiceImpl(StudentDao dao) {
         this.dao = dao;
@@ -20,19 +27,65 @@ public class StudentServiceImpl implements StudentService {
         return dao.findAll();
     }
 
+    @Override
+    public boolean forEach(Consumer<? super Student> action) {
+        return dao.forEach(action);
+    }
+
+    @Override
+    public ChangeSet<Student> findChangedSince(long watermark) {
+        return dao.findChangedSince(watermark);
+    }
+
+    @Override
+    public List<Student> findPage(Integer afterId, int limit) {
+        return dao.findPage(afterId, limit);
+    }
+
+    @Override
+    public PageIndex findPageIndex(int pageSize) {
+        return dao.findPageIndex(pageSize);
+    }
+
     @Override
     public void add(Student student) {
         dao.save(student);
     }
 
+    @Override
+    public BatchResult<Student> addAll(Collection<Student> students) {
+        return addAll(students, BATCH_SIZE);
+    }
+
+    @Override
+    public BatchResult<Student> addAll(Collection<Student> students, int chunkSize) {
+        return dao.saveAll(new ArrayList<>(students), chunkSize, StudentServiceImpl::validate);
+    }
+
+    private static String validate(Student student) {
+        if (isBlank(student.getLastName()))
+            return "Last name is not set";
+        if (isBlank(student.getFirstName()))
+            return "First name is not set";
+        if (isBlank(student.getFatherName()))
+            return "Father name is not set";
+        if (isBlank(student.getGroupName()))
+            return "Group is not set";
+        return null;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
     @Override
     public void delete(Student student) {
         dao.delete(student);
     }
 
     @Override
-    public void update(Student _old, Student _new) {
-        dao.update(_old, _new);
+    public boolean update(Student _old, Student _new) {
+        return dao.update(_old, _new);
     }
 
     @Override
@@ -1,15 +1,16 @@
 package sample.service.impl;
 
 import javafx.collections.ObservableList;
-import sample.database.dao.DAO;
+import sample.database.dao.ChangeSet;
 import sample.database.dao.SubjectDao;
 import sample.entity.Subject;
 import sample.service.SubjectService;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public class SubjectServiceImpl implements SubjectService {
-    private DAO dao;
+    private SubjectDao dao;
 
     public SubjectServiceImpl(SubjectDao dao) {
         this.dao = dao;
@@ -20,6 +21,16 @@ public class SubjectServiceImpl implements SubjectService {
         return dao.findAll();
     }
 
+    @Override
+    public boolean forEach(Consumer<? super Subject> action) {
+        return dao.forEach(action);
+    }
+
+    @Override
+    public ChangeSet<Subject> findChangedSince(long watermark) {
+        return dao.findChangedSince(watermark);
+    }
+
     @Override
     public void add(Subject subject) {
         dao.save(subject);
@@ -31,8 +42,8 @@ public class SubjectServiceImpl implements SubjectService {
     }
 
     @Override
-    public void update(Subject _old, Subject _new) {
-        dao.update(_old, _new);
+    public boolean update(Subject _old, Subject _new) {
+        return dao.update(_old, _new);
     }
 
     @Override
@@ -1,15 +1,21 @@
 package sample.service.impl;
 
 import javafx.collections.ObservableList;
-import sample.database.dao.DAO;
+import sample.database.dao.BatchResult;
+import sample.database.dao.ChangeSet;
 import sample.database.dao.TeacherDao;
 import sample.entity.Teacher;
 import sample.service.TeacherService;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class TeacherServiceImpl implements TeacherService {
-    private DAO dao;
+    private static final int BATCH_SIZE = Integer.getInteger("db.batch.size", 500);
+
+    private TeacherDao dao;
 
     public TeacherServiceImpl(TeacherDao dao) {
         this.dao = dao;
@@ -20,19 +26,53 @@ public class TeacherServiceImpl implements TeacherService {
         return dao.findAll();
     }
 
+    @Override
+    public boolean forEach(Consumer<? super Teacher> action) {
+        return dao.forEach(action);
+    }
+
+    @Override
+    public ChangeSet<Teacher> findChangedSince(long watermark) {
+        return dao.findChangedSince(watermark);
+    }
+
     @Override
     public void add(Teacher teacher) {
         dao.save(teacher);
     }
 
+    @Override
+    public BatchResult<Teacher> addAll(Collection<Teacher> teachers) {
+        return addAll(teachers, BATCH_SIZE);
+    }
+
+    @Override
+    public BatchResult<Teacher> addAll(Collection<Teacher> teachers, int chunkSize) {
+        return dao.saveAll(new ArrayList<>(teachers), chunkSize, TeacherServiceImpl::validate);
+    }
+
+    private static String validate(Teacher teacher) {
+        if (isBlank(teacher.getLastName()))
+            return "Last name is not set";
+        if (isBlank(teacher.getFirstName()))
+            return "First name is not set";
+        if (isBlank(teacher.getFatherName()))
+            return "Father name is not set";
+        return null;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
     @Override
     public void delete(Teacher teacher) {
         dao.delete(teacher);
     }
 
     @Override
-    public void update(Teacher _old, Teacher _new) {
-        dao.update(_old, _new);
+    public boolean update(Teacher _old, Teacher _new) {
+        return dao.update(_old, _new);
     }
 
     @Override